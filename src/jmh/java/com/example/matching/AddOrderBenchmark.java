@@ -0,0 +1,48 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Passive addOrder: every order rests without crossing, spread over a band of price levels
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddOrderBenchmark {
+
+    private static final int ID_COUNT = 1 << 20;
+
+    @Param({"100"})
+    int levels;
+
+    private TradeMatchingEngine engine;
+    private String[] ids;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void createIds() {
+        ids = new String[ID_COUNT];
+        for (int i = 0; i < ID_COUNT; i++) {
+            ids[i] = "B" + i;
+        }
+    }
+
+    // A fresh book per iteration keeps the resting size comparable between iterations
+    @Setup(Level.Iteration)
+    public void createEngine() {
+        engine = new TradeMatchingEngine(0.01);
+        engine.addOrder(new TradeMatchingEngine.Order("ask", "sell", 200.0, 1, 0));
+        sequence = 0;
+    }
+
+    @Benchmark
+    public TradeMatchingEngine addPassiveOrder() {
+        long seq = sequence++;
+        long priceTicks = 10_000 - (seq % levels);
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks(ids[(int) (seq & (ID_COUNT - 1))], "buy", priceTicks, 10, seq));
+        return engine;
+    }
+}
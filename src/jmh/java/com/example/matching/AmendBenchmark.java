@@ -0,0 +1,60 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// amendOrder against the cancel it has to keep up with, on a long-ID book with 1,024 resting orders
+// per side. Each invocation touches the next order of the ask ring, so the book never drains:
+//  - amendDown: same-price decrease, done in place
+//  - amendReprice: moves the order one tick and back, a cancel/replace that does not cross
+//  - cancelAndAdd: the same re-price as deleteOrder plus addOrder, what an amend cost before amendOrder
+// Half of cancelAndAdd is the cancel budget that both amend rows should stay within.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AmendBenchmark {
+
+    private static final int ORDERS = 1_024;
+
+    private TradeMatchingEngine engine;
+    private int next;
+    private long timestamp;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new TradeMatchingEngine();
+        for (int i = 0; i < ORDERS; i++) {
+            engine.addOrder(i, Side.SELL, 1_000 + i % 50, 1_000_000_000, timestamp++);
+            engine.addOrder(ORDERS + i, Side.BUY, 900 - i % 50, 10, timestamp++);
+        }
+    }
+
+    @Benchmark
+    public boolean amendDown() {
+        long id = next++ & (ORDERS - 1);
+        TradeMatchingEngine.Order order = engine.getOrder(id);
+        return engine.amendOrder(id, order.getPriceTicks(), order.getVolume() - 1, timestamp++);
+    }
+
+    @Benchmark
+    public boolean amendReprice() {
+        long id = next++ & (ORDERS - 1);
+        TradeMatchingEngine.Order order = engine.getOrder(id);
+        long price = order.getPriceTicks();
+        return engine.amendOrder(id, (price & 1) == 0 ? price + 1 : price - 1, order.getVolume(), timestamp++);
+    }
+
+    @Benchmark
+    public void cancelAndAdd() {
+        long id = next++ & (ORDERS - 1);
+        TradeMatchingEngine.Order order = engine.getOrder(id);
+        long price = order.getPriceTicks();
+        int volume = order.getVolume();
+        engine.deleteOrder(id);
+        engine.addOrder(id, Side.SELL, (price & 1) == 0 ? price + 1 : price - 1, volume, timestamp++);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Call auction on a crossed book of 1M orders, half buys and half sells spread over the same band of
+// levels, so the crossed range is the whole book. indicativePrice is the clearing price search alone,
+// on level aggregates; orderWalk finds the same price by visiting every order instead, as a baseline;
+// uncross is the search plus executing everything that crosses, on a fresh copy of the book each time.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, batchSize = 1)
+@Measurement(iterations = 5, batchSize = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Xms3g"})
+public class AuctionBenchmark {
+
+    private static final long BASE = 100_000;
+
+    @Param({"1000000"})
+    int bookSize;
+
+    @Param({"100", "10000"})
+    int levels;
+
+    private TradeMatchingEngine engine;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        engine = new TradeMatchingEngine();
+        engine.startAuction();
+        Random random = new Random(7);
+        for (int i = 0; i < bookSize; i++) {
+            engine.addOrder(i, random.nextBoolean() ? Side.BUY : Side.SELL, BASE + random.nextInt(levels), 1 + random.nextInt(100), i);
+        }
+    }
+
+    @Benchmark
+    public long indicativePrice() {
+        return engine.getIndicativePrice();
+    }
+
+    @Benchmark
+    public long orderWalk() {
+        long[] buys = new long[levels];
+        long[] sells = new long[levels];
+        for (TradeMatchingEngine.Order order : engine.getBuyOrders()) {
+            buys[(int) (order.getPriceTicks() - BASE)] += order.getVolume();
+        }
+        for (TradeMatchingEngine.Order order : engine.getSellOrders()) {
+            sells[(int) (order.getPriceTicks() - BASE)] += order.getVolume();
+        }
+        for (int i = levels - 2; i >= 0; i--) {
+            buys[i] += buys[i + 1];
+        }
+        for (int i = 1; i < levels; i++) {
+            sells[i] += sells[i - 1];
+        }
+        long bestPrice = TradeMatchingEngine.NO_TICKS;
+        long bestVolume = 0;
+        long bestImbalance = Long.MAX_VALUE;
+        for (int i = 0; i < levels; i++) {
+            long executed = Math.min(buys[i], sells[i]);
+            long imbalance = Math.abs(buys[i] - sells[i]);
+            if (executed > bestVolume || (executed == bestVolume && imbalance < bestImbalance)) {
+                bestPrice = BASE + i;
+                bestVolume = executed;
+                bestImbalance = imbalance;
+            }
+        }
+        return bestPrice;
+    }
+
+    @Benchmark
+    public long uncross() {
+        return engine.uncross();
+    }
+}
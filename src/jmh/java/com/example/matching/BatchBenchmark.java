@@ -0,0 +1,84 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// applyBatch against the same adds and cancels as one-at-a-time calls, for batch sizes 1 to 4096.
+// The workload is a quoting update: a long-ID ask book of 4,096 orders over 16 levels, each entry
+// either cancelling a quote or putting it back on another of the 16 levels, so a batch hits each
+// level many times and most of its depth updates merge. Events go to a ring drained after every
+// call or batch, as a gateway would, and a DepthPublisher keeps a 10-level top of book for readers:
+// one-at-a-time calls refresh it after every command, a batch once. Scores are per batchSize entries;
+// divide for the per-entry cost.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+    private static final int QUOTES = 4_096;
+    private static final int LEVELS = 16;
+    private static final long BEST = 1_000;
+
+    @Param({"1", "4", "16", "64", "256", "1024", "4096"})
+    int batchSize;
+
+    private TradeMatchingEngine engine;
+    private EventProcessor drain;
+    private OrderBatch batch;
+    private long counter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new TradeMatchingEngine();
+        engine.setEventRingBuffer(new EventRingBuffer(1 << 16));
+        engine.setDepthPublisher(new DepthPublisher(10));
+        drain = new EventProcessor(engine.getEventRingBuffer(), (event, sequence, endOfBatch) -> {
+        }, WaitStrategy.yielding());
+        batch = new OrderBatch(batchSize);
+        for (int i = 0; i < QUOTES; i++) {
+            engine.addOrder(i, Side.SELL, BEST + i % LEVELS, 10, i);
+        }
+        drain.processAvailable();
+    }
+
+    // Even entries cancel quote n, odd entries put it back at another level
+    private long quote(long entry) {
+        return (entry >> 1) & (QUOTES - 1);
+    }
+
+    private long price(long entry) {
+        return BEST + (entry >> 1) * 7 % LEVELS;
+    }
+
+    @Benchmark
+    public int applyBatch() {
+        batch.clear();
+        for (int i = 0; i < batchSize; i++) {
+            long entry = counter++;
+            if ((entry & 1) == 0) {
+                batch.cancel(quote(entry));
+            } else {
+                batch.add(quote(entry), Side.SELL, price(entry), 10, entry);
+            }
+        }
+        engine.applyBatch(batch);
+        return drain.processAvailable();
+    }
+
+    @Benchmark
+    public int oneAtATime() {
+        for (int i = 0; i < batchSize; i++) {
+            long entry = counter++;
+            if ((entry & 1) == 0) {
+                engine.deleteOrder(quote(entry));
+            } else {
+                engine.addOrder(quote(entry), Side.SELL, price(entry), 10, entry);
+            }
+        }
+        return drain.processAvailable();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// deleteOrder against books of increasing size. Each invocation cancels a random resting order and
+// re-adds it at the back of its level, so the book size stays fixed for the whole run.
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CancelBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int bookSize;
+
+    @Param({"1000"})
+    int levels;
+
+    private TradeMatchingEngine engine;
+    private String[] ids;
+    private long[] prices;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new TradeMatchingEngine(0.01);
+        ids = new String[bookSize];
+        prices = new long[bookSize];
+        for (int i = 0; i < bookSize; i++) {
+            ids[i] = "B" + i;
+            prices[i] = 10_000 - (i % levels);
+            engine.addOrder(TradeMatchingEngine.Order.ofTicks(ids[i], "buy", prices[i], 10, sequence++));
+        }
+    }
+
+    @Benchmark
+    public TradeMatchingEngine cancelAndReplace() {
+        int i = random.nextInt(bookSize);
+        engine.deleteOrder(ids[i]);
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks(ids[i], "buy", prices[i], 10, sequence++));
+        return engine;
+    }
+
+    // Same cycle through the pooled entry point, which should report ~0 B/op
+    @Benchmark
+    public TradeMatchingEngine cancelAndReplacePooled() {
+        int i = random.nextInt(bookSize);
+        engine.deleteOrder(ids[i]);
+        engine.addOrder(ids[i], Side.BUY, prices[i], 10, sequence++);
+        return engine;
+    }
+}
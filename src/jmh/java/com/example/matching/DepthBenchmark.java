@@ -0,0 +1,49 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Market depth queries on a static book with a configurable number of price levels
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DepthBenchmark {
+
+    @Param({"10", "1000"})
+    int levels;
+
+    private TradeMatchingEngine engine;
+    private double rangeStart;
+    private double rangeEnd;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new TradeMatchingEngine(0.01);
+        for (int i = 0; i < levels; i++) {
+            for (int j = 0; j < 4; j++) {
+                engine.addOrder(new TradeMatchingEngine.Order("B" + i + "-" + j, "buy", 100.0 - i * 0.01, 10, i * 4L + j));
+            }
+        }
+        // A narrow band of ten levels in the middle of the book
+        rangeStart = 100.0 - (levels / 2 + 10) * 0.01;
+        rangeEnd = 100.0 - (levels / 2) * 0.01;
+    }
+
+    @Benchmark
+    public void marketDepth(Blackhole bh) {
+        for (Map.Entry<Double, Integer> entry : engine.getMarketDepth("buy").entrySet()) {
+            bh.consume(entry.getValue());
+        }
+    }
+
+    @Benchmark
+    public Map<Double, Integer> marketDepthFromRange() {
+        return engine.getMarketDepthFromRange("buy", rangeStart, rangeEnd);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Cost of getting one book change to a subscriber: the incremental feed (publish, feed, poll) against
+// polling and walking the full depth map. The feed should stay flat as the book grows.
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DepthFeedBenchmark {
+
+    @Param({"100", "10000"})
+    int levels;
+
+    private TradeMatchingEngine engine;
+    private EventProcessor processor;
+    private DepthFeed.Subscription subscription;
+    private DepthFeed.Listener listener;
+    private long price;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole bh) {
+        engine = new TradeMatchingEngine();
+        EventRingBuffer ring = new EventRingBuffer(1 << 12);
+        engine.setEventRingBuffer(ring);
+        DepthFeed feed = new DepthFeed();
+        processor = new EventProcessor(ring, feed, WaitStrategy.busySpin());
+        subscription = feed.subscribe(1024);
+        for (int i = 0; i < levels; i++) {
+            engine.addOrder("B" + i, Side.BUY, 1_000_000 - i, 10, i);
+            processor.processAvailable();
+        }
+        listener = (side, priceTicks, volume, sequence) -> bh.consume(volume);
+        subscription.poll(listener);
+    }
+
+    // One order in and out of a level in the middle of the book, then the subscriber catches up
+    @Benchmark
+    public int incrementalFeed() {
+        long ticks = 1_000_000 - levels / 2 - (price++ & 7);
+        engine.addOrder("X", Side.BUY, ticks, 1, 0);
+        engine.deleteOrder("X");
+        processor.processAvailable();
+        return subscription.poll(listener);
+    }
+
+    // The same change followed by a full depth walk, which is what a polling publisher has to do
+    @Benchmark
+    public void pollFullDepth(Blackhole bh) {
+        long ticks = 1_000_000 - levels / 2 - (price++ & 7);
+        engine.addOrder("X", Side.BUY, ticks, 1, 0);
+        engine.deleteOrder("X");
+        processor.processAvailable();
+        for (Map.Entry<Double, Integer> entry : engine.getMarketDepth("buy").entrySet()) {
+            bh.consume(entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Writer overhead of publishing top-N depth through the seqlock, and reader cost with a live writer.
+// writerAddCancel with levels=0 is the engine with no publisher attached, the baseline.
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DepthPublisherBenchmark {
+
+    @Param({"0", "10", "50"})
+    int levels;
+
+    private TradeMatchingEngine engine;
+    private DepthPublisher publisher;
+    private long tick;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new TradeMatchingEngine();
+        publisher = new DepthPublisher(Math.max(1, levels));
+        if (levels > 0) {
+            engine.setDepthPublisher(publisher);
+        }
+        for (int i = 0; i < 100; i++) {
+            engine.addOrder("B" + i, Side.BUY, 1_000 - i, 10, i);
+            engine.addOrder("S" + i, Side.SELL, 1_001 + i, 10, i);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ReaderState {
+        DepthSnapshot last;
+    }
+
+    // Two commands at the touch, each republishing the top of book when a publisher is attached
+    @Benchmark
+    @Group("writerOnly")
+    public void writerAddCancel() {
+        engine.addOrder("X", Side.BUY, 1_000 - (tick++ & 3), 1, 0);
+        engine.deleteOrder("X");
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void writer() {
+        engine.addOrder("X", Side.BUY, 1_000 - (tick++ & 3), 1, 0);
+        engine.deleteOrder("X");
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public DepthSnapshot reader(ReaderState state) {
+        return state.last = publisher.read(state.last);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Smart-order-router style depth queries on a book with `levels` ask levels, one tick apart.
+//  - rangeScan: the old getMarketDepthFromRange, a HashMap filled by walking from the lowest level
+//  - rangeSeek: getMarketDepthRange into a reused DepthRange, 10 levels in the middle of the book
+//  - volumeUpTo / priceToFill: Fenwick-backed cumulative queries, with a trade at the touch between
+//    queries so every call pays for the lazy rebuild as it would in a live book
+//  - volumeUpToDeep: volumeUpTo with the volume change at the worst ask instead, the first ladder
+//    position, which a full rebuild from the change would make O(L log L)
+//  - volumeUpToScan: the same cumulative answer by summing levels, for comparison
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DepthQueryBenchmark {
+
+    private static final long BASE = 1_000_000;
+
+    @Param({"1000", "100000"})
+    int levels;
+
+    private TradeMatchingEngine engine;
+    private final DepthRange range = new DepthRange();
+    private long id = 1L << 40;
+    private long mid;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new TradeMatchingEngine();
+        // Best level last, so every insert lands at the touch
+        for (int i = levels - 1; i >= 0; i--) {
+            engine.addOrder(i, Side.SELL, BASE + i, 100, i);
+        }
+        mid = BASE + levels / 2;
+    }
+
+    // Rests and takes one lot at the best ask, touching its level like live flow would
+    private void touch() {
+        engine.addOrder(id++, Side.SELL, BASE, 1, id);
+        engine.addOrder(id++, Side.BUY, BASE, 1, id);
+    }
+
+    @Benchmark
+    public int rangeScan() {
+        Map<Long, Long> depth = new HashMap<>();
+        OrderBookSide sells = engine.getSellOrders();
+        for (int i = 0; i < sells.getLevelCount(); i++) {
+            PriceLevel level = sells.getLevelAtAscending(i);
+            if (level.price > mid + 9) {
+                break;
+            }
+            if (level.price >= mid) {
+                depth.put(level.price, level.totalVolume);
+            }
+        }
+        return depth.size();
+    }
+
+    @Benchmark
+    public int rangeSeek() {
+        return engine.getMarketDepthRange(Side.SELL, mid, mid + 9, range).size();
+    }
+
+    @Benchmark
+    public long volumeUpTo() {
+        touch();
+        return engine.getVolumeUpTo(Side.SELL, mid);
+    }
+
+    // Rests and cancels one lot at the worst ask: a volume change deep in the book, no level added
+    private void touchDeep() {
+        engine.addOrder(id, Side.SELL, BASE + levels - 1, 1, id);
+        engine.deleteOrder(id++);
+    }
+
+    @Benchmark
+    public long volumeUpToDeep() {
+        touchDeep();
+        return engine.getVolumeUpTo(Side.SELL, mid);
+    }
+
+    @Benchmark
+    public long priceToFill() {
+        touch();
+        return engine.getPriceToFill(Side.SELL, 100L * levels / 2);
+    }
+
+    @Benchmark
+    public long volumeUpToScan() {
+        touch();
+        OrderBookSide sells = engine.getSellOrders();
+        long volume = 0;
+        for (int rank = 0; rank < sells.getLevelCount(); rank++) {
+            PriceLevel level = sells.getLevelAt(rank);
+            if (level.price > mid) {
+                break;
+            }
+            volume += level.totalVolume;
+        }
+        return volume;
+    }
+
+    // touch() on its own, to subtract from the three rows above
+    @Benchmark
+    public long touchOnly() {
+        touch();
+        return engine.getSellOrders().size();
+    }
+
+    // touchDeep() on its own, to subtract from volumeUpToDeep
+    @Benchmark
+    public long touchDeepOnly() {
+        touchDeep();
+        return engine.getSellOrders().size();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// End-to-end Exchange throughput from several gateway threads as the shard count grows.
+// Each op is an add followed by its cancel on a random symbol; producers wait for every 256th
+// cancel so the measured rate is what the shards actually apply, not just queueing.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ExchangeBenchmark {
+
+    @Param({"1", "2", "4"})
+    int shards;
+
+    @Param({"1000"})
+    int symbols;
+
+    private Exchange exchange;
+    private String[] symbolNames;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        exchange = new Exchange(shards, 0.01, 1 << 14, 256).start();
+        symbolNames = new String[symbols];
+        for (int i = 0; i < symbols; i++) {
+            symbolNames[i] = "SYM" + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        exchange.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Producer {
+        long count;
+        String prefix = Thread.currentThread().getName() + "-";
+    }
+
+    @Benchmark
+    public CompletableFuture<Long> addAndCancel(Producer producer) {
+        String symbol = symbolNames[ThreadLocalRandom.current().nextInt(symbols)];
+        String id = producer.prefix + (producer.count & 1023);
+        exchange.submitAdd(new TradeMatchingEngine.Order(symbol, id, "buy", 99.0, 1, producer.count));
+        CompletableFuture<Long> cancel = exchange.submitCancel(symbol, id);
+        if ((++producer.count & 255) == 0) {
+            cancel.join();
+        }
+        return cancel;
+    }
+}
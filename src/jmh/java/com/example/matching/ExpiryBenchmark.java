@@ -0,0 +1,53 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// End of day on a book of 500k day orders spread over 1000 levels a side, all expiring at the close.
+// endOfDay is the engine's own bulk pass, advanceTime to the close; sweeper is the external approach
+// it replaces, one deleteOrder per order. Both publish to a fresh event ring large enough for every event.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, batchSize = 1)
+@Measurement(iterations = 5, batchSize = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Xms3g"})
+public class ExpiryBenchmark {
+
+    private static final long CLOSE = 8 * 3_600_000_000_000L;
+
+    @Param({"500000"})
+    int bookSize;
+
+    private TradeMatchingEngine engine;
+    private EventRingBuffer ring;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        engine = new TradeMatchingEngine();
+        ring = new EventRingBuffer(1 << 21);
+        Random random = new Random(11);
+        for (int i = 0; i < bookSize; i++) {
+            Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+            long price = side == Side.BUY ? 9_000 + random.nextInt(1_000) : 10_000 + random.nextInt(1_000);
+            engine.addOrder(TradeMatchingEngine.Order.ofTicks(i, side, price, 1 + random.nextInt(100), i).withExpiry(CLOSE));
+        }
+        engine.advanceTime(CLOSE - 1);
+        engine.setEventRingBuffer(ring);
+    }
+
+    @Benchmark
+    public int endOfDay() {
+        return engine.advanceTime(CLOSE);
+    }
+
+    @Benchmark
+    public int sweeper() {
+        for (int i = 0; i < bookSize; i++) {
+            engine.deleteOrder((long) i);
+        }
+        return engine.getBuyOrders().size() + engine.getSellOrders().size();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of a fill-or-kill that cannot fill. The book holds 10 ask levels; the FOK's limit reaches all
+// of them and asks for one more than they hold, so it is killed after summing 10 level aggregates.
+// The score should stay flat as ordersPerLevel grows: no resting order is visited or rolled back.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FillOrKillBenchmark {
+
+    private static final int LEVELS = 10;
+
+    @Param({"1", "100", "10000"})
+    int ordersPerLevel;
+
+    private TradeMatchingEngine engine;
+    private int bookVolume;
+    private long id = 1L << 40;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new TradeMatchingEngine();
+        long ts = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int i = 0; i < ordersPerLevel; i++) {
+                engine.addOrder(ts, Side.SELL, 1_000 + level, 10, ts++);
+            }
+        }
+        bookVolume = LEVELS * ordersPerLevel * 10;
+    }
+
+    @Benchmark
+    public int rejectedFillOrKill() {
+        engine.addOrder(id++, Side.BUY, 1_000 + LEVELS, bookVolume + 1, id, OrderType.FOK);
+        return engine.getSellOrders().size();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Journal hot-path cost per append, and replay rate in commands per second
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class JournalBenchmark {
+
+    private static final int REPLAY_COMMANDS = 1_000_000;
+
+    private Path appendDirectory;
+    private Journal journal;
+    private Command add;
+    private Path replayDirectory;
+
+    // A fresh journal per iteration keeps the segment files of a long run off the disk
+    @Setup(Level.Iteration)
+    public void openJournal() throws IOException {
+        appendDirectory = Files.createTempDirectory("journal-append");
+        journal = new Journal(appendDirectory, Journal.DEFAULT_SEGMENT_SIZE, SyncPolicy.NONE, 0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeJournal() throws IOException {
+        journal.close();
+        delete(appendDirectory);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        add = Command.add(TradeMatchingEngine.Order.ofTicks("order-123456", "buy", 10_000, 10, 1));
+
+        // A day's worth of mixed flow: resting adds over 100 levels and cancels of every other order
+        replayDirectory = Files.createTempDirectory("journal-replay");
+        try (Journal writer = new Journal(replayDirectory)) {
+            long sequence = 0;
+            for (int i = 0; sequence < REPLAY_COMMANDS; i++) {
+                Command command = Command.add(TradeMatchingEngine.Order.ofTicks("O" + i, i % 2 == 0 ? "buy" : "sell",
+                        i % 2 == 0 ? 10_000 - i % 100 : 10_001 + i % 100, 10, i));
+                command.sequence = ++sequence;
+                writer.append(command);
+                if (i % 2 == 1 && sequence < REPLAY_COMMANDS) {
+                    Command cancel = Command.cancel("O" + (i - 1));
+                    cancel.sequence = ++sequence;
+                    writer.append(cancel);
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        delete(replayDirectory);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Journal append() {
+        add.sequence++;
+        journal.append(add);
+        journal.flush();
+        return journal;
+    }
+
+    // Score is per command: ops/s here is replayed commands per second
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(REPLAY_COMMANDS)
+    public TradeMatchingEngine replay() throws IOException {
+        TradeMatchingEngine engine = new TradeMatchingEngine(0.01);
+        Journal.replay(replayDirectory, engine);
+        return engine;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Mass cancel against looping over deleteOrder, on a fresh long-ID book of 10,000 sells over 200 levels
+// built before every invocation, with events published to a ring that the setup drains:
+//  - owner: the 1,000 orders of one of 10 owners, spread over every level
+//  - range: the 20 best levels, 1,000 orders
+//  - book: all of it
+// Each cancelAll row does the same work as the deleteLoop row below it in one pass, with one DEPTH
+// event per level instead of one per order.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MassCancelBenchmark {
+
+    private static final int ORDERS = 10_000;
+    private static final int LEVELS = 200;
+    private static final int OWNERS = 10;
+    private static final long BEST = 1_000;
+    private static final int RANGE_LEVELS = 20;
+
+    private TradeMatchingEngine engine;
+    private EventProcessor drain;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        engine = new TradeMatchingEngine();
+        engine.setEventRingBuffer(new EventRingBuffer(1 << 16));
+        drain = new EventProcessor(engine.getEventRingBuffer(), (event, sequence, endOfBatch) -> {
+        }, WaitStrategy.yielding());
+    }
+
+    @Setup(Level.Invocation)
+    public void fill() {
+        drain.processAvailable();
+        engine.cancelAll();
+        for (int i = 0; i < ORDERS; i++) {
+            engine.addOrder(i, Side.SELL, BEST + i % LEVELS, 10, i, OrderType.LIMIT, 1 + i % OWNERS);
+        }
+        drain.processAvailable();
+    }
+
+    @Benchmark
+    public int cancelAllOwner() {
+        return engine.cancelAll(1);
+    }
+
+    @Benchmark
+    public int deleteLoopOwner() {
+        int cancelled = 0;
+        for (int i = 0; i < ORDERS; i += OWNERS) {
+            engine.deleteOrder(i);
+            cancelled++;
+        }
+        return cancelled;
+    }
+
+    @Benchmark
+    public int cancelAllRange() {
+        return engine.cancelAll(Side.SELL, BEST, BEST + RANGE_LEVELS - 1);
+    }
+
+    @Benchmark
+    public int deleteLoopRange() {
+        int cancelled = 0;
+        for (int i = 0; i < ORDERS; i++) {
+            if (i % LEVELS < RANGE_LEVELS) {
+                engine.deleteOrder(i);
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    @Benchmark
+    public int cancelAllBook() {
+        return engine.cancelAll();
+    }
+
+    @Benchmark
+    public int deleteLoopBook() {
+        int cancelled = 0;
+        for (int i = 0; i < ORDERS; i++) {
+            engine.deleteOrder(i);
+            cancelled++;
+        }
+        return cancelled;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Recording overhead of EngineMetrics. Each invocation is four operations on a long-ID book: rest
+// two asks, one buy sweeping both levels, and a cancel that misses. Compare the
+// sampleInterval=0 (no metrics attached) row with the others and divide by four for the per-operation cost.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    @Param({"0", "1", "16", "64"})
+    int sampleInterval;
+
+    private TradeMatchingEngine engine;
+    private final Histogram histogram = new Histogram();
+    private long id;
+    private long value;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new TradeMatchingEngine();
+        if (sampleInterval > 0) {
+            engine.setMetrics(new EngineMetrics(sampleInterval));
+        }
+        for (int i = 0; i < 1_000; i++) {
+            engine.addOrder(1L << 40 | i, Side.BUY, 900 - i % 50, 10, i);
+        }
+    }
+
+    @Benchmark
+    public void fourOperations() {
+        engine.addOrder(id++, Side.SELL, 1_000, 5, id);
+        engine.addOrder(id++, Side.SELL, 1_001, 5, id);
+        engine.addOrder(id++, Side.BUY, 1_001, 10, id);
+        engine.deleteOrder(-1L);
+    }
+
+    // The histogram on its own
+    @Benchmark
+    public void histogramRecord() {
+        histogram.record((value += 37) & 0xFFFFF);
+    }
+}
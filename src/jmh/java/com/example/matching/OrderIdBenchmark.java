@@ -0,0 +1,81 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+// Cancel + re-add against a large resting book, keyed by String ids (OrderIndex) or by long ids
+// (LongOrderIndex). Setup also prints retained heap per resting order, measured after a full GC;
+// in string mode that includes the id String and the benchmark's reference to it.
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Xms3g"})
+public class OrderIdBenchmark {
+
+    @Param({"string", "long"})
+    String idMode;
+
+    @Param({"1000000", "10000000"})
+    int bookSize;
+
+    private TradeMatchingEngine engine;
+    private String[] ids;
+    private int next;
+    private long timestamp;
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long priceOf(int i) {
+        return 1_000_000 - (i % 10_000);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        long before = usedHeap();
+        engine = new TradeMatchingEngine();
+        if (idMode.equals("string")) {
+            ids = new String[bookSize];
+            for (int i = 0; i < bookSize; i++) {
+                ids[i] = "O" + i;
+                engine.addOrder(ids[i], Side.BUY, priceOf(i), 10, i);
+            }
+        } else {
+            for (int i = 0; i < bookSize; i++) {
+                engine.addOrder((long) i, Side.BUY, priceOf(i), 10, i);
+            }
+        }
+        timestamp = bookSize;
+        long after = usedHeap();
+        System.out.printf("%n%s ids, %,d resting orders: %.1f bytes per order (%,d MB retained)%n",
+                idMode, bookSize, (after - before) / (double) bookSize, (after - before) >> 20);
+    }
+
+    // Spread over the whole book so the index lookups miss cache the way a real cancel flow does
+    private int nextIndex() {
+        next = (next + 7_919) % bookSize;
+        return next;
+    }
+
+    // Re-added at the back of its level, as a fresh order would be
+    @Benchmark
+    public void cancelAndReAdd() {
+        int i = nextIndex();
+        if (ids != null) {
+            engine.deleteOrder(ids[i]);
+            engine.addOrder(ids[i], Side.BUY, priceOf(i), 10, timestamp++);
+        } else {
+            engine.deleteOrder((long) i);
+            engine.addOrder((long) i, Side.BUY, priceOf(i), 10, timestamp++);
+        }
+    }
+}
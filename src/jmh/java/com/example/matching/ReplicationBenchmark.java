@@ -0,0 +1,68 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Cost of replicating the command stream to one loopback Standby, with no replication as the
+// baseline. pipelined submits an add and its cancel and waits for every 256th cancel, so batches fill
+// and a SYNC round trip is shared by a whole batch; roundTrip waits for every command, the latency a
+// lone client sees, with one round trip per command in SYNC mode.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplicationBenchmark {
+
+    @Param({"none", "async", "sync"})
+    String mode;
+
+    private Standby standby;
+    private Replicator replicator;
+    private Sequencer sequencer;
+    private long count;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        sequencer = new Sequencer(new TradeMatchingEngine(), 1 << 14, 256);
+        if (!mode.equals("none")) {
+            standby = new Standby(new TradeMatchingEngine(), new InetSocketAddress("127.0.0.1", 0)).start();
+            replicator = new Replicator(mode.equals("sync") ? ReplicationMode.SYNC : ReplicationMode.ASYNC,
+                    List.of(new InetSocketAddress("127.0.0.1", standby.getPort())));
+            sequencer.withReplicator(replicator);
+        }
+        sequencer.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        sequencer.close();
+        if (replicator != null) {
+            replicator.close();
+            standby.close();
+        }
+    }
+
+    @Benchmark
+    public CompletableFuture<Long> pipelined() {
+        long id = count & 1023;
+        sequencer.submit(Command.add(TradeMatchingEngine.Order.ofTicks(id, Side.BUY, 9_900, 1, count)));
+        CompletableFuture<Long> cancel = sequencer.submitCancel(id);
+        if ((++count & 255) == 0) {
+            cancel.join();
+        }
+        return cancel;
+    }
+
+    @Benchmark
+    public long roundTrip() {
+        long id = count & 1023;
+        sequencer.submit(Command.add(TradeMatchingEngine.Order.ofTicks(id, Side.BUY, 9_900, 1, count)));
+        return sequencer.submitCancel(id).join() + count++;
+    }
+}
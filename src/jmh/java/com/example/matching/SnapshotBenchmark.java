@@ -0,0 +1,60 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Restart cost for large books: the matching-thread pause to capture a snapshot, the background
+// write, and the restart itself (read + rebuild). Single-shot, since each op is one full pass.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class SnapshotBenchmark {
+
+    @Param({"1000000"})
+    int orders;
+
+    private TradeMatchingEngine engine;
+    private BookSnapshot snapshot;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        engine = new TradeMatchingEngine(0.01);
+        for (int i = 0; i < orders; i++) {
+            boolean buy = i % 2 == 0;
+            engine.addOrder(TradeMatchingEngine.Order.ofTicks("O" + i, buy ? "buy" : "sell", buy ? 10_000 - i % 1000 : 10_001 + i % 1000, 10, i));
+        }
+        snapshot = BookSnapshot.capture(engine, orders);
+        file = Files.createTempFile("book", ".snap");
+        snapshot.write(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    // The only part that pauses matching
+    @Benchmark
+    public BookSnapshot capture() {
+        return BookSnapshot.capture(engine, orders);
+    }
+
+    @Benchmark
+    public BookSnapshot write() throws IOException {
+        snapshot.write(file);
+        return snapshot;
+    }
+
+    @Benchmark
+    public TradeMatchingEngine restart() throws IOException {
+        return BookSnapshot.read(file).restore();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of trading with many pending stops that do not trigger, plus a short cascade. Each tradeRound
+// rests an ask and lifts it; the pending stops sit on both sides far from the trade price, so the
+// score should stay flat as pendingStops grows. cascade adds 8 sell stops under a bid ladder and
+// knocks the first one over, measuring trigger, match and re-arm together.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StopTriggerBenchmark {
+
+    private static final int CASCADE = 8;
+
+    @Param({"0", "1000", "100000"})
+    int pendingStops;
+
+    private TradeMatchingEngine engine;
+    private long id = 1L << 40;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new TradeMatchingEngine();
+        for (int i = 0; i < pendingStops / 2; i++) {
+            engine.addOrder(TradeMatchingEngine.Order.ofTicks(i, Side.BUY, 0, 1, i).withStop(OrderType.STOP, 20_000 + i % 1_000));
+            engine.addOrder(TradeMatchingEngine.Order.ofTicks(pendingStops + i, Side.SELL, 0, 1, i)
+                    .withStop(OrderType.STOP, 1_000 - i % 1_000));
+        }
+    }
+
+    @Benchmark
+    public long tradeRound() {
+        engine.addOrder(id++, Side.SELL, 10_000, 1, id);
+        engine.addOrder(id++, Side.BUY, 10_000, 1, id);
+        return engine.getLastTradeTicks();
+    }
+
+    @Benchmark
+    public long cascade() {
+        for (int i = 0; i < CASCADE; i++) {
+            engine.addOrder(id++, Side.BUY, 5_000 - i, 1, id);
+            engine.addOrder(TradeMatchingEngine.Order.ofTicks(id++, Side.SELL, 0, 1, id).withStop(OrderType.STOP, 5_000 - i));
+        }
+        engine.addOrder(id++, Side.SELL, 5_000, 1, id);
+        return engine.getLastTradeTicks();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.matching;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Aggressive order sweeping N price levels. Each invocation first re-posts one resting order per
+// level, so the score includes N passive adds; compare against AddOrderBenchmark to separate them.
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SweepBenchmark {
+
+    @Param({"1", "10", "100"})
+    int levels;
+
+    private TradeMatchingEngine engine;
+    private String[] askIds;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new TradeMatchingEngine(0.01);
+        askIds = new String[levels];
+        for (int i = 0; i < levels; i++) {
+            askIds[i] = "S" + i;
+        }
+    }
+
+    @Benchmark
+    public TradeMatchingEngine sweepLevels() {
+        for (int i = 0; i < levels; i++) {
+            engine.addOrder(TradeMatchingEngine.Order.ofTicks(askIds[i], "sell", 10_000 + i, 10, sequence++));
+        }
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks("aggressor", "buy", 10_000 + levels, 10 * levels, sequence++));
+        return engine;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.matching;
+
+// A reusable, mutable event slot in the EventRingBuffer. The engine overwrites the fields in place,
+// so consumers must copy anything they want to keep before the slot is released.
+public class BookEvent {
+
+    public enum Type {
+        FILL,      // orderId traded against the resting counterpartyOrderId
+        ACCEPTED,  // orderId now rests in the book with volume left, or waits in a stop book for its trigger
+        CANCELLED, // orderId was removed by deleteOrder, or an IOC/market remainder or killed FOK, with volume left
+        AMENDED,   // orderId now has priceTicks and volume, set by amendOrder before any re-matching
+        TRIGGERED, // orderId's stop price was reached; it now goes through matching as a market or limit order
+        EXPIRED,   // orderId reached its expiry time and left the book, or arrived past it, with volume left
+        DEPTH      // aggregate volume at (side, priceTicks) changed to volume
+    }
+
+    Type type;
+    long sequence; // engine event sequence, gaps mean events were dropped on a full ring
+    String orderId;
+    String counterpartyOrderId;
+    long id;             // long-ID mode order id, meaningful when orderId is null
+    long counterpartyId;
+    Side side;
+    long priceTicks;
+    long volume;
+    int remainingVolume;
+    int counterpartyRemainingVolume;
+    long timestamp;
+
+    void clear() {
+        orderId = null;
+        counterpartyOrderId = null;
+        id = 0;
+        counterpartyId = 0;
+        volume = 0;
+        remainingVolume = 0;
+        counterpartyRemainingVolume = 0;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    // Resting order on the other side of a FILL
+    public String getCounterpartyOrderId() {
+        return counterpartyOrderId;
+    }
+
+    // Long-ID mode ids, for orders added without a String id
+    public long getId() {
+        return id;
+    }
+
+    public long getCounterpartyId() {
+        return counterpartyId;
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    public long getPriceTicks() {
+        return priceTicks;
+    }
+
+    // Fill quantity for FILL, new aggregate level volume for DEPTH, open volume for ACCEPTED/CANCELLED/EXPIRED
+    public long getVolume() {
+        return volume;
+    }
+
+    // Aggressor volume left after a FILL
+    public int getRemainingVolume() {
+        return remainingVolume;
+    }
+
+    // Resting order volume left after a FILL, 0 means it left the book
+    public int getCounterpartyRemainingVolume() {
+        return counterpartyRemainingVolume;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return type + "#" + sequence + " " + idString(orderId, id)
+                + (type == Type.FILL ? "/" + idString(counterpartyOrderId, counterpartyId) : "")
+                + " " + side + " " + volume + "@" + priceTicks;
+    }
+
+    private String idString(String stringId, long longId) {
+        return stringId != null || type == Type.DEPTH ? String.valueOf(stringId) : Long.toString(longId);
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.matching;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Point-in-time copy of a book: every resting order in priority order, the pending stops in trigger
+// order, the aggregate depth of every level, the last trade price, engine time and the last command
+// sequence applied. Capturing is one walk over the book into flat arrays on the matching thread;
+// encoding and the FileChannel write can then run on any other thread.
+//
+// File layout: magic, version, sequence, tick size, last trade price, call phase flag, engine time,
+// order count, sells then buys in priority order then buy and sell stops (each with its owner and
+// expiry time), then level count and (side, price, volume) for each level. Strings are ISO-8859-1.
+public class BookSnapshot {
+
+    private static final int MAGIC = 0x4D45534E; // "MESN"
+    private static final int VERSION = 6;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    final long sequence;
+    final double tickSize;
+    final long lastTradeTicks;
+    boolean auction; // captured during a call phase, when the book may be crossed
+    long time; // engine time, which every captured expiry is still ahead of
+    final int orderCount;
+    final String[] symbols;
+    final String[] orderIds;
+    final long[] ids;
+    final byte[] sides;
+    final long[] priceTicks;
+    final int[] volumes;
+    final long[] timestamps;
+    final byte[] orderTypes;
+    final long[] stopTicks;
+    final long[] owners;
+    final long[] expiryTimes;
+    final int levelCount;
+    final byte[] levelSides;
+    final long[] levelPrices;
+    final long[] levelVolumes;
+
+    private BookSnapshot(long sequence, double tickSize, long lastTradeTicks, int orderCount, int levelCount) {
+        this(sequence, tickSize, lastTradeTicks, orderCount, new String[orderCount], new String[orderCount], new long[orderCount],
+                new byte[orderCount], new long[orderCount], new int[orderCount], new long[orderCount], new byte[orderCount],
+                new long[orderCount], new long[orderCount], new long[orderCount], levelCount);
+    }
+
+    private BookSnapshot(long sequence, double tickSize, long lastTradeTicks, int orderCount, String[] symbols, String[] orderIds,
+                         long[] ids, byte[] sides, long[] priceTicks, int[] volumes, long[] timestamps, byte[] orderTypes,
+                         long[] stopTicks, long[] owners, long[] expiryTimes, int levelCount) {
+        this.sequence = sequence;
+        this.tickSize = tickSize;
+        this.lastTradeTicks = lastTradeTicks;
+        this.orderCount = orderCount;
+        this.symbols = symbols;
+        this.orderIds = orderIds;
+        this.ids = ids;
+        this.sides = sides;
+        this.priceTicks = priceTicks;
+        this.volumes = volumes;
+        this.timestamps = timestamps;
+        this.orderTypes = orderTypes;
+        this.stopTicks = stopTicks;
+        this.owners = owners;
+        this.expiryTimes = expiryTimes;
+        this.levelCount = levelCount;
+        this.levelSides = new byte[levelCount];
+        this.levelPrices = new long[levelCount];
+        this.levelVolumes = new long[levelCount];
+    }
+
+    /*
+     * Time complexity: O(n + L), one pass over the resting orders, pending stops and levels
+     * Must run on the thread that owns the engine; the result is immutable and safe to hand off.
+     */
+    public static BookSnapshot capture(TradeMatchingEngine engine, long sequence) {
+        OrderBookSide sells = engine.getSellOrders();
+        OrderBookSide buys = engine.getBuyOrders();
+        OrderBookSide buyStops = engine.getBuyStops();
+        OrderBookSide sellStops = engine.getSellStops();
+        BookSnapshot snapshot = new BookSnapshot(sequence, engine.getPriceScale().getTickSize(), engine.getLastTradeTicks(),
+                sells.size() + buys.size() + buyStops.size() + sellStops.size(), sells.getLevelCount() + buys.getLevelCount());
+        snapshot.auction = engine.isInAuction();
+        snapshot.time = engine.getTime();
+        int i = 0;
+        int level = 0;
+        for (OrderBookSide side : new OrderBookSide[]{sells, buys}) {
+            byte sideCode = side.isBuySide() ? (byte) 0 : (byte) 1;
+            for (int rank = 0; rank < side.getLevelCount(); rank++) {
+                PriceLevel priceLevel = side.getLevelAt(rank);
+                snapshot.levelSides[level] = sideCode;
+                snapshot.levelPrices[level] = priceLevel.price;
+                snapshot.levelVolumes[level++] = priceLevel.totalVolume;
+                for (TradeMatchingEngine.Order order = priceLevel.head; order != null; order = order.next) {
+                    snapshot.captureOrder(i++, order);
+                }
+            }
+        }
+        for (OrderBookSide stops : new OrderBookSide[]{buyStops, sellStops}) {
+            for (TradeMatchingEngine.Order order : stops) {
+                snapshot.captureOrder(i++, order);
+            }
+        }
+        return snapshot;
+    }
+
+    private void captureOrder(int i, TradeMatchingEngine.Order order) {
+        symbols[i] = order.symbol;
+        orderIds[i] = order.orderId;
+        ids[i] = order.id;
+        sides[i] = order.side == Side.BUY ? (byte) 0 : (byte) 1;
+        priceTicks[i] = order.priceTicks;
+        volumes[i] = order.volume;
+        timestamps[i] = order.timestamp;
+        orderTypes[i] = (byte) order.orderType.ordinal();
+        stopTicks[i] = order.stopTicks;
+        owners[i] = order.owner;
+        expiryTimes[i] = order.expiryTime;
+    }
+
+    // Writes to a temporary file and renames it into place, so a crash never leaves a torn snapshot
+    public void write(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(sequence).putDouble(tickSize).putLong(lastTradeTicks).put(auction ? (byte) 1 : (byte) 0)
+                    .putLong(time).putInt(orderCount);
+            for (int i = 0; i < orderCount; i++) {
+                ensureRemaining(channel, buffer, 1 + 8 + 4 + 8 + 8 + 1 + 8 + 8 + 8 + 2 * (2 + 0xFFFF));
+                buffer.put(sides[i]).putLong(priceTicks[i]).putInt(volumes[i]).putLong(timestamps[i]).putLong(ids[i])
+                        .put(orderTypes[i]).putLong(stopTicks[i]).putLong(owners[i]).putLong(expiryTimes[i]);
+                CommandCodec.putString(symbols[i], buffer);
+                CommandCodec.putString(orderIds[i], buffer);
+            }
+            ensureRemaining(channel, buffer, 4);
+            buffer.putInt(levelCount);
+            for (int i = 0; i < levelCount; i++) {
+                ensureRemaining(channel, buffer, 1 + 8 + 8);
+                buffer.put(levelSides[i]).putLong(levelPrices[i]).putLong(levelVolumes[i]);
+            }
+            flush(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public static BookSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.limit(0);
+            fill(channel, buffer, 4 + 4 + 8 + 8 + 8 + 1 + 8 + 4);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a book snapshot: " + file);
+            }
+            long sequence = buffer.getLong();
+            double tickSize = buffer.getDouble();
+            long lastTradeTicks = buffer.getLong();
+            boolean auction = buffer.get() != 0;
+            long time = buffer.getLong();
+            int orderCount = buffer.getInt();
+            // Level count comes after the orders, arrays for it are sized once we get there
+            BookSnapshot orders = new BookSnapshot(sequence, tickSize, lastTradeTicks, orderCount, 0);
+            for (int i = 0; i < orderCount; i++) {
+                fill(channel, buffer, 1 + 8 + 4 + 8 + 8 + 1 + 8 + 8 + 8 + 2);
+                orders.sides[i] = buffer.get();
+                orders.priceTicks[i] = buffer.getLong();
+                orders.volumes[i] = buffer.getInt();
+                orders.timestamps[i] = buffer.getLong();
+                orders.ids[i] = buffer.getLong();
+                orders.orderTypes[i] = buffer.get();
+                orders.stopTicks[i] = buffer.getLong();
+                orders.owners[i] = buffer.getLong();
+                orders.expiryTimes[i] = buffer.getLong();
+                orders.symbols[i] = getString(channel, buffer);
+                fill(channel, buffer, 2);
+                orders.orderIds[i] = getString(channel, buffer);
+            }
+            fill(channel, buffer, 4);
+            int levelCount = buffer.getInt();
+            BookSnapshot snapshot = new BookSnapshot(sequence, tickSize, lastTradeTicks, orderCount, orders.symbols, orders.orderIds,
+                    orders.ids, orders.sides, orders.priceTicks, orders.volumes, orders.timestamps, orders.orderTypes,
+                    orders.stopTicks, orders.owners, orders.expiryTimes, levelCount);
+            snapshot.auction = auction;
+            snapshot.time = time;
+            for (int i = 0; i < levelCount; i++) {
+                fill(channel, buffer, 1 + 8 + 8);
+                snapshot.levelSides[i] = buffer.get();
+                snapshot.levelPrices[i] = buffer.getLong();
+                snapshot.levelVolumes[i] = buffer.getLong();
+            }
+            return snapshot;
+        }
+    }
+
+    // Makes sure at least bytes are buffered, reading more from the channel if needed
+    private static void fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Truncated book snapshot");
+            }
+        }
+        buffer.flip();
+    }
+
+    // Expects the length prefix to be buffered already
+    private static String getString(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        fill(channel, buffer, length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /*
+     * Rebuilds the book by resting every order again in priority order; nothing crosses because the
+     * captured book was not crossed, or is restored in its call phase, and no stop triggers because
+     * the last trade price is restored first and had not reached any of them. The recorded depth is
+     * then checked against the rebuilt levels.
+     * Time complexity: O(n) appends plus O(L log L) level creation
+     */
+    public TradeMatchingEngine restore() {
+        TradeMatchingEngine engine = new TradeMatchingEngine(tickSize);
+        engine.setLastTradeTicks(lastTradeTicks);
+        engine.advanceTime(time);
+        if (auction) {
+            engine.startAuction();
+        }
+        for (int i = 0; i < orderCount; i++) {
+            TradeMatchingEngine.Order order = new TradeMatchingEngine.Order(orderIds[i], sides[i] == 0 ? Side.BUY : Side.SELL,
+                    Double.NaN, volumes[i], timestamps[i]);
+            order.id = ids[i];
+            order.priceTicks = priceTicks[i];
+            order.symbol = symbols[i];
+            order.orderType = OrderType.of(orderTypes[i]);
+            order.stopTicks = stopTicks[i];
+            order.owner = owners[i];
+            order.expiryTime = expiryTimes[i];
+            engine.addOrder(order);
+        }
+        for (int i = 0; i < levelCount; i++) {
+            OrderBookSide side = levelSides[i] == 0 ? engine.getBuyOrders() : engine.getSellOrders();
+            PriceLevel level = side.getLevel(levelPrices[i]);
+            if (level == null || level.totalVolume != levelVolumes[i]) {
+                throw new IllegalStateException("Snapshot depth does not match its orders at price " + levelPrices[i]);
+            }
+        }
+        return engine;
+    }
+
+    // Restart path: load the snapshot, then replay only the journaled commands after it, skipping
+    // those the engine rejected live as Journal.replay does
+    public static TradeMatchingEngine recover(Path snapshotFile, Path journalDirectory) throws IOException {
+        BookSnapshot snapshot = read(snapshotFile);
+        TradeMatchingEngine engine = snapshot.restore();
+        Journal.replay(journalDirectory, snapshot.sequence, engine);
+        return engine;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public boolean isInAuction() {
+        return auction;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public int getLevelCount() {
+        return levelCount;
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.matching;
+
+import java.util.concurrent.CompletableFuture;
+
+// An order-entry command queued for the single matching thread. The completion resolves with the
+// global sequence number the sequencer assigned once the command has been applied to the book.
+public class Command {
+
+    public enum Type {
+        ADD,
+        CANCEL,
+        AMEND,
+        MASS_CANCEL,
+        START_AUCTION,
+        UNCROSS,
+        ADVANCE_TIME
+    }
+
+    final Type type;
+    final TradeMatchingEngine.Order order; // ADD only
+    final String symbol;
+    final String orderId;
+    final long id; // long-ID mode, used when orderId is null
+    // AMEND: the new price, volume and timestamp
+    long priceTicks = TradeMatchingEngine.NO_TICKS;
+    int volume;
+    long timestamp;
+    // MASS_CANCEL: by owner, or by side (null for the whole book) within fromTicks..toTicks
+    long owner = TradeMatchingEngine.NO_OWNER;
+    Side side;
+    long fromTicks;
+    long toTicks;
+    // ADVANCE_TIME: the new engine time
+    long time;
+    long sequence;
+    final CompletableFuture<Long> completion = new CompletableFuture<>();
+
+    private Command(Type type, TradeMatchingEngine.Order order, String symbol, String orderId, long id) {
+        this.type = type;
+        this.order = order;
+        this.symbol = symbol;
+        this.orderId = orderId;
+        this.id = id;
+    }
+
+    public static Command add(TradeMatchingEngine.Order order) {
+        return new Command(Type.ADD, order, order.symbol, order.orderId, order.id);
+    }
+
+    public static Command cancel(String orderId) {
+        return new Command(Type.CANCEL, null, null, orderId, 0);
+    }
+
+    public static Command cancel(String symbol, String orderId) {
+        return new Command(Type.CANCEL, null, symbol, orderId, 0);
+    }
+
+    public static Command cancel(long id) {
+        return new Command(Type.CANCEL, null, null, null, id);
+    }
+
+    public static Command cancel(String symbol, long id) {
+        return new Command(Type.CANCEL, null, symbol, null, id);
+    }
+
+    public static Command amend(String symbol, String orderId, long priceTicks, int volume, long timestamp) {
+        return new Command(Type.AMEND, null, symbol, orderId, 0).amendment(priceTicks, volume, timestamp);
+    }
+
+    public static Command amend(String symbol, long id, long priceTicks, int volume, long timestamp) {
+        return new Command(Type.AMEND, null, symbol, null, id).amendment(priceTicks, volume, timestamp);
+    }
+
+    private Command amendment(long priceTicks, int volume, long timestamp) {
+        this.priceTicks = priceTicks;
+        this.volume = volume;
+        this.timestamp = timestamp;
+        return this;
+    }
+
+    public static Command cancelAll(String symbol, long owner) {
+        if (owner == TradeMatchingEngine.NO_OWNER) {
+            throw new IllegalArgumentException("cancelAll needs an owner, use cancelAll(symbol) for the whole book");
+        }
+        Command command = new Command(Type.MASS_CANCEL, null, symbol, null, 0);
+        command.owner = owner;
+        return command;
+    }
+
+    public static Command cancelAll(String symbol, Side side, long fromTicks, long toTicks) {
+        Command command = new Command(Type.MASS_CANCEL, null, symbol, null, 0);
+        command.side = side;
+        command.fromTicks = fromTicks;
+        command.toTicks = toTicks;
+        return command;
+    }
+
+    public static Command cancelAll(String symbol) {
+        return new Command(Type.MASS_CANCEL, null, symbol, null, 0);
+    }
+
+    public static Command startAuction(String symbol) {
+        return new Command(Type.START_AUCTION, null, symbol, null, 0);
+    }
+
+    public static Command uncross(String symbol) {
+        return new Command(Type.UNCROSS, null, symbol, null, 0);
+    }
+
+    public static Command advanceTime(String symbol, long time) {
+        Command command = new Command(Type.ADVANCE_TIME, null, symbol, null, 0);
+        command.time = time;
+        return command;
+    }
+
+    // Applies the command to the engine; only ever called on the matching thread
+    void applyTo(TradeMatchingEngine engine) {
+        switch (type) {
+            case ADD -> engine.addOrder(order);
+            case CANCEL -> {
+                if (orderId != null) {
+                    engine.deleteOrder(orderId);
+                } else {
+                    engine.deleteOrder(id);
+                }
+            }
+            case AMEND -> {
+                if (orderId != null) {
+                    engine.amendOrder(orderId, priceTicks, volume, timestamp);
+                } else {
+                    engine.amendOrder(id, priceTicks, volume, timestamp);
+                }
+            }
+            case MASS_CANCEL -> {
+                if (owner != TradeMatchingEngine.NO_OWNER) {
+                    engine.cancelAll(owner);
+                } else if (side != null) {
+                    engine.cancelAll(side, fromTicks, toTicks);
+                } else {
+                    engine.cancelAll();
+                }
+            }
+            case START_AUCTION -> engine.startAuction();
+            case UNCROSS -> engine.uncross();
+            case ADVANCE_TIME -> engine.advanceTime(time);
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    // The order of an ADD, null for every other type
+    public TradeMatchingEngine.Order getOrder() {
+        return order;
+    }
+
+    public long getPriceTicks() {
+        return priceTicks;
+    }
+
+    public int getVolume() {
+        return volume;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getOwner() {
+        return owner;
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    public long getFromTicks() {
+        return fromTicks;
+    }
+
+    public long getToTicks() {
+        return toTicks;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public CompletableFuture<Long> getCompletion() {
+        return completion;
+    }
+}
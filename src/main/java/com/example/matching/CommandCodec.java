@@ -0,0 +1,229 @@
+package com.example.matching;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+// Compact binary form of a sequenced Command, shared by the journal and anything else that ships
+// the command stream. Strings are stored as one byte per char (ISO-8859-1), which keeps encoding
+// allocation-free; ids and symbols outside that range, or longer than Short.MAX_VALUE chars, are
+// rejected by encodedLength before anything is written.
+//
+// The length is written last, after the body and its checksum, so a record cut short by a crash
+// reads as either the zero end marker or a record whose checksum does not match; decode treats
+// both as the end of the data.
+//
+//  int    record length, header included (0 marks the end of written data)
+//  int    CRC32C of everything after it up to the end of the record
+//  byte   type (0 add, 1 cancel, 2 amend, 3 mass cancel, 4 start auction, 5 uncross, 6 advance time)
+//  long   sequence
+//  long   timestamp of an add or amend, or the new engine time of an advance time
+//  byte   side in bit 0 (0 buy, 1 sell), OrderType ordinal in the bits above; -1 for a mass cancel of no one side
+//  long   price in ticks (Long.MIN_VALUE if the engine has not normalised it yet), the new price of an
+//         amend, or the lower bound of a mass cancel range
+//  double price of an add
+//  int    volume of an add or amend
+//  long   id (long-ID mode)
+//  long   stop price in ticks (Long.MIN_VALUE unless a stop order), or the upper bound of a mass cancel range
+//  long   owner of an add or mass cancel (0 for none)
+//  long   expiry time (Long.MAX_VALUE for none)
+//  short  symbol length (-1 for none), symbol bytes
+//  short  orderId length (-1 in long-ID mode), orderId bytes
+public final class CommandCodec {
+
+    static final int FIXED_LENGTH = 4 + 4 + 1 + 8 + 8 + 1 + 8 + 8 + 4 + 8 + 8 + 8 + 8 + 2 + 2;
+    static final byte ADD = 0;
+    static final byte CANCEL = 1;
+    static final byte AMEND = 2;
+    static final byte MASS_CANCEL = 3;
+    static final byte START_AUCTION = 4;
+    static final byte UNCROSS = 5;
+    static final byte ADVANCE_TIME = 6;
+    static final byte NO_SIDE = -1;
+    // Largest record encode can produce, both strings at their longest
+    static final int MAX_LENGTH = FIXED_LENGTH + 2 * Short.MAX_VALUE;
+
+    private static final ThreadLocal<CRC32C> CRC = ThreadLocal.withInitial(CRC32C::new);
+
+    private CommandCodec() {
+    }
+
+    // Also checks the command can be encoded at all, so callers can reject it before writing anything
+    public static int encodedLength(Command command) {
+        return FIXED_LENGTH + stringLength(command.symbol) + stringLength(command.orderId);
+    }
+
+    private static int stringLength(String value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value.length() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Ids and symbols are limited to " + Short.MAX_VALUE + " chars: " + value.length());
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                throw new IllegalArgumentException("Only ISO-8859-1 ids and symbols can be encoded: " + value);
+            }
+        }
+        return value.length();
+    }
+
+    // Writes the record at the buffer's position and advances it. A command that cannot be encoded, or
+    // does not fit, throws before the buffer is touched.
+    public static void encode(Command command, ByteBuffer buffer) {
+        if (buffer.remaining() < encodedLength(command)) {
+            throw new BufferOverflowException();
+        }
+        TradeMatchingEngine.Order order = command.order;
+        int start = buffer.position();
+        buffer.position(start + 8);
+        buffer.put(switch (command.type) {
+            case ADD -> ADD;
+            case CANCEL -> CANCEL;
+            case AMEND -> AMEND;
+            case MASS_CANCEL -> MASS_CANCEL;
+            case START_AUCTION -> START_AUCTION;
+            case UNCROSS -> UNCROSS;
+            case ADVANCE_TIME -> ADVANCE_TIME;
+        });
+        buffer.putLong(command.sequence);
+        if (order != null) {
+            buffer.putLong(order.timestamp);
+            buffer.put((byte) (order.orderType.ordinal() << 1 | (order.side == Side.SELL ? 1 : 0)));
+            buffer.putLong(order.priceTicks);
+            buffer.putDouble(order.price);
+            buffer.putInt(order.volume);
+            buffer.putLong(command.id);
+            buffer.putLong(order.stopTicks);
+            buffer.putLong(order.owner);
+            buffer.putLong(order.expiryTime);
+        } else {
+            boolean massCancel = command.type == Command.Type.MASS_CANCEL;
+            buffer.putLong(command.type == Command.Type.ADVANCE_TIME ? command.time : command.timestamp);
+            buffer.put(command.side == null ? NO_SIDE : (byte) (command.side == Side.SELL ? 1 : 0));
+            buffer.putLong(massCancel ? command.fromTicks : command.priceTicks);
+            buffer.putDouble(0);
+            buffer.putInt(command.volume);
+            buffer.putLong(command.id);
+            buffer.putLong(massCancel ? command.toTicks : TradeMatchingEngine.NO_TICKS);
+            buffer.putLong(command.owner);
+            buffer.putLong(TradeMatchingEngine.NO_EXPIRY);
+        }
+        putString(command.symbol, buffer);
+        putString(command.orderId, buffer);
+        int end = buffer.position();
+        buffer.putInt(start + 4, checksum(buffer, start + 8, end));
+        buffer.putInt(start, end - start);
+    }
+
+    // CRC32C of [from, to), leaving the buffer's position and limit as they were
+    private static int checksum(ByteBuffer buffer, int from, int to) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        CRC32C crc = CRC.get();
+        crc.reset();
+        buffer.limit(to).position(from);
+        crc.update(buffer);
+        buffer.limit(limit).position(position);
+        return (int) crc.getValue();
+    }
+
+    static void putString(String value, ByteBuffer buffer) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        buffer.putShort((short) value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c > 0xFF) {
+                throw new IllegalArgumentException("Only ISO-8859-1 ids and symbols can be encoded: " + value);
+            }
+            buffer.put((byte) c);
+        }
+    }
+
+    // Reads the record at the buffer's position and advances past it. Returns null, leaving the
+    // position where it was, at the end-of-data marker or at a record that is incomplete or fails its
+    // checksum; isEndMarker tells the two apart.
+    public static Command decode(ByteBuffer buffer) {
+        if (buffer.remaining() < 4) {
+            return null;
+        }
+        int start = buffer.position();
+        int length = buffer.getInt(start);
+        if (length < FIXED_LENGTH || length > buffer.remaining()
+                || buffer.getInt(start + 4) != checksum(buffer, start + 8, start + length)) {
+            return null;
+        }
+        buffer.position(start + 8);
+        byte type = buffer.get();
+        long sequence = buffer.getLong();
+        long timestamp = buffer.getLong();
+        byte sideAndType = buffer.get();
+        Side side = (sideAndType & 1) == 0 ? Side.BUY : Side.SELL;
+        long priceTicks = buffer.getLong();
+        double price = buffer.getDouble();
+        int volume = buffer.getInt();
+        long id = buffer.getLong();
+        long stopTicks = buffer.getLong();
+        long owner = buffer.getLong();
+        long expiryTime = buffer.getLong();
+        String symbol = getString(buffer);
+        String orderId = getString(buffer);
+
+        Command command;
+        if (type == ADD) {
+            TradeMatchingEngine.Order order = new TradeMatchingEngine.Order(orderId, side, price, volume, timestamp);
+            order.id = id;
+            order.priceTicks = priceTicks;
+            order.symbol = symbol;
+            order.orderType = OrderType.of(sideAndType >> 1);
+            order.stopTicks = stopTicks;
+            order.owner = owner;
+            order.expiryTime = expiryTime;
+            command = Command.add(order);
+        } else if (type == AMEND) {
+            command = orderId != null
+                    ? Command.amend(symbol, orderId, priceTicks, volume, timestamp)
+                    : Command.amend(symbol, id, priceTicks, volume, timestamp);
+        } else if (type == MASS_CANCEL) {
+            if (owner != TradeMatchingEngine.NO_OWNER) {
+                command = Command.cancelAll(symbol, owner);
+            } else if (sideAndType != NO_SIDE) {
+                command = Command.cancelAll(symbol, side, priceTicks, stopTicks);
+            } else {
+                command = Command.cancelAll(symbol);
+            }
+        } else if (type == START_AUCTION) {
+            command = Command.startAuction(symbol);
+        } else if (type == UNCROSS) {
+            command = Command.uncross(symbol);
+        } else if (type == ADVANCE_TIME) {
+            command = Command.advanceTime(symbol, timestamp);
+        } else if (orderId != null) {
+            command = Command.cancel(symbol, orderId);
+        } else {
+            command = Command.cancel(symbol, id);
+        }
+        command.sequence = sequence;
+        buffer.position(start + length);
+        return command;
+    }
+
+    // True when decode stopped at a clean end of data rather than a torn or corrupt record
+    public static boolean isEndMarker(ByteBuffer buffer) {
+        return buffer.remaining() < 4 || buffer.getInt(buffer.position()) == 0;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.matching;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Incremental L2 market-data feed built from the engine's DEPTH events. Every change made through
+// updateMarketDepth arrives as a (side, price, new aggregate volume) delta carrying the engine event
+// sequence; volume 0 means the level is gone.
+//
+// Run it as an EventHandler on an EventProcessor. Each Subscription conflates: it keeps only the
+// latest volume per level since its last poll, so a slow consumer gets one update per changed
+// level instead of every intermediate step, and the work is proportional to the levels that
+// changed, never to the size of the book. A full refresh is delivered when a subscriber joins,
+// when its conflation buffer overflows, every refreshInterval changes if one is set, and after a
+// gap in the event sequence (a full ring dropped events; the refresh then carries the feed's own
+// mirror, which is only as good as the events it has seen).
+public class DepthFeed implements EventHandler {
+
+    // Subscriber callback, run on the thread that calls Subscription.poll
+    public interface Listener {
+
+        void onLevel(Side side, long priceTicks, long volume, long sequence);
+
+        // Drop the local book: the onLevel calls that follow in this poll rebuild it as of sequence
+        default void onRefresh(long sequence) {
+        }
+    }
+
+    // Mirror of the book as seen through the feed, for refreshes; price -> aggregate volume
+    private final TreeMap<Long, Long> bids = new TreeMap<>();
+    private final TreeMap<Long, Long> asks = new TreeMap<>();
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private final long refreshInterval;
+    private long sequence = -1;
+    private long changes;
+    private long gaps;
+
+    public DepthFeed() {
+        this(0);
+    }
+
+    // refreshInterval: depth changes between periodic full refreshes to every subscriber, 0 for none
+    public DepthFeed(long refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    @Override
+    public void onEvent(BookEvent event, long ringSequence, boolean endOfBatch) {
+        synchronized (this) {
+            if (sequence >= 0 && event.sequence != sequence + 1) {
+                gaps++;
+                requestRefreshAll();
+            }
+            sequence = event.sequence;
+            if (event.type != BookEvent.Type.DEPTH) {
+                return;
+            }
+            TreeMap<Long, Long> book = event.side == Side.BUY ? bids : asks;
+            if (event.volume == 0) {
+                book.remove(event.priceTicks);
+            } else {
+                book.put(event.priceTicks, event.volume);
+            }
+            for (int i = 0; i < subscriptions.size(); i++) {
+                subscriptions.get(i).update(event.side, event.priceTicks, event.volume, event.sequence);
+            }
+            changes++;
+            if (refreshInterval > 0 && changes % refreshInterval == 0) {
+                requestRefreshAll();
+            }
+        }
+    }
+
+    private void requestRefreshAll() {
+        for (int i = 0; i < subscriptions.size(); i++) {
+            subscriptions.get(i).requestRefresh();
+        }
+    }
+
+    // capacity: distinct levels a subscription can hold between polls before it falls back to a refresh
+    public synchronized Subscription subscribe(int capacity) {
+        Subscription subscription = new Subscription(capacity);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    // Depth changes seen so far
+    public synchronized long getChangeCount() {
+        return changes;
+    }
+
+    public synchronized long getGapCount() {
+        return gaps;
+    }
+
+    public final class Subscription implements AutoCloseable {
+        // Pending is filled by the feed thread; poll swaps it with delivering under the feed lock
+        // and hands delivering to the listener outside it, so a slow listener never blocks the feed
+        private LevelBuffer pending;
+        private LevelBuffer delivering;
+        private boolean refreshPending = true;
+        private long updates;
+        private long delivered;
+
+        private Subscription(int capacity) {
+            this.pending = new LevelBuffer(capacity);
+            this.delivering = new LevelBuffer(capacity);
+        }
+
+        // Feed lock held
+        private void update(Side side, long priceTicks, long volume, long eventSequence) {
+            updates++;
+            if (!refreshPending && !pending.put(side, priceTicks, volume, eventSequence)) {
+                requestRefresh(); // too many distinct levels changed, a refresh is cheaper
+            }
+        }
+
+        // Feed lock held
+        private void requestRefresh() {
+            refreshPending = true;
+            pending.clear();
+        }
+
+        // Delivers everything since the last poll and returns the number of levels handed over
+        public int poll(Listener listener) {
+            boolean refresh;
+            long refreshSequence;
+            TreeMap<Long, Long> bidCopy = null;
+            TreeMap<Long, Long> askCopy = null;
+            synchronized (DepthFeed.this) {
+                refresh = refreshPending;
+                refreshSequence = sequence;
+                if (refresh) {
+                    // The mirror is only read here, on a refresh; O(levels) but rare
+                    refreshPending = false;
+                    bidCopy = new TreeMap<>(bids);
+                    askCopy = new TreeMap<>(asks);
+                    pending.clear();
+                } else {
+                    LevelBuffer swap = delivering;
+                    delivering = pending;
+                    pending = swap;
+                }
+            }
+            int count = 0;
+            if (refresh) {
+                listener.onRefresh(refreshSequence);
+                for (Map.Entry<Long, Long> level : bidCopy.descendingMap().entrySet()) {
+                    listener.onLevel(Side.BUY, level.getKey(), level.getValue(), refreshSequence);
+                    count++;
+                }
+                for (Map.Entry<Long, Long> level : askCopy.entrySet()) {
+                    listener.onLevel(Side.SELL, level.getKey(), level.getValue(), refreshSequence);
+                    count++;
+                }
+            } else {
+                LevelBuffer buffer = delivering;
+                for (int i = 0; i < buffer.size; i++) {
+                    listener.onLevel(buffer.sides[i], buffer.prices[i], buffer.volumes[i], buffer.sequences[i]);
+                }
+                count = buffer.size;
+                buffer.clear();
+            }
+            delivered += count;
+            return count;
+        }
+
+        // Updates offered to this subscription versus levels delivered; the difference was conflated away
+        public long getUpdateCount() {
+            synchronized (DepthFeed.this) {
+                return updates;
+            }
+        }
+
+        public long getDeliveredCount() {
+            return delivered;
+        }
+
+        @Override
+        public void close() {
+            synchronized (DepthFeed.this) {
+                subscriptions.remove(this);
+            }
+        }
+    }
+
+    // Latest (side, price) -> volume since the last drain, in first-touched order. Open addressing
+    // over an index table so updating an already pending level is O(1) and allocates nothing.
+    static final class LevelBuffer {
+        final Side[] sides;
+        final long[] prices;
+        final long[] volumes;
+        final long[] sequences;
+        private final int[] table; // entry index + 1, 0 for empty
+        private final int mask;
+        int size;
+
+        LevelBuffer(int capacity) {
+            sides = new Side[capacity];
+            prices = new long[capacity];
+            volumes = new long[capacity];
+            sequences = new long[capacity];
+            int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+            table = new int[tableSize];
+            mask = tableSize - 1;
+        }
+
+        // Returns false when a new level does not fit
+        boolean put(Side side, long priceTicks, long volume, long sequence) {
+            int slot = hash(side, priceTicks) & mask;
+            int index;
+            while ((index = table[slot]) != 0) {
+                index--;
+                if (prices[index] == priceTicks && sides[index] == side) {
+                    volumes[index] = volume;
+                    sequences[index] = sequence;
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size == prices.length) {
+                return false;
+            }
+            sides[size] = side;
+            prices[size] = priceTicks;
+            volumes[size] = volume;
+            sequences[size] = sequence;
+            table[slot] = ++size;
+            return true;
+        }
+
+        // O(entries), not O(capacity): only the table slots in use are reset
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                int slot = hash(sides[i], prices[i]) & mask;
+                while (table[slot] != 0) {
+                    table[slot] = 0;
+                    slot = (slot + 1) & mask;
+                }
+            }
+            size = 0;
+        }
+
+        private static int hash(Side side, long priceTicks) {
+            long h = (priceTicks * 2 + side.ordinal()) * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
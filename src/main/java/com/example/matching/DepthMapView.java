@@ -0,0 +1,93 @@
+package com.example.matching;
+
+import java.util.*;
+
+// Read-only Map<Double, Integer> adapter over one side of the book, ordered by ascending price.
+// Keeps the old double-based getMarketDepth API working while depth itself lives on the price levels.
+// A view can be bounded to a price range; it seeks to the range with a binary search on the ladder.
+public class DepthMapView extends AbstractMap<Double, Integer> {
+
+    private final OrderBookSide side;
+    private final PriceScale scale;
+    private final long fromTicks;
+    private final long toTicks;
+
+    DepthMapView(OrderBookSide side, PriceScale scale) {
+        this(side, scale, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    // Levels priced within [fromTicks, toTicks] only
+    DepthMapView(OrderBookSide side, PriceScale scale, long fromTicks, long toTicks) {
+        this.side = side;
+        this.scale = scale;
+        this.fromTicks = fromTicks;
+        this.toTicks = toTicks;
+    }
+
+    // O(log L) lookup on the ladder instead of the O(n) scan AbstractMap would do
+    @Override
+    public Integer get(Object key) {
+        if (!(key instanceof Double price)) {
+            return null;
+        }
+        long ticks = scale.toTicks(price);
+        if (ticks < fromTicks || ticks > toTicks) {
+            return null;
+        }
+        PriceLevel level = side.getLevel(ticks);
+        return level == null ? null : (int) level.totalVolume;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    // O(log L): two seeks
+    @Override
+    public int size() {
+        return Math.max(0, end() - start());
+    }
+
+    // Ascending index of the first level in range
+    private int start() {
+        return fromTicks == Long.MIN_VALUE ? 0 : side.ascendingIndexOf(fromTicks);
+    }
+
+    // Ascending index just past the last level in range
+    private int end() {
+        return toTicks == Long.MAX_VALUE ? side.getLevelCount() : side.ascendingIndexOf(toTicks + 1);
+    }
+
+    @Override
+    public Set<Entry<Double, Integer>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return DepthMapView.this.size();
+            }
+
+            @Override
+            public Iterator<Entry<Double, Integer>> iterator() {
+                return new Iterator<>() {
+                    private int index = start();
+                    private final int end = end();
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < end;
+                    }
+
+                    @Override
+                    public Entry<Double, Integer> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        PriceLevel level = side.getLevelAtAscending(index++);
+                        return new SimpleImmutableEntry<>(scale.toPrice(level.price), (int) level.totalVolume);
+                    }
+                };
+            }
+        };
+    }
+}
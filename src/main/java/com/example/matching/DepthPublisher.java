@@ -0,0 +1,112 @@
+package com.example.matching;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Publishes the engine's top-N depth to any number of reader threads through a seqlock.
+//
+// The matching thread is the only writer: after a command that touched one of the top N levels it
+// bumps the sequence to odd, overwrites the flat price/volume arrays in place and bumps it back to
+// even. Readers copy the arrays and retry if the sequence moved underneath them, so the writer never
+// waits for a reader and never allocates; a reader only ever retries, it never sees a torn book.
+// Cost on the writer is O(N) plain stores, and only for changes inside the top N.
+public class DepthPublisher {
+
+    private final int levels;
+    private final AtomicLong sequence = new AtomicLong();
+    // Written by the matching thread only, read racily and validated by readers
+    private final long[] bidPrices;
+    private final long[] bidVolumes;
+    private final long[] askPrices;
+    private final long[] askVolumes;
+    private int bidCount;
+    private int askCount;
+
+    public DepthPublisher(int levels) {
+        if (levels <= 0) {
+            throw new IllegalArgumentException("levels must be positive: " + levels);
+        }
+        this.levels = levels;
+        bidPrices = new long[levels];
+        bidVolumes = new long[levels];
+        askPrices = new long[levels];
+        askVolumes = new long[levels];
+    }
+
+    public int getLevels() {
+        return levels;
+    }
+
+    // Matching thread only
+    void publish(OrderBookSide bids, OrderBookSide asks) {
+        publish(bids, asks, true, true);
+    }
+
+    // Only the sides that changed are rewritten; the other side's arrays stay as published
+    void publish(OrderBookSide bids, OrderBookSide asks, boolean bidsChanged, boolean asksChanged) {
+        long seq = sequence.get();
+        sequence.lazySet(seq + 1);
+        VarHandle.storeStoreFence(); // the odd sequence must be visible before any data store
+        if (bidsChanged) {
+            bidCount = copy(bids, bidPrices, bidVolumes);
+        }
+        if (asksChanged) {
+            askCount = copy(asks, askPrices, askVolumes);
+        }
+        sequence.lazySet(seq + 2); // release: data stores happen-before a reader seeing the even value
+    }
+
+    private int copy(OrderBookSide side, long[] prices, long[] volumes) {
+        int count = Math.min(levels, side.getLevelCount());
+        for (int rank = 0; rank < count; rank++) {
+            PriceLevel level = side.getLevelAt(rank);
+            prices[rank] = level.price;
+            volumes[rank] = level.totalVolume;
+        }
+        return count;
+    }
+
+    // Number of completed publications; readers can compare it to skip unchanged books
+    public long getVersion() {
+        return sequence.get() >>> 1;
+    }
+
+    // Consistent copy of the current top of book. Lock-free for readers, wait-free for the writer.
+    public DepthSnapshot read() {
+        return read(null);
+    }
+
+    // Returns previous itself when nothing was published since it was read, so a hot polling loop
+    // only allocates when the book actually changed
+    public DepthSnapshot read(DepthSnapshot previous) {
+        int spins = 0;
+        while (true) {
+            long seq = sequence.get();
+            if ((seq & 1) == 0) {
+                if (previous != null && previous.getVersion() == seq >>> 1) {
+                    return previous;
+                }
+                int bids = Math.min(bidCount, levels);
+                int asks = Math.min(askCount, levels);
+                long[] bp = new long[bids];
+                long[] bv = new long[bids];
+                long[] ap = new long[asks];
+                long[] av = new long[asks];
+                System.arraycopy(bidPrices, 0, bp, 0, bids);
+                System.arraycopy(bidVolumes, 0, bv, 0, bids);
+                System.arraycopy(askPrices, 0, ap, 0, asks);
+                System.arraycopy(askVolumes, 0, av, 0, asks);
+                VarHandle.loadLoadFence(); // data loads must complete before the re-check
+                if (sequence.get() == seq) {
+                    return new DepthSnapshot(seq >>> 1, bp, bv, ap, av);
+                }
+            }
+            // A writer descheduled mid-publish would otherwise keep us spinning on a single core
+            if (++spins < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+}
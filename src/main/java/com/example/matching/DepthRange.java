@@ -0,0 +1,68 @@
+package com.example.matching;
+
+import java.util.Arrays;
+
+// Reusable, ordered result of a depth range query: (price in ticks, aggregate volume) pairs in ascending
+// price order. Keep one per caller and pass it back in; it only allocates when a query returns more
+// levels than it has held before. Contents are a copy, unaffected by later changes to the book.
+public class DepthRange {
+
+    private long[] prices;
+    private long[] volumes;
+    private int size;
+
+    public DepthRange() {
+        this(16);
+    }
+
+    public DepthRange(int initialCapacity) {
+        prices = new long[Math.max(1, initialCapacity)];
+        volumes = new long[prices.length];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void add(long price, long volume) {
+        if (size == prices.length) {
+            prices = Arrays.copyOf(prices, size * 2);
+            volumes = Arrays.copyOf(volumes, size * 2);
+        }
+        prices[size] = price;
+        volumes[size++] = volume;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long priceAt(int index) {
+        checkIndex(index);
+        return prices[index];
+    }
+
+    public long volumeAt(int index) {
+        checkIndex(index);
+        return volumes[index];
+    }
+
+    // Sum of the volumes in the range
+    public long totalVolume() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += volumes[i];
+        }
+        return total;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of range for " + size + " levels");
+        }
+    }
+}
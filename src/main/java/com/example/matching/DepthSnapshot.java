@@ -0,0 +1,62 @@
+package com.example.matching;
+
+// Immutable top-N depth of both sides as of one engine state, read from a DepthPublisher.
+// Index 0 is the best level on each side; prices are in ticks.
+public final class DepthSnapshot {
+
+    private final long version;
+    private final long[] bidPrices;
+    private final long[] bidVolumes;
+    private final long[] askPrices;
+    private final long[] askVolumes;
+
+    DepthSnapshot(long version, long[] bidPrices, long[] bidVolumes, long[] askPrices, long[] askVolumes) {
+        this.version = version;
+        this.bidPrices = bidPrices;
+        this.bidVolumes = bidVolumes;
+        this.askPrices = askPrices;
+        this.askVolumes = askVolumes;
+    }
+
+    // Increases every time the published top of book changes
+    public long getVersion() {
+        return version;
+    }
+
+    public int getBidLevels() {
+        return bidPrices.length;
+    }
+
+    public long getBidPrice(int rank) {
+        return bidPrices[rank];
+    }
+
+    public long getBidVolume(int rank) {
+        return bidVolumes[rank];
+    }
+
+    public int getAskLevels() {
+        return askPrices.length;
+    }
+
+    public long getAskPrice(int rank) {
+        return askPrices[rank];
+    }
+
+    public long getAskVolume(int rank) {
+        return askVolumes[rank];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("v").append(version).append(" bids");
+        for (int i = 0; i < bidPrices.length; i++) {
+            sb.append(' ').append(bidVolumes[i]).append('@').append(bidPrices[i]);
+        }
+        sb.append(" asks");
+        for (int i = 0; i < askPrices.length; i++) {
+            sb.append(' ').append(askVolumes[i]).append('@').append(askPrices[i]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.matching;
+
+// JMX view of EngineMetrics. Histograms show up as composite attributes (count, mean, percentiles, max).
+public interface EngineMetricsMXBean {
+
+    long getOrdersAdded();
+
+    long getOrdersRested();
+
+    // Orders that traded on arrival
+    long getAggressiveOrders();
+
+    long getFills();
+
+    // Distinct price levels traded through, summed over all aggressive orders
+    long getLevelsSwept();
+
+    long getCancels();
+
+    // deleteOrder calls for ids that were not resting
+    long getCancelMisses();
+
+    // Successful amendOrder calls, in place or re-priced
+    long getAmends();
+
+    // Same-price decreases that kept their queue position
+    long getAmendsInPlace();
+
+    long getAmendMisses();
+
+    // cancelAll calls, and the orders they removed between them
+    long getMassCancels();
+
+    long getMassCancelledOrders();
+
+    // advanceTime calls that expired orders, and the GTD and day orders they expired
+    long getExpiryPasses();
+
+    long getExpiredOrders();
+
+    int getRestingBuyOrders();
+
+    int getRestingSellOrders();
+
+    int getBuyLevels();
+
+    int getSellLevels();
+
+    // One in this many operations is timed; counters always see every operation
+    int getTimingSampleInterval();
+
+    EngineMetrics.Stats getAddOrderLatency();
+
+    EngineMetrics.Stats getMatchLatency();
+
+    EngineMetrics.Stats getCancelLatency();
+
+    EngineMetrics.Stats getAmendLatency();
+
+    EngineMetrics.Stats getLevelsPerSweep();
+
+    String dump();
+}
@@ -0,0 +1,15 @@
+package com.example.matching;
+
+// Receives failures a component hits on its own thread, where there is no caller to throw them to.
+// Called on that thread, so it should hand off rather than block. LOG, the default everywhere, sends
+// them to the platform logger (System.Logger) under this package's name, which routes to
+// java.util.logging or whatever logging backend the application has bound.
+@FunctionalInterface
+public interface ErrorHandler {
+
+    ErrorHandler LOG = (message, error) ->
+            System.getLogger("com.example.matching").log(System.Logger.Level.ERROR, message, error);
+
+    // error is null when the failure is a condition rather than an exception
+    void onError(String message, Throwable error);
+}
@@ -0,0 +1,9 @@
+package com.example.matching;
+
+// Consumer callback run on an EventProcessor thread
+@FunctionalInterface
+public interface EventHandler {
+
+    // endOfBatch is true for the last event currently available, a good point to flush
+    void onEvent(BookEvent event, long ringSequence, boolean endOfBatch) throws Exception;
+}
@@ -0,0 +1,88 @@
+package com.example.matching;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs an EventHandler over an EventRingBuffer on its own thread, handing it every event published
+// since the last batch. The processor's sequence gates the producer, so events are not overwritten
+// before this consumer has seen them. An event the handler throws on goes to the ErrorHandler and
+// is skipped.
+public class EventProcessor implements Runnable {
+
+    private final EventRingBuffer ringBuffer;
+    private final EventHandler handler;
+    private final WaitStrategy waitStrategy;
+    private final ErrorHandler errorHandler;
+    private final AtomicLong sequence = new AtomicLong(-1);
+    private volatile boolean running;
+
+    public EventProcessor(EventRingBuffer ringBuffer, EventHandler handler, WaitStrategy waitStrategy) {
+        this(ringBuffer, handler, waitStrategy, ErrorHandler.LOG);
+    }
+
+    public EventProcessor(EventRingBuffer ringBuffer, EventHandler handler, WaitStrategy waitStrategy, ErrorHandler errorHandler) {
+        this.ringBuffer = ringBuffer;
+        this.handler = handler;
+        this.waitStrategy = waitStrategy;
+        this.errorHandler = errorHandler;
+        // Gate from construction so nothing published before run() starts is overwritten
+        ringBuffer.addGatingSequence(sequence);
+        running = true;
+    }
+
+    @Override
+    public void run() {
+        AtomicLong cursor = ringBuffer.getCursor();
+        long next = sequence.get() + 1;
+        try {
+            while (running) {
+                long available = waitStrategy.waitFor(next, cursor, this);
+                if (available < next) {
+                    continue;
+                }
+                for (long seq = next; seq <= available; seq++) {
+                    // A failing consumer must not stall the ring for everyone else
+                    handle(seq, available);
+                }
+                sequence.lazySet(available);
+                next = available + 1;
+            }
+        } finally {
+            ringBuffer.removeGatingSequence(sequence);
+        }
+    }
+
+    // Handles whatever is published right now without waiting, for a consumer that shares the
+    // producer's thread (e.g. a gateway reporting back after each batch). Returns events handled.
+    public int processAvailable() {
+        long next = sequence.get() + 1;
+        long available = ringBuffer.getCursor().get();
+        for (long seq = next; seq <= available; seq++) {
+            handle(seq, available);
+        }
+        if (available >= next) {
+            sequence.lazySet(available);
+        }
+        return (int) Math.max(0, available - next + 1);
+    }
+
+    private void handle(long seq, long available) {
+        try {
+            handler.onEvent(ringBuffer.get(seq), seq, seq == available);
+        } catch (Exception e) {
+            errorHandler.onError("Event handler failed at sequence " + seq, e);
+        }
+    }
+
+    public void halt() {
+        running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Last ring sequence this processor has fully handled
+    public long getSequence() {
+        return sequence.get();
+    }
+}
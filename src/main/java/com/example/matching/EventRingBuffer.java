@@ -0,0 +1,93 @@
+package com.example.matching;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Preallocated single-producer ring of BookEvent slots, consumed by any number of EventProcessors.
+//
+// The producer (the matching thread) never blocks and never allocates: when the slowest consumer is
+// a full ring behind, the event is dropped and counted instead. The engine numbers its events, so a
+// consumer sees a dropped event as a gap in BookEvent.getSequence().
+public class EventRingBuffer {
+
+    private final BookEvent[] entries;
+    private final int mask;
+    // Highest published ring sequence, -1 before the first publish
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private volatile AtomicLong[] gatingSequences = new AtomicLong[0];
+
+    // Producer-only state
+    private long claimed = -1;
+    private long cachedGatingSequence = -1;
+    private long droppedEvents;
+
+    public EventRingBuffer(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        entries = new BookEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new BookEvent();
+        }
+        mask = capacity - 1;
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    // Producer side: returns the next free slot, or null if the slowest consumer is a full ring behind
+    public BookEvent tryClaim() {
+        long next = claimed + 1;
+        long wrapPoint = next - entries.length;
+        if (wrapPoint > cachedGatingSequence) {
+            cachedGatingSequence = minimumGatingSequence(next - 1);
+            if (wrapPoint > cachedGatingSequence) {
+                droppedEvents++;
+                return null;
+            }
+        }
+        claimed = next;
+        BookEvent event = entries[(int) (next & mask)];
+        event.clear();
+        return event;
+    }
+
+    // Producer side: makes the slot returned by the last tryClaim visible to consumers
+    public void publish() {
+        cursor.lazySet(claimed);
+    }
+
+    private long minimumGatingSequence(long defaultSequence) {
+        long minimum = defaultSequence;
+        for (AtomicLong sequence : gatingSequences) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+
+    public BookEvent get(long sequence) {
+        return entries[(int) (sequence & mask)];
+    }
+
+    AtomicLong getCursor() {
+        return cursor;
+    }
+
+    // Registers a consumer position; it starts at the current cursor so it only sees new events
+    synchronized void addGatingSequence(AtomicLong sequence) {
+        sequence.set(cursor.get());
+        AtomicLong[] updated = Arrays.copyOf(gatingSequences, gatingSequences.length + 1);
+        updated[updated.length - 1] = sequence;
+        gatingSequences = updated;
+    }
+
+    synchronized void removeGatingSequence(AtomicLong sequence) {
+        gatingSequences = Arrays.stream(gatingSequences).filter(s -> s != sequence).toArray(AtomicLong[]::new);
+    }
+
+    // Written by the producer only, an approximate value when read from other threads
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.matching;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Multi-instrument front end: one TradeMatchingEngine per symbol, with symbols hash-partitioned
+// across a fixed number of single-threaded shards. Each shard is a Sequencer whose matching thread
+// owns every book in its partition, so a symbol is only ever touched by one thread and shards share
+// no state or locks. Commands for one symbol are applied in the order the shard's queue received them.
+// A symbol's book is created by its first ADD, or up front by withSymbols; any other command for a
+// symbol with no book fails with an IllegalArgumentException rather than creating an empty one.
+//
+// The JDK has no thread affinity API; to pin shards to cores, bind the "exchange-shard-N" threads
+// with taskset/isolcpus or an affinity library outside the engine.
+public class Exchange implements AutoCloseable {
+
+    private final Sequencer[] shards;
+    // Books per shard, created and touched only by that shard's thread
+    private final List<Map<String, TradeMatchingEngine>> books;
+    private final double tickSize;
+
+    public Exchange(int shardCount, double tickSize) {
+        this(shardCount, tickSize, 4096, 64);
+    }
+
+    public Exchange(int shardCount, double tickSize, int queueCapacity, int batchSize) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Need at least one shard: " + shardCount);
+        }
+        this.tickSize = tickSize;
+        this.shards = new Sequencer[shardCount];
+        this.books = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            Map<String, TradeMatchingEngine> shardBooks = new HashMap<>();
+            books.add(shardBooks);
+            shards[i] = new Sequencer(null, command -> bookFor(shardBooks, command), queueCapacity, batchSize, 50_000,
+                    "exchange-shard-" + i);
+        }
+    }
+
+    // On the shard's thread
+    private TradeMatchingEngine bookFor(Map<String, TradeMatchingEngine> shardBooks, Command command) {
+        TradeMatchingEngine book = shardBooks.get(command.symbol);
+        if (book == null) {
+            if (command.type != Command.Type.ADD) {
+                throw new IllegalArgumentException("No book for symbol " + command.symbol);
+            }
+            book = new TradeMatchingEngine(tickSize);
+            shardBooks.put(command.symbol, book);
+        }
+        return book;
+    }
+
+    // Call before start(): creates these symbols' books up front, so they take commands such as a
+    // pre-open startAuction before their first order
+    public Exchange withSymbols(String... symbols) {
+        for (String symbol : symbols) {
+            books.get(shardFor(symbol)).computeIfAbsent(symbol, ignored -> new TradeMatchingEngine(tickSize));
+        }
+        return this;
+    }
+
+    public Exchange start() {
+        for (Sequencer shard : shards) {
+            shard.start();
+        }
+        return this;
+    }
+
+    public int shardFor(String symbol) {
+        return Math.floorMod(symbol.hashCode() * 0x9E3779B9, shards.length);
+    }
+
+    // Completes with the shard-local sequence number the command was applied under
+    public CompletableFuture<Long> submitAdd(TradeMatchingEngine.Order order) {
+        if (order.symbol == null) {
+            throw new IllegalArgumentException("Order " + (order.orderId != null ? order.orderId : order.id) + " has no symbol");
+        }
+        return shards[shardFor(order.symbol)].submit(Command.add(order));
+    }
+
+    public CompletableFuture<Long> submitCancel(String symbol, String orderId) {
+        return shards[shardFor(symbol)].submit(Command.cancel(symbol, orderId));
+    }
+
+    public CompletableFuture<Long> submitCancel(String symbol, long orderId) {
+        return shards[shardFor(symbol)].submit(Command.cancel(symbol, orderId));
+    }
+
+    public CompletableFuture<Long> submitAmend(String symbol, String orderId, long priceTicks, int volume, long timestamp) {
+        return shards[shardFor(symbol)].submit(Command.amend(symbol, orderId, priceTicks, volume, timestamp));
+    }
+
+    public CompletableFuture<Long> submitAmend(String symbol, long orderId, long priceTicks, int volume, long timestamp) {
+        return shards[shardFor(symbol)].submit(Command.amend(symbol, orderId, priceTicks, volume, timestamp));
+    }
+
+    // Only the one symbol's book: owners are per book, like order ids
+    public CompletableFuture<Long> submitCancelAll(String symbol, long owner) {
+        return shards[shardFor(symbol)].submit(Command.cancelAll(symbol, owner));
+    }
+
+    public CompletableFuture<Long> submitCancelAll(String symbol, Side side, long fromTicks, long toTicks) {
+        return shards[shardFor(symbol)].submit(Command.cancelAll(symbol, side, fromTicks, toTicks));
+    }
+
+    public CompletableFuture<Long> submitCancelAll(String symbol) {
+        return shards[shardFor(symbol)].submit(Command.cancelAll(symbol));
+    }
+
+    // Call phases are per book: one symbol auctions while the rest of its shard trades on
+    public CompletableFuture<Long> submitStartAuction(String symbol) {
+        return shards[shardFor(symbol)].submit(Command.startAuction(symbol));
+    }
+
+    public CompletableFuture<Long> submitUncross(String symbol) {
+        return shards[shardFor(symbol)].submit(Command.uncross(symbol));
+    }
+
+    public CompletableFuture<Long> submitAdvanceTime(String symbol, long time) {
+        return shards[shardFor(symbol)].submit(Command.advanceTime(symbol, time));
+    }
+
+    // Not thread-safe while the exchange is running: books belong to their shard's thread
+    public TradeMatchingEngine getBook(String symbol) {
+        return books.get(shardFor(symbol)).get(symbol);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public double getTickSize() {
+        return tickSize;
+    }
+
+    // Drains every shard and stops its thread
+    @Override
+    public void close() throws InterruptedException {
+        for (Sequencer shard : shards) {
+            shard.close();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.matching;
+
+import java.util.Arrays;
+
+// HdrHistogram-style log-linear histogram of non-negative long values (latencies in nanoseconds,
+// levels per sweep...). Values below 256 are counted exactly; above that every power of two is split
+// into 128 linear sub-buckets, so any recorded value is off by less than 1% and the whole long range
+// fits in a fixed array of about 7.3k counts. record() is a few arithmetic ops and an increment,
+// with no allocation and no bounds to configure.
+//
+// Single writer. Other threads may read at any time and see a slightly stale but usable picture;
+// copy() first when several statistics must agree with each other.
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+    private static final int LENGTH = index(Long.MAX_VALUE) + 1;
+
+    private final long[] counts;
+    private long totalCount;
+    private long sum;
+    private long max;
+
+    public Histogram() {
+        counts = new long[LENGTH];
+    }
+
+    private Histogram(long[] counts, long totalCount, long sum, long max) {
+        this.counts = counts;
+        this.totalCount = totalCount;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return exponent * SUB_BUCKET_HALF + (int) (value >>> exponent);
+    }
+
+    // Smallest value that lands in the bucket
+    static long lowestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKET_HALF - 1;
+        return (long) (index % SUB_BUCKET_HALF + SUB_BUCKET_HALF) << exponent;
+    }
+
+    // Largest value that lands in the bucket
+    static long highestValueAt(int index) {
+        return index + 1 < LENGTH ? lowestValueAt(index + 1) - 1 : Long.MAX_VALUE;
+    }
+
+    // O(1), negative values are recorded as 0
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[index(value)]++;
+        totalCount++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    // Upper bound of the bucket holding the given percentile (0-100), like HdrHistogram reports it.
+    // O(buckets)
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestValueAt(i), max);
+            }
+        }
+        return max;
+    }
+
+    // Independent copy, for consistent reads or for diffing intervals
+    public Histogram copy() {
+        return new Histogram(Arrays.copyOf(counts, counts.length), totalCount, sum, max);
+    }
+
+    // Values recorded since the earlier copy; max is kept from this histogram
+    public Histogram minus(Histogram earlier) {
+        long[] delta = new long[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            delta[i] = counts[i] - earlier.counts[i];
+        }
+        return new Histogram(delta, totalCount - earlier.totalCount, sum - earlier.sum, max);
+    }
+
+    // Writer thread only
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        max = 0;
+    }
+}
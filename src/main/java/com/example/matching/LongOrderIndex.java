@@ -0,0 +1,131 @@
+package com.example.matching;
+
+import java.util.Arrays;
+
+// long orderId -> resting Order index for the engine's long-ID mode, open addressing with linear probing.
+// Keys sit in their own long[] next to the Order[] values, so a probe compares primitives in one or
+// two cache lines and only touches the Order it returns; there is no String hash or equals, no boxing
+// and no per-entry node. Deletion shifts the probe chain back instead of leaving tombstones.
+public class LongOrderIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] keys;
+    private TradeMatchingEngine.Order[] values; // null marks an empty slot, so any long is a valid key
+    private int mask;
+    private int size;
+
+    public LongOrderIndex() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public LongOrderIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize * 2 - 1, 16)) << 1;
+        keys = new long[capacity];
+        values = new TradeMatchingEngine.Order[capacity];
+        mask = capacity - 1;
+    }
+
+    // Sequential upstream ids must not land in sequential slots clustered by their low bits alone
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // O(1) expected
+    public TradeMatchingEngine.Order get(long orderId) {
+        int i = hash(orderId) & mask;
+        TradeMatchingEngine.Order order;
+        while ((order = values[i]) != null) {
+            if (keys[i] == orderId) {
+                return order;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    // Indexes the order under its id, replacing any order already there like Map.put
+    public void put(TradeMatchingEngine.Order order) {
+        put(order.id, order);
+    }
+
+    // Same, under any long key; the engine also maps owners to the head of their order list
+    public void put(long key, TradeMatchingEngine.Order order) {
+        int i = hash(key) & mask;
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                values[i] = order;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = order;
+        // Keep the load factor at or below one half
+        if (++size * 2 > values.length) {
+            resize();
+        }
+    }
+
+    public TradeMatchingEngine.Order remove(long orderId) {
+        int i = hash(orderId) & mask;
+        TradeMatchingEngine.Order order;
+        while ((order = values[i]) != null) {
+            if (keys[i] == orderId) {
+                deleteSlot(i);
+                size--;
+                return order;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    // Backward-shift deletion: pull later entries of the probe chain into the gap
+    private void deleteSlot(int gap) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            if (values[i] == null) {
+                break;
+            }
+            int home = hash(keys[i]) & mask;
+            // Move the entry if its home slot is not in the cyclic range (gap, i]
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        values[gap] = null;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        TradeMatchingEngine.Order[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new TradeMatchingEngine.Order[oldValues.length * 2];
+        mask = values.length - 1;
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] != null) {
+                int i = hash(oldKeys[j]) & mask;
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    // O(capacity), for dropping every entry at once rather than one remove per order
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.matching;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+// Bounded lock-free multi-producer single-consumer queue.
+// Producers claim a slot with one CAS on the tail; each slot carries a sequence number telling the
+// consumer when its element is visible and producers when the slot is free again (Vyukov's scheme).
+public class MpscQueue<E> {
+
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // consumer-only
+
+    public MpscQueue(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        buffer = new Object[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        mask = capacity - 1;
+    }
+
+    // Any thread. Returns false instead of waiting when the queue is full
+    public boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer[index] = element;
+                    // Release: the element write happens-before the consumer's sequence read
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+            // Another producer took this slot, retry with the new tail
+        }
+    }
+
+    // Consumer thread only. Hands up to limit elements to the consumer, returns how many
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<E> consumer, int limit) {
+        int drained = 0;
+        while (drained < limit) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break; // empty, or a producer has claimed the slot but not yet written it
+            }
+            E element = (E) buffer[index];
+            buffer[index] = null;
+            sequences.lazySet(index, head + buffer.length);
+            head++;
+            drained++;
+            consumer.accept(element);
+        }
+        return drained;
+    }
+
+    // Consumer thread only
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        E element = (E) buffer[index];
+        buffer[index] = null;
+        sequences.lazySet(index, head + buffer.length);
+        head++;
+        return element;
+    }
+
+    // Approximate when producers are active
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+}
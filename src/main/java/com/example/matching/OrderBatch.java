@@ -0,0 +1,130 @@
+package com.example.matching;
+
+import java.util.Arrays;
+
+// Reusable buffer of long-ID adds, cancels and amends for TradeMatchingEngine.applyBatch, held as
+// parallel primitive arrays so filling and applying it allocates nothing once it has grown to the
+// burst size. After applyBatch each entry has a result:
+//  - add: the volume left in the book (resting, or a pending stop), 0 if it filled or was cancelled
+//  - cancel, amend: 1 if the order was found and changed, 0 if not
+// Keep one per caller; clear() before the next burst.
+public class OrderBatch {
+
+    public static final byte ADD = 0;
+    public static final byte CANCEL = 1;
+    public static final byte AMEND = 2;
+
+    byte[] types;
+    long[] ids;
+    Side[] sides;
+    long[] priceTicks;
+    int[] volumes;
+    long[] timestamps;
+    OrderType[] orderTypes;
+    long[] owners;
+    int[] results;
+    private int size;
+
+    public OrderBatch() {
+        this(64);
+    }
+
+    public OrderBatch(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        types = new byte[capacity];
+        ids = new long[capacity];
+        sides = new Side[capacity];
+        priceTicks = new long[capacity];
+        volumes = new int[capacity];
+        timestamps = new long[capacity];
+        orderTypes = new OrderType[capacity];
+        owners = new long[capacity];
+        results = new int[capacity];
+    }
+
+    public OrderBatch add(long id, Side side, long priceTicks, int volume, long timestamp) {
+        return add(id, side, priceTicks, volume, timestamp, OrderType.LIMIT, TradeMatchingEngine.NO_OWNER);
+    }
+
+    public OrderBatch add(long id, Side side, long priceTicks, int volume, long timestamp, OrderType orderType, long owner) {
+        if (orderType == OrderType.STOP || orderType == OrderType.STOP_LIMIT) {
+            throw new IllegalArgumentException("Stop orders need a stop price, submit them with addOrder(Order)");
+        }
+        int i = append(ADD, id);
+        sides[i] = side;
+        this.priceTicks[i] = priceTicks;
+        volumes[i] = volume;
+        timestamps[i] = timestamp;
+        orderTypes[i] = orderType;
+        owners[i] = owner;
+        return this;
+    }
+
+    public OrderBatch cancel(long id) {
+        append(CANCEL, id);
+        return this;
+    }
+
+    public OrderBatch amend(long id, long priceTicks, int volume, long timestamp) {
+        if (volume <= 0) {
+            throw new IllegalArgumentException("Amended volume must be positive: " + volume);
+        }
+        int i = append(AMEND, id);
+        this.priceTicks[i] = priceTicks;
+        volumes[i] = volume;
+        timestamps[i] = timestamp;
+        return this;
+    }
+
+    private int append(byte type, long id) {
+        if (size == types.length) {
+            grow();
+        }
+        types[size] = type;
+        ids[size] = id;
+        results[size] = 0;
+        return size++;
+    }
+
+    private void grow() {
+        int capacity = types.length * 2;
+        types = Arrays.copyOf(types, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        sides = Arrays.copyOf(sides, capacity);
+        priceTicks = Arrays.copyOf(priceTicks, capacity);
+        volumes = Arrays.copyOf(volumes, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        orderTypes = Arrays.copyOf(orderTypes, capacity);
+        owners = Arrays.copyOf(owners, capacity);
+        results = Arrays.copyOf(results, capacity);
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte typeAt(int index) {
+        checkIndex(index);
+        return types[index];
+    }
+
+    public long idAt(int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    public int resultAt(int index) {
+        checkIndex(index);
+        return results[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of range for " + size + " entries");
+        }
+    }
+}
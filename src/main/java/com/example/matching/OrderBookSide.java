@@ -0,0 +1,441 @@
+package com.example.matching;
+
+import java.util.*;
+
+// One side of the book: price levels sorted best price first, each level a FIFO of orders.
+// Exposed as a Queue so callers can keep using size()/peek()/iteration like the old heaps.
+//
+// Levels live in a sorted primitive ladder (long[] keys + PriceLevel[]), stored worst to best so the
+// best level is always the last slot: fills and new levels near the touch only shift a few entries.
+// Emptied levels go back to a free list, so steady-state trading allocates no levels.
+//
+// Cumulative depth queries run on a Fenwick tree over ladder positions, worst level first. It is not
+// touched on the matching path: a volume change queues its level, once, and a level insert or removal,
+// which shifts every position above it, lowers a "dirty from" key. The next query rebuilds the tree
+// from that position up and applies each queued level below it as an O(log L) point update. Inserts
+// and removals cluster at the touch, which is the end of the ladder, so the rebuild is usually a
+// handful of nodes, and a volume change deep in the book costs no more than one at the touch.
+public class OrderBookSide extends AbstractQueue<TradeMatchingEngine.Order> {
+
+    private static final int INITIAL_LEVELS = 64;
+    private static final long CLEAN = Long.MAX_VALUE;
+
+    private final boolean buySide;
+    // keys[i] is the level price for buys and the negated price for sells, ascending
+    private long[] keys = new long[INITIAL_LEVELS];
+    private PriceLevel[] levels = new PriceLevel[INITIAL_LEVELS];
+    private int levelCount;
+    private int size;
+    private final ArrayDeque<PriceLevel> freeLevels = new ArrayDeque<>();
+    // fenwick[n] sums the indexedVolume at ladder positions [n - lowbit(n), n - 1]; valid below dirtyKey's position
+    private long[] fenwick = new long[INITIAL_LEVELS + 1];
+    private long dirtyKey = CLEAN;
+    // Levels whose volume changed since the last refresh, each once
+    private PriceLevel[] pendingLevels = new PriceLevel[INITIAL_LEVELS];
+    private int pendingCount;
+
+    public OrderBookSide(boolean buySide) {
+        this.buySide = buySide;
+    }
+
+    public boolean isBuySide() {
+        return buySide;
+    }
+
+    private long key(long price) {
+        return buySide ? price : -price;
+    }
+
+    /*
+     * Time complexity:
+     * O(1) when the order joins the best level, otherwise O(log L) level lookup where L is the number
+     * of price levels (not orders). Creating a level also shifts the d levels better than it up one
+     * slot: O(d), O(L) at worst, and only a few entries for a level near the touch
+     */
+    @Override
+    public boolean offer(TradeMatchingEngine.Order order) {
+        return offer(order, order.priceTicks);
+    }
+
+    // Files the order under the given price rather than its own; the engine's stop books key on the stop price
+    boolean offer(TradeMatchingEngine.Order order, long price) {
+        long key = key(price);
+        int index = levelCount > 0 && keys[levelCount - 1] == key ? levelCount - 1 : Arrays.binarySearch(keys, 0, levelCount, key);
+        PriceLevel level;
+        if (index >= 0) {
+            level = levels[index];
+        } else {
+            level = insertLevel(-index - 1, key, price);
+        }
+        level.add(order);
+        size++;
+        return true;
+    }
+
+    private PriceLevel insertLevel(int index, long key, long price) {
+        if (levelCount == keys.length) {
+            keys = Arrays.copyOf(keys, levelCount * 2);
+            levels = Arrays.copyOf(levels, levelCount * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, levelCount - index);
+        System.arraycopy(levels, index, levels, index + 1, levelCount - index);
+        PriceLevel level = freeLevels.poll();
+        if (level == null) {
+            level = new PriceLevel(price);
+        } else {
+            level.price = price;
+            level.touched = false; // an earlier price may still be queued in a TouchedLevels
+        }
+        keys[index] = key;
+        levels[index] = level;
+        levelCount++;
+        markDirty(key);
+        return level;
+    }
+
+    // O(1) best price lookup
+    @Override
+    public TradeMatchingEngine.Order peek() {
+        return levelCount == 0 ? null : levels[levelCount - 1].head;
+    }
+
+    @Override
+    public TradeMatchingEngine.Order poll() {
+        TradeMatchingEngine.Order order = peek();
+        if (order != null) {
+            removeOrder(order);
+        }
+        return order;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!contains(o)) {
+            return false;
+        }
+        removeOrder((TradeMatchingEngine.Order) o);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof TradeMatchingEngine.Order order) || order.level == null) {
+            return false;
+        }
+        return getLevel(order.level.price) == order.level;
+    }
+
+    /*
+     * Time complexity:
+     * O(1) unlinking from the level, O(1) to drop an emptied best level. Any other emptied level costs
+     * an O(log L) search plus an O(d) shift of the d levels better than it, O(L) at worst
+     * The caller must know the order rests on this side, the engine does via orderMap
+     */
+    void removeOrder(TradeMatchingEngine.Order order) {
+        PriceLevel level = order.level;
+        level.remove(order);
+        size--;
+        if (level.isEmpty()) {
+            int index = levels[levelCount - 1] == level ? levelCount - 1 : Arrays.binarySearch(keys, 0, levelCount, key(level.price));
+            System.arraycopy(keys, index + 1, keys, index, levelCount - index - 1);
+            System.arraycopy(levels, index + 1, levels, index, levelCount - index - 1);
+            levelCount--;
+            levels[levelCount] = null;
+            level.totalVolume = 0;
+            freeLevels.push(level);
+            markDirty(key(level.price));
+        }
+    }
+
+    public PriceLevel getBestLevel() {
+        return levelCount == 0 ? null : levels[levelCount - 1];
+    }
+
+    // O(log L) lookup by price in ticks, null if nothing rests there
+    public PriceLevel getLevel(long price) {
+        int index = Arrays.binarySearch(keys, 0, levelCount, key(price));
+        return index >= 0 ? levels[index] : null;
+    }
+
+    // Level by priority rank, 0 being the best price
+    public PriceLevel getLevelAt(int rank) {
+        return levels[levelCount - 1 - rank];
+    }
+
+    // Level by ascending price rank, 0 being the lowest price on this side
+    public PriceLevel getLevelAtAscending(int index) {
+        return buySide ? levels[index] : levels[levelCount - 1 - index];
+    }
+
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    // O(1): true if a level at this price ranks among the best n (or would, once inserted)
+    boolean isWithinTop(long price, int n) {
+        return levelCount <= n || key(price) >= keys[levelCount - n];
+    }
+
+    /*
+     * Time complexity:
+     * O(levels touched): true if the levels a taker limited at limitPrice would trade against hold at
+     * least volume in total. Reads only the level aggregates, never an order
+     */
+    boolean hasVolume(long limitPrice, long volume) {
+        long limitKey = key(limitPrice);
+        long available = 0;
+        for (int i = levelCount - 1; i >= 0 && keys[i] >= limitKey; i--) {
+            available += levels[i].totalVolume;
+            if (available >= volume) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // O(1) amortised; the engine calls this whenever a level's totalVolume changes
+    void volumeChanged(PriceLevel level) {
+        if (level.volumePending || key(level.price) >= dirtyKey) {
+            return; // already queued, or in the part the next refresh rebuilds anyway
+        }
+        if (pendingCount == pendingLevels.length) {
+            pendingLevels = Arrays.copyOf(pendingLevels, pendingCount * 2);
+        }
+        pendingLevels[pendingCount++] = level;
+        level.volumePending = true;
+    }
+
+    private void markDirty(long key) {
+        if (key < dirtyKey) {
+            dirtyKey = key;
+        }
+    }
+
+    // First ladder position whose key is >= key
+    private int lowerBound(long key) {
+        int index = Arrays.binarySearch(keys, 0, levelCount, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    // Ladder positions worse than price: levels priced below it for buys, above it for sells. Sell keys
+    // are negated prices and -Long.MIN_VALUE overflows, so the open end is answered before negating
+    private int positionsWorseThan(long price) {
+        if (buySide) {
+            return lowerBound(price);
+        }
+        return price == Long.MIN_VALUE ? levelCount : lowerBound(-price);
+    }
+
+    // Ladder positions up to and including price: levels priced at or below it for buys, at or above
+    // it for sells
+    private int positionsUpTo(long price) {
+        if (buySide) {
+            return price == Long.MAX_VALUE ? levelCount : lowerBound(price + 1);
+        }
+        return price <= Long.MIN_VALUE + 1 ? levelCount : lowerBound(-price + 1);
+    }
+
+    /*
+     * Time complexity:
+     * O(1) when clean, otherwise O(k log L) for the k levels whose volume changed, plus
+     * O((L - p) log L) where p is the lowest ladder position a level was inserted at or removed from
+     * Queued levels below p are point updates, which must come first: node n of the rebuild is its
+     * own level plus its children n - 1, n - 2, n - 4... below lowbit(n), and children below p are
+     * kept while the ones above were just rebuilt, in ascending order.
+     */
+    private void refreshFenwick() {
+        if (dirtyKey == CLEAN && pendingCount == 0) {
+            return;
+        }
+        int from;
+        if (fenwick.length <= levelCount) {
+            fenwick = new long[keys.length + 1];
+            from = 0;
+        } else {
+            from = dirtyKey == CLEAN ? levelCount : lowerBound(dirtyKey);
+        }
+        for (int i = 0; i < pendingCount; i++) {
+            PriceLevel level = pendingLevels[i];
+            pendingLevels[i] = null;
+            level.volumePending = false;
+            // A queued level may since have been emptied, or freed and reused at a price the rebuild covers
+            int index = Arrays.binarySearch(keys, 0, from, key(level.price));
+            if (index >= 0 && levels[index] == level) {
+                long delta = level.totalVolume - level.indexedVolume;
+                level.indexedVolume = level.totalVolume;
+                for (int n = index + 1; n <= from; n += n & -n) {
+                    fenwick[n] += delta;
+                }
+            }
+        }
+        pendingCount = 0;
+        for (int n = from + 1; n <= levelCount; n++) {
+            PriceLevel level = levels[n - 1];
+            level.indexedVolume = level.totalVolume;
+            long sum = level.totalVolume;
+            int lowbit = n & -n;
+            for (int child = 1; child < lowbit; child <<= 1) {
+                sum += fenwick[n - child];
+            }
+            fenwick[n] = sum;
+        }
+        dirtyKey = CLEAN;
+    }
+
+    // Volume at the first count ladder positions, worst first
+    private long prefix(int count) {
+        long sum = 0;
+        for (int n = count; n > 0; n -= n & -n) {
+            sum += fenwick[n];
+        }
+        return sum;
+    }
+
+    // Total resting volume on this side. O(log L) once the tree is fresh
+    public long totalVolume() {
+        refreshFenwick();
+        return prefix(levelCount);
+    }
+
+    /*
+     * Time complexity: O(log L) once the tree is fresh
+     * Volume resting at price or better: at or above it for buys, at or below it for sells. This is
+     * what a taker limited at price could trade against on this side.
+     */
+    public long volumeUpTo(long price) {
+        refreshFenwick();
+        return prefix(levelCount) - prefix(positionsWorseThan(price));
+    }
+
+    /*
+     * Time complexity: O(log L) once the tree is fresh, by descending the tree instead of scanning levels
+     * Worst price a taker has to reach to trade volume against this side, best levels first, or
+     * TradeMatchingEngine.NO_TICKS if the whole side holds less.
+     */
+    public long priceToFill(long volume) {
+        if (volume <= 0) {
+            throw new IllegalArgumentException("Volume must be positive: " + volume);
+        }
+        refreshFenwick();
+        long total = prefix(levelCount);
+        if (volume > total) {
+            return TradeMatchingEngine.NO_TICKS;
+        }
+        // Largest position p with prefix(p) <= total - volume: the levels from p up hold enough
+        long remaining = total - volume;
+        int position = 0;
+        for (int step = Integer.highestOneBit(levelCount); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= levelCount && fenwick[next] <= remaining) {
+                position = next;
+                remaining -= fenwick[next];
+            }
+        }
+        return levels[position].price;
+    }
+
+    /*
+     * Time complexity: O(log L + k), k being the number of levels copied
+     * Copies the levels priced within [fromPrice, toPrice] into range, ascending by price, replacing
+     * what it held. Seeks straight to fromPrice; nothing is allocated once range has grown to fit.
+     */
+    public DepthRange copyRange(long fromPrice, long toPrice, DepthRange range) {
+        range.clear();
+        if (fromPrice > toPrice) {
+            return range;
+        }
+        if (buySide) {
+            for (int i = positionsWorseThan(fromPrice); i < levelCount && levels[i].price <= toPrice; i++) {
+                range.add(levels[i].price, levels[i].totalVolume);
+            }
+        } else {
+            // Positions run from the highest price down: walk back from the lowest price at or above fromPrice
+            for (int i = positionsUpTo(fromPrice) - 1; i >= 0 && levels[i].price <= toPrice; i--) {
+                range.add(levels[i].price, levels[i].totalVolume);
+            }
+        }
+        return range;
+    }
+
+    /*
+     * Ladder positions [rangeStart, rangeEnd) hold the levels priced within [fromPrice, toPrice].
+     * Positions run worst to best. O(log L) each
+     */
+    int rangeStart(long fromPrice, long toPrice) {
+        return positionsWorseThan(buySide ? fromPrice : toPrice);
+    }
+
+    int rangeEnd(long fromPrice, long toPrice) {
+        return positionsUpTo(buySide ? toPrice : fromPrice);
+    }
+
+    PriceLevel levelAtPosition(int position) {
+        return levels[position];
+    }
+
+    /*
+     * Drops the levels at positions [start, end) with every order on them in one shift of the ladder.
+     * The caller has already detached the orders (mass cancel); the levels go back to the free list.
+     * Time complexity: O(L - start)
+     */
+    void removeLevels(int start, int end) {
+        int removed = end - start;
+        if (removed <= 0) {
+            return;
+        }
+        markDirty(keys[start]);
+        for (int i = start; i < end; i++) {
+            PriceLevel level = levels[i];
+            size -= level.orderCount;
+            level.head = null;
+            level.tail = null;
+            level.orderCount = 0;
+            level.totalVolume = 0;
+            freeLevels.push(level);
+        }
+        System.arraycopy(keys, end, keys, start, levelCount - end);
+        System.arraycopy(levels, end, levels, start, levelCount - end);
+        for (int i = levelCount - removed; i < levelCount; i++) {
+            levels[i] = null;
+        }
+        levelCount -= removed;
+    }
+
+    // Ascending price index of the lowest level priced at or above price, getLevelCount() if none. O(log L)
+    int ascendingIndexOf(long price) {
+        return buySide ? positionsWorseThan(price) : levelCount - positionsUpTo(price);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Iterates orders in full price-time priority
+    @Override
+    public Iterator<TradeMatchingEngine.Order> iterator() {
+        return new Iterator<>() {
+            private int rank;
+            private TradeMatchingEngine.Order next = advanceLevel();
+
+            private TradeMatchingEngine.Order advanceLevel() {
+                return rank < levelCount ? getLevelAt(rank++).head : null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public TradeMatchingEngine.Order next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                TradeMatchingEngine.Order current = next;
+                next = current.next != null ? current.next : advanceLevel();
+                return current;
+            }
+        };
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.matching;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Fixed-layout binary order-entry protocol. Every message is a 4 byte header followed by a fixed
+// body, little-endian. The nested flyweights read and write fields in place at an offset in a
+// ByteBuffer, so decoding a message allocates nothing: wrap, read the fields, move on.
+//
+//  Header           short length (header included), byte type, byte version
+//  NEW_ORDER    28  long clientOrderId, long priceTicks, int volume, byte side (0 buy, 1 sell),
+//                   byte orderType (OrderType ordinal, 0 limit), 2 pad
+//  CANCEL       12  long clientOrderId
+//  AMEND        28  long clientOrderId, long priceTicks, int volume, 4 pad
+//  EXEC_REPORT  36  long clientOrderId, long priceTicks, int lastQuantity, int leavesQuantity,
+//                   byte execType, 7 pad
+//  LOGON        20  long account, long token (SessionServer only, the first message of a session)
+//  LOGON_REPLY  20  long account, byte status (0 accepted, 1 rejected), 7 pad
+public final class OrderEntryCodec {
+
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    public static final int HEADER_LENGTH = 4;
+    public static final byte VERSION = 1;
+
+    public static final byte NEW_ORDER = 1;
+    public static final byte CANCEL = 2;
+    public static final byte AMEND = 3;
+    public static final byte LOGON = 4;
+    public static final byte EXECUTION_REPORT = 10;
+    public static final byte LOGON_REPLY = 11;
+
+    private OrderEntryCodec() {
+    }
+
+    // Length of the message whose header starts at offset, or 0 if the header is not all there yet
+    public static int messageLength(ByteBuffer buffer, int offset, int limit) {
+        return limit - offset < HEADER_LENGTH ? 0 : buffer.getShort(offset) & 0xFFFF;
+    }
+
+    public static byte messageType(ByteBuffer buffer, int offset) {
+        return buffer.get(offset + 2);
+    }
+
+    private static void putHeader(ByteBuffer buffer, int offset, int length, byte type) {
+        buffer.putShort(offset, (short) length);
+        buffer.put(offset + 2, type);
+        buffer.put(offset + 3, VERSION);
+    }
+
+    abstract static class Flyweight {
+        ByteBuffer buffer;
+        int offset;
+
+        void attach(ByteBuffer buffer, int offset) {
+            this.buffer = buffer;
+            this.offset = offset;
+        }
+    }
+
+    public static final class NewOrder extends Flyweight {
+        public static final int LENGTH = HEADER_LENGTH + 24;
+
+        public NewOrder wrap(ByteBuffer buffer, int offset) {
+            attach(buffer, offset);
+            return this;
+        }
+
+        public long clientOrderId() {
+            return buffer.getLong(offset + 4);
+        }
+
+        public long priceTicks() {
+            return buffer.getLong(offset + 12);
+        }
+
+        public int volume() {
+            return buffer.getInt(offset + 20);
+        }
+
+        // Null for a wire value other than 0 (buy) or 1 (sell), which the receiver rejects
+        public Side side() {
+            return switch (buffer.get(offset + 24)) {
+                case 0 -> Side.BUY;
+                case 1 -> Side.SELL;
+                default -> null;
+            };
+        }
+
+        // Raw wire value, checked by the receiver with OrderType.of
+        public byte orderType() {
+            return buffer.get(offset + 25);
+        }
+
+        // Writes a complete limit order message at offset
+        public NewOrder encode(ByteBuffer buffer, int offset, long clientOrderId, Side side, long priceTicks, int volume) {
+            return encode(buffer, offset, clientOrderId, side, priceTicks, volume, OrderType.LIMIT);
+        }
+
+        public NewOrder encode(ByteBuffer buffer, int offset, long clientOrderId, Side side, long priceTicks, int volume,
+                               OrderType orderType) {
+            wrap(buffer, offset);
+            putHeader(buffer, offset, LENGTH, NEW_ORDER);
+            buffer.putLong(offset + 4, clientOrderId);
+            buffer.putLong(offset + 12, priceTicks);
+            buffer.putInt(offset + 20, volume);
+            buffer.put(offset + 24, side == Side.BUY ? (byte) 0 : (byte) 1);
+            buffer.put(offset + 25, (byte) orderType.ordinal());
+            return this;
+        }
+    }
+
+    public static final class Cancel extends Flyweight {
+        public static final int LENGTH = HEADER_LENGTH + 8;
+
+        public Cancel wrap(ByteBuffer buffer, int offset) {
+            attach(buffer, offset);
+            return this;
+        }
+
+        public long clientOrderId() {
+            return buffer.getLong(offset + 4);
+        }
+
+        public Cancel encode(ByteBuffer buffer, int offset, long clientOrderId) {
+            wrap(buffer, offset);
+            putHeader(buffer, offset, LENGTH, CANCEL);
+            buffer.putLong(offset + 4, clientOrderId);
+            return this;
+        }
+    }
+
+    public static final class Amend extends Flyweight {
+        public static final int LENGTH = HEADER_LENGTH + 24;
+
+        public Amend wrap(ByteBuffer buffer, int offset) {
+            attach(buffer, offset);
+            return this;
+        }
+
+        public long clientOrderId() {
+            return buffer.getLong(offset + 4);
+        }
+
+        public long priceTicks() {
+            return buffer.getLong(offset + 12);
+        }
+
+        public int volume() {
+            return buffer.getInt(offset + 20);
+        }
+
+        public Amend encode(ByteBuffer buffer, int offset, long clientOrderId, long priceTicks, int volume) {
+            wrap(buffer, offset);
+            putHeader(buffer, offset, LENGTH, AMEND);
+            buffer.putLong(offset + 4, clientOrderId);
+            buffer.putLong(offset + 12, priceTicks);
+            buffer.putInt(offset + 20, volume);
+            return this;
+        }
+    }
+
+    public static final class ExecutionReport extends Flyweight {
+        public static final int LENGTH = HEADER_LENGTH + 32;
+
+        public static final byte NEW = 0;        // resting in the book
+        public static final byte FILL = 1;       // lastQuantity traded at priceTicks
+        public static final byte CANCELLED = 2;
+        public static final byte REJECTED = 3;   // unknown order, bad message or duplicate id
+        public static final byte AMENDED = 4;
+        public static final byte EXPIRED = 5;    // reached its good till date
+
+        public ExecutionReport wrap(ByteBuffer buffer, int offset) {
+            attach(buffer, offset);
+            return this;
+        }
+
+        public long clientOrderId() {
+            return buffer.getLong(offset + 4);
+        }
+
+        public long priceTicks() {
+            return buffer.getLong(offset + 12);
+        }
+
+        public int lastQuantity() {
+            return buffer.getInt(offset + 20);
+        }
+
+        public int leavesQuantity() {
+            return buffer.getInt(offset + 24);
+        }
+
+        public byte execType() {
+            return buffer.get(offset + 28);
+        }
+
+        public ExecutionReport encode(ByteBuffer buffer, int offset, long clientOrderId, byte execType, long priceTicks,
+                                      int lastQuantity, int leavesQuantity) {
+            wrap(buffer, offset);
+            putHeader(buffer, offset, LENGTH, EXECUTION_REPORT);
+            buffer.putLong(offset + 4, clientOrderId);
+            buffer.putLong(offset + 12, priceTicks);
+            buffer.putInt(offset + 20, lastQuantity);
+            buffer.putInt(offset + 24, leavesQuantity);
+            buffer.put(offset + 28, execType);
+            return this;
+        }
+    }
+
+    public static final class Logon extends Flyweight {
+        public static final int LENGTH = HEADER_LENGTH + 16;
+
+        public Logon wrap(ByteBuffer buffer, int offset) {
+            attach(buffer, offset);
+            return this;
+        }
+
+        public long account() {
+            return buffer.getLong(offset + 4);
+        }
+
+        public long token() {
+            return buffer.getLong(offset + 12);
+        }
+
+        public Logon encode(ByteBuffer buffer, int offset, long account, long token) {
+            wrap(buffer, offset);
+            putHeader(buffer, offset, LENGTH, LOGON);
+            buffer.putLong(offset + 4, account);
+            buffer.putLong(offset + 12, token);
+            return this;
+        }
+    }
+
+    public static final class LogonReply extends Flyweight {
+        public static final int LENGTH = HEADER_LENGTH + 16;
+
+        public static final byte ACCEPTED = 0;
+        public static final byte REJECTED = 1;
+
+        public LogonReply wrap(ByteBuffer buffer, int offset) {
+            attach(buffer, offset);
+            return this;
+        }
+
+        public long account() {
+            return buffer.getLong(offset + 4);
+        }
+
+        public byte status() {
+            return buffer.get(offset + 12);
+        }
+
+        public LogonReply encode(ByteBuffer buffer, int offset, long account, byte status) {
+            wrap(buffer, offset);
+            putHeader(buffer, offset, LENGTH, LOGON_REPLY);
+            buffer.putLong(offset + 4, account);
+            buffer.put(offset + 12, status);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.example.matching;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Non-blocking TCP order-entry gateway speaking the OrderEntryCodec protocol.
+//
+// One selector thread owns both the sockets and the engine: each readable session's buffer is decoded
+// in place through the flyweights and turned straight into engine calls, then the engine's events
+// are drained from its ring buffer on the same thread and encoded as execution reports into the
+// sessions' write buffers, which are flushed once per select loop.
+//
+// Orders run in the engine's long-ID mode: the engine id is the session number in the high 32 bits and
+// the client order id in the low 32, so client ids must fit in 32 bits and nothing is allocated or
+// looked up per order on the gateway side; reports are routed back by decoding the id.
+//
+// Amends go through engine.amendOrder: a same-price decrease keeps time priority, anything else is a
+// cancel/replace that loses it. What an IOC, FOK or market order does not trade is reported as
+// CANCELLED. Every order carries its session as owner; orders of a disconnected session stay in the
+// book unless cancel-on-disconnect is on, in which case one engine.cancelAll(owner) removes them at the
+// end of that select loop. A session whose write buffer cannot drain is disconnected rather than
+// stalling the loop. A disconnected session's id is reused once none of its orders is left in the book,
+// so a new session can never receive reports for, or collide with, an old one's orders.
+//
+// Reports are encoded as the engine publishes each event, not after the engine call returns, so a
+// sweep through more of the book than the ring holds loses nothing. If events are lost anyway, with a
+// caller's ring shared with a slower consumer, there is no telling whose orders they were about, so
+// every session is disconnected rather than left with a wrong view of its orders. That, a failing
+// report and an I/O error that stops the gateway all go to its ErrorHandler.
+public class OrderGateway implements Runnable, AutoCloseable {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+    // Wire values accepted in NewOrder; stops need a stop price the protocol does not carry
+    private static final OrderType[] ORDER_TYPES = {OrderType.LIMIT, OrderType.IOC, OrderType.FOK, OrderType.MARKET};
+
+    private final TradeMatchingEngine engine;
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final EventRingBuffer ring;
+    private final EventProcessor reports;
+    private final Thread thread;
+    private volatile boolean running;
+
+    // Gateway thread only
+    private final List<Session> sessions = new ArrayList<>(); // by session id, null once disconnected
+    private final List<Integer> freeSessionIds = new ArrayList<>();
+    private long droppedEvents;
+    private final List<Session> dirtySessions = new ArrayList<>();
+    private final OrderEntryCodec.NewOrder newOrder = new OrderEntryCodec.NewOrder();
+    private final OrderEntryCodec.Cancel cancel = new OrderEntryCodec.Cancel();
+    private final OrderEntryCodec.Amend amend = new OrderEntryCodec.Amend();
+    private final OrderEntryCodec.ExecutionReport report = new OrderEntryCodec.ExecutionReport();
+    private long messagesReceived;
+    private long amendingId = -1; // engine id whose amend is in flight
+    private boolean cancelOnDisconnect;
+    private ErrorHandler errorHandler = ErrorHandler.LOG;
+    private final List<Session> disconnected = new ArrayList<>(); // sessions whose orders are still to cancel
+
+    private static final class Session {
+        final int id;
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE).order(OrderEntryCodec.BYTE_ORDER);
+        final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(OrderEntryCodec.BYTE_ORDER);
+        boolean dirty;
+        boolean closed;
+
+        Session(int id, SocketChannel channel, SelectionKey key) {
+            this.id = id;
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    public OrderGateway(TradeMatchingEngine engine, InetSocketAddress address) throws IOException {
+        this.engine = engine;
+        if (engine.getEventRingBuffer() == null) {
+            // Drained on every publish, on the gateway thread, so it can never fill up
+            engine.setEventRingBuffer(new EventRingBuffer(1 << 16) {
+                @Override
+                public void publish() {
+                    super.publish();
+                    reports.processAvailable();
+                }
+            });
+        }
+        this.ring = engine.getEventRingBuffer();
+        this.droppedEvents = ring.getDroppedEvents();
+        this.reports = new EventProcessor(ring, (event, sequence, endOfBatch) -> onEvent(event), WaitStrategy.busySpin(),
+                (message, error) -> errorHandler.onError(message, error));
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(address, 4096);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        this.thread = new Thread(this, "order-gateway");
+    }
+
+    // Call before start()
+    public OrderGateway withCancelOnDisconnect() {
+        this.cancelOnDisconnect = true;
+        return this;
+    }
+
+    // Call before start(); called on the gateway thread
+    public OrderGateway withErrorHandler(ErrorHandler errorHandler) {
+        this.errorHandler = errorHandler;
+        return this;
+    }
+
+    public OrderGateway start() {
+        running = true;
+        thread.start();
+        return this;
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(100);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Session session = (Session) key.attachment();
+                    if (key.isReadable()) {
+                        read(session);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        flush(session);
+                    }
+                }
+                // Not done inside disconnect(): that can run while the engine is mid-command publishing reports
+                for (Session session : disconnected) {
+                    engine.cancelAll(owner(session));
+                    drainReports();
+                }
+                disconnected.clear();
+                for (Session session : dirtySessions) {
+                    session.dirty = false;
+                    flush(session);
+                }
+                dirtySessions.clear();
+            }
+        } catch (IOException e) {
+            errorHandler.onError("Order gateway stopped", e);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            int id = freeSessionId();
+            Session session = new Session(id, channel, key);
+            if (id == sessions.size()) {
+                sessions.add(session);
+            } else {
+                sessions.set(id, session);
+            }
+            key.attach(session);
+        }
+    }
+
+    // A disconnected session's id whose orders have all left the book, or the next new one
+    private int freeSessionId() {
+        for (int i = 0; i < freeSessionIds.size(); i++) {
+            int id = freeSessionIds.get(i);
+            if (!engine.hasOrders(id + 1L)) {
+                freeSessionIds.remove(i);
+                return id;
+            }
+        }
+        return sessions.size();
+    }
+
+    private void read(Session session) {
+        ByteBuffer buffer = session.readBuffer;
+        int read;
+        try {
+            read = session.channel.read(buffer);
+        } catch (IOException e) {
+            read = -1;
+        }
+        if (read < 0) {
+            disconnect(session);
+            return;
+        }
+        // Decode every complete message in place, then keep any partial one for the next read
+        int limit = buffer.position();
+        int offset = 0;
+        while (true) {
+            int length = OrderEntryCodec.messageLength(buffer, offset, limit);
+            if (length == 0 || offset + length > limit) {
+                break;
+            }
+            if (length < OrderEntryCodec.HEADER_LENGTH || !dispatch(session, buffer, offset, length)) {
+                disconnect(session);
+                return;
+            }
+            offset += length;
+        }
+        buffer.limit(limit).position(offset);
+        buffer.compact();
+    }
+
+    // Returns false on a malformed message
+    private boolean dispatch(Session session, ByteBuffer buffer, int offset, int length) {
+        messagesReceived++;
+        switch (OrderEntryCodec.messageType(buffer, offset)) {
+            case OrderEntryCodec.NEW_ORDER -> {
+                if (length != OrderEntryCodec.NewOrder.LENGTH) {
+                    return false;
+                }
+                newOrder.wrap(buffer, offset);
+                long clientOrderId = newOrder.clientOrderId();
+                long orderId = engineOrderId(session, clientOrderId);
+                int orderType = newOrder.orderType();
+                Side side = newOrder.side();
+                if (newOrder.volume() <= 0 || side == null || orderId < 0 || orderType < 0 || orderType >= ORDER_TYPES.length
+                        || engine.getOrder(orderId) != null) {
+                    sendReport(session, clientOrderId, OrderEntryCodec.ExecutionReport.REJECTED, newOrder.priceTicks(), 0, 0);
+                    return true;
+                }
+                engine.addOrder(orderId, side, newOrder.priceTicks(), newOrder.volume(), System.nanoTime(),
+                        ORDER_TYPES[orderType], owner(session));
+            }
+            case OrderEntryCodec.CANCEL -> {
+                if (length != OrderEntryCodec.Cancel.LENGTH) {
+                    return false;
+                }
+                cancel.wrap(buffer, offset);
+                long orderId = engineOrderId(session, cancel.clientOrderId());
+                if (orderId < 0 || engine.getOrder(orderId) == null) {
+                    sendReport(session, cancel.clientOrderId(), OrderEntryCodec.ExecutionReport.REJECTED, 0, 0, 0);
+                    return true;
+                }
+                engine.deleteOrder(orderId);
+            }
+            case OrderEntryCodec.AMEND -> {
+                if (length != OrderEntryCodec.Amend.LENGTH) {
+                    return false;
+                }
+                amend.wrap(buffer, offset);
+                long orderId = engineOrderId(session, amend.clientOrderId());
+                if (orderId < 0 || amend.volume() <= 0 || engine.getOrder(orderId) == null) {
+                    sendReport(session, amend.clientOrderId(), OrderEntryCodec.ExecutionReport.REJECTED, amend.priceTicks(), 0, 0);
+                    return true;
+                }
+                // AMENDED is reported from the engine event; the ACCEPTED that follows a re-priced amend is swallowed
+                amendingId = orderId;
+                engine.amendOrder(orderId, amend.priceTicks(), amend.volume(), System.nanoTime());
+                drainReports();
+                amendingId = -1;
+            }
+            default -> {
+                return false;
+            }
+        }
+        drainReports();
+        return true;
+    }
+
+    private void drainReports() {
+        reports.processAvailable();
+        long dropped = ring.getDroppedEvents();
+        if (dropped != droppedEvents) {
+            errorHandler.onError("Order gateway lost " + (dropped - droppedEvents) + " engine events, disconnecting every session", null);
+            droppedEvents = dropped;
+            for (int i = 0; i < sessions.size(); i++) {
+                Session session = sessions.get(i);
+                if (session != null) {
+                    disconnect(session);
+                }
+            }
+        }
+    }
+
+    // -1 if the client id does not fit in the low 32 bits
+    private static long engineOrderId(Session session, long clientOrderId) {
+        return (clientOrderId >>> 32) != 0 ? -1 : (long) session.id << 32 | clientOrderId;
+    }
+
+    // Session ids start at 0, which the engine reserves for no owner
+    private static long owner(Session session) {
+        return session.id + 1L;
+    }
+
+    private void onEvent(BookEvent event) {
+        switch (event.type) {
+            case ACCEPTED -> {
+                if (event.id != amendingId) {
+                    report(event.id, OrderEntryCodec.ExecutionReport.NEW, event.priceTicks, 0, (int) event.volume);
+                }
+            }
+            case AMENDED -> report(event.id, OrderEntryCodec.ExecutionReport.AMENDED, event.priceTicks, 0, (int) event.volume);
+            case FILL -> {
+                // The aggressor of an amend that trades right away is reported as fills only
+                report(event.id, OrderEntryCodec.ExecutionReport.FILL, event.priceTicks, (int) event.volume, event.remainingVolume);
+                report(event.counterpartyId, OrderEntryCodec.ExecutionReport.FILL, event.priceTicks, (int) event.volume,
+                        event.counterpartyRemainingVolume);
+            }
+            case CANCELLED -> report(event.id, OrderEntryCodec.ExecutionReport.CANCELLED, event.priceTicks, 0, 0);
+            case EXPIRED -> report(event.id, OrderEntryCodec.ExecutionReport.EXPIRED, event.priceTicks, 0, 0);
+            case DEPTH -> {
+            }
+        }
+    }
+
+    private void report(long orderId, byte execType, long priceTicks, int lastQuantity, int leaves) {
+        Session session = sessions.get((int) (orderId >>> 32));
+        if (session != null) {
+            sendReport(session, orderId & 0xFFFFFFFFL, execType, priceTicks, lastQuantity, leaves);
+        }
+    }
+
+    private void sendReport(Session session, long clientOrderId, byte execType, long priceTicks, int lastQuantity, int leaves) {
+        if (session.closed) {
+            return;
+        }
+        ByteBuffer buffer = session.writeBuffer;
+        if (buffer.remaining() < OrderEntryCodec.ExecutionReport.LENGTH) {
+            flush(session);
+            if (buffer.remaining() < OrderEntryCodec.ExecutionReport.LENGTH) {
+                disconnect(session); // slow consumer
+                return;
+            }
+        }
+        int offset = buffer.position();
+        report.encode(buffer, offset, clientOrderId, execType, priceTicks, lastQuantity, leaves);
+        buffer.position(offset + OrderEntryCodec.ExecutionReport.LENGTH);
+        if (!session.dirty) {
+            session.dirty = true;
+            dirtySessions.add(session);
+        }
+    }
+
+    private void flush(Session session) {
+        if (session.closed) {
+            return;
+        }
+        ByteBuffer buffer = session.writeBuffer;
+        buffer.flip();
+        try {
+            session.channel.write(buffer);
+        } catch (IOException e) {
+            buffer.clear();
+            disconnect(session);
+            return;
+        }
+        buffer.compact();
+        // Ask the selector to tell us when the socket can take the rest
+        int ops = buffer.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (session.key.interestOps() != ops) {
+            session.key.interestOps(ops);
+        }
+    }
+
+    private void disconnect(Session session) {
+        if (session.closed) {
+            return;
+        }
+        session.closed = true;
+        sessions.set(session.id, null); // its resting orders may still trade, their reports are dropped
+        freeSessionIds.add(session.id);
+        session.key.cancel();
+        try {
+            session.channel.close();
+        } catch (IOException ignored) {
+            // already gone
+        }
+        if (cancelOnDisconnect) {
+            disconnected.add(session);
+        }
+    }
+
+    // Messages decoded so far; read from the gateway thread or after close()
+    public long getMessagesReceived() {
+        return messagesReceived;
+    }
+
+    @Override
+    public void close() throws IOException, InterruptedException {
+        running = false;
+        selector.wakeup();
+        if (thread.isAlive()) {
+            thread.join();
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+        reports.halt();
+    }
+}
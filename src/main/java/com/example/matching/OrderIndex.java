@@ -0,0 +1,119 @@
+package com.example.matching;
+
+import java.util.Arrays;
+
+// orderId -> resting Order index using open addressing with linear probing.
+// The key is the order's own orderId, so entries are just array slots: no per-entry node allocation
+// the way HashMap.put has. Deletion shifts the probe chain back instead of leaving tombstones.
+public class OrderIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private TradeMatchingEngine.Order[] slots;
+    private int mask;
+    private int size;
+
+    public OrderIndex() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public OrderIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize * 2 - 1, 16)) << 1;
+        slots = new TradeMatchingEngine.Order[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    // O(1) expected
+    public TradeMatchingEngine.Order get(String orderId) {
+        int i = hash(orderId) & mask;
+        TradeMatchingEngine.Order order;
+        while ((order = slots[i]) != null) {
+            if (order.orderId.equals(orderId)) {
+                return order;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    // Replaces any order already indexed under the same id, like Map.put
+    public void put(TradeMatchingEngine.Order order) {
+        int i = hash(order.orderId) & mask;
+        TradeMatchingEngine.Order existing;
+        while ((existing = slots[i]) != null) {
+            if (existing.orderId.equals(order.orderId)) {
+                slots[i] = order;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        slots[i] = order;
+        // Keep the load factor at or below one half
+        if (++size * 2 > slots.length) {
+            resize();
+        }
+    }
+
+    public TradeMatchingEngine.Order remove(String orderId) {
+        int i = hash(orderId) & mask;
+        TradeMatchingEngine.Order order;
+        while ((order = slots[i]) != null) {
+            if (order.orderId.equals(orderId)) {
+                deleteSlot(i);
+                size--;
+                return order;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    // Backward-shift deletion: pull later entries of the probe chain into the gap
+    private void deleteSlot(int gap) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            TradeMatchingEngine.Order order = slots[i];
+            if (order == null) {
+                break;
+            }
+            int home = hash(order.orderId) & mask;
+            // Move the entry if its home slot is not in the cyclic range (gap, i]
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                slots[gap] = order;
+                gap = i;
+            }
+        }
+        slots[gap] = null;
+    }
+
+    private void resize() {
+        TradeMatchingEngine.Order[] old = slots;
+        slots = new TradeMatchingEngine.Order[old.length * 2];
+        mask = slots.length - 1;
+        for (TradeMatchingEngine.Order order : old) {
+            if (order != null) {
+                int i = hash(order.orderId) & mask;
+                while (slots[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = order;
+            }
+        }
+    }
+
+    // O(capacity), for dropping every entry at once rather than one remove per order
+    public void clear() {
+        Arrays.fill(slots, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.matching;
+
+import java.util.Arrays;
+
+// Free list of Order objects recycled by the engine once they fill or are cancelled.
+// Only orders handed out by acquire() are ever released, caller-built orders are left alone.
+public class OrderPool {
+
+    private TradeMatchingEngine.Order[] free;
+    private int freeCount;
+    private long created;
+
+    public OrderPool(int initialCapacity) {
+        free = new TradeMatchingEngine.Order[Math.max(initialCapacity, 16)];
+        for (int i = 0; i < initialCapacity; i++) {
+            free[freeCount++] = newOrder();
+        }
+    }
+
+    private TradeMatchingEngine.Order newOrder() {
+        TradeMatchingEngine.Order order = new TradeMatchingEngine.Order(null, Side.BUY, Double.NaN, 0, 0);
+        order.pooled = true;
+        created++;
+        return order;
+    }
+
+    // O(1), only allocates when the pool has run dry
+    public TradeMatchingEngine.Order acquire() {
+        return freeCount > 0 ? free[--freeCount] : newOrder();
+    }
+
+    // O(1), the caller must not touch the order afterwards
+    public void release(TradeMatchingEngine.Order order) {
+        order.orderId = null;
+        order.id = 0;
+        order.level = null;
+        order.prev = null;
+        order.next = null;
+        order.volume = 0;
+        order.orderType = OrderType.LIMIT;
+        order.stopTicks = TradeMatchingEngine.NO_TICKS;
+        order.owner = TradeMatchingEngine.NO_OWNER;
+        order.ownerPrev = null;
+        order.ownerNext = null;
+        order.expiryTime = TradeMatchingEngine.NO_EXPIRY;
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+        free[freeCount++] = order;
+    }
+
+    public int available() {
+        return freeCount;
+    }
+
+    // Total orders ever allocated by this pool
+    public long created() {
+        return created;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.matching;
+
+// What happens to an order's volume that does not trade on arrival
+public enum OrderType {
+    LIMIT,  // rests in the book at its price
+    IOC,    // immediate-or-cancel: trades what it can up to its price, the rest is cancelled
+    FOK,    // fill-or-kill: trades its whole volume up to its price or nothing at all
+    MARKET, // trades what it can at any price, the rest is cancelled
+    STOP,   // waits off-book until the last trade price reaches its stop price, then enters as MARKET
+    STOP_LIMIT; // same trigger, then enters as a LIMIT order at its price
+
+    private static final OrderType[] VALUES = values();
+
+    // For the binary codecs; ordinals are the wire values
+    static OrderType of(int ordinal) {
+        if (ordinal < 0 || ordinal >= VALUES.length) {
+            throw new IllegalArgumentException("Unknown order type: " + ordinal);
+        }
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.matching;
+
+// A single price level: an intrusive doubly-linked FIFO of resting orders at one price
+public class PriceLevel {
+
+    long price; // in ticks
+    TradeMatchingEngine.Order head;
+    TradeMatchingEngine.Order tail;
+    int orderCount;
+    // Aggregate resting volume at this price, maintained by the engine's updateMarketDepth
+    long totalVolume;
+    boolean touched; // queued for one DEPTH event at the end of a mass cancel or batch
+    // The side's Fenwick tree: the volume it holds for this level, and whether a change is queued for it
+    long indexedVolume;
+    boolean volumePending;
+
+    PriceLevel(long price) {
+        this.price = price;
+    }
+
+    /*
+     * Time complexity:
+     * O(1) when timestamps arrive in order (the normal case), the walk back from the tail only
+     * happens for an order stamped earlier than orders already resting at this price
+     */
+    void add(TradeMatchingEngine.Order order) {
+        TradeMatchingEngine.Order after = tail;
+        while (after != null && after.timestamp > order.timestamp) {
+            after = after.prev;
+        }
+        order.level = this;
+        order.prev = after;
+        order.next = after == null ? head : after.next;
+        if (order.next != null) {
+            order.next.prev = order;
+        } else {
+            tail = order;
+        }
+        if (after != null) {
+            after.next = order;
+        } else {
+            head = order;
+        }
+        orderCount++;
+    }
+
+    // O(1), the order carries its own links
+    void remove(TradeMatchingEngine.Order order) {
+        if (order.prev != null) {
+            order.prev.next = order.next;
+        } else {
+            head = order.next;
+        }
+        if (order.next != null) {
+            order.next.prev = order.prev;
+        } else {
+            tail = order.prev;
+        }
+        order.prev = null;
+        order.next = null;
+        order.level = null;
+        orderCount--;
+    }
+
+    boolean isEmpty() {
+        return head == null;
+    }
+
+    public long getPriceTicks() {
+        return price;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public long getTotalVolume() {
+        return totalVolume;
+    }
+}
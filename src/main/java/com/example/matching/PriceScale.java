@@ -0,0 +1,47 @@
+package com.example.matching;
+
+// Converts between double prices and fixed-point long ticks for a given tick size.
+// Order prices must sit on the tick grid and are rejected otherwise; once in ticks, all book
+// comparisons are exact long compares.
+public final class PriceScale {
+
+    public static final double DEFAULT_TICK_SIZE = 0.000001;
+
+    private final double tickSize;
+    // Exact tick count per unit of price when the tick size divides 1 (0.01, 0.25, ...), otherwise 0
+    private final double ticksPerUnit;
+
+    public PriceScale(double tickSize) {
+        if (!(tickSize > 0) || Double.isInfinite(tickSize)) {
+            throw new IllegalArgumentException("Tick size must be positive: " + tickSize);
+        }
+        this.tickSize = tickSize;
+        double reciprocal = Math.rint(1.0 / tickSize);
+        this.ticksPerUnit = reciprocal >= 1 && Math.abs(reciprocal * tickSize - 1.0) < 1e-9 ? reciprocal : 0;
+    }
+
+    public double getTickSize() {
+        return tickSize;
+    }
+
+    // Nearest tick, for lookups and depth queries where any price is a fair question
+    public long toTicks(double price) {
+        return ticksPerUnit != 0 ? Math.round(price * ticksPerUnit) : Math.round(price / tickSize);
+    }
+
+    // Tick of an order price, which must be a whole number of ticks up to double rounding error.
+    // Rounding an off-tick limit either way could rest or trade it beyond the client's limit.
+    public long toTicksExact(double price) {
+        double ticks = ticksPerUnit != 0 ? price * ticksPerUnit : price / tickSize;
+        long rounded = Math.round(ticks);
+        if (!(Math.abs(ticks - rounded) <= 1e-6 + 4 * Math.ulp(ticks))) {
+            throw new IllegalArgumentException("Price " + price + " is not a multiple of the tick size " + tickSize);
+        }
+        return rounded;
+    }
+
+    // Dividing by an exact integer gives the closest double, so toPrice(toTicks(100.1)) == 100.1
+    public double toPrice(long ticks) {
+        return ticksPerUnit != 0 ? ticks / ticksPerUnit : ticks * tickSize;
+    }
+}
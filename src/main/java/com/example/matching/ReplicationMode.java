@@ -0,0 +1,7 @@
+package com.example.matching;
+
+// When the Sequencer lets a batch go ahead relative to its standbys' acknowledgements
+public enum ReplicationMode {
+    SYNC,  // every live standby has applied the batch before the primary applies and acknowledges it
+    ASYNC  // the batch is sent and the primary carries on; standbys trail by whatever is in flight
+}
@@ -0,0 +1,278 @@
+package com.example.matching;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Primary side of command-stream replication: ships every sequenced command to one or more Standby
+// nodes over TCP, in CommandCodec records back to back, and tracks the sequence each has applied.
+//
+// The Sequencer appends each command as it stages it, after the journal, and flushes once per drained
+// batch: the whole batch is copied into each standby's backlog, a byte ring its own sender thread
+// writes to the socket from, and in SYNC mode the matching thread then waits for every live standby's
+// ack of the batch's last command before applying it, so a command is never acknowledged to a client
+// before the standbys hold it. One round trip per batch, not per command. In ASYNC mode batches are
+// pipelined and the primary never waits; the matching thread itself never touches a socket.
+//
+// A standby whose connection fails is dropped and replication carries on with the others; so is one
+// that has not acked within the ack timeout in SYNC mode, or whose backlog would overflow because it
+// reads slower than the primary sequences. A SYNC primary left with none carries on unreplicated.
+// Only the matching thread appends and flushes; each standby has a sender thread and a reader thread
+// for its acks.
+public class Replicator implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int IDLE_SPINS = 200;
+    public static final long DEFAULT_ACK_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    public static final int DEFAULT_BACKLOG_SIZE = 16 * BUFFER_SIZE;
+
+    private final ReplicationMode mode;
+    private final long ackTimeoutNanos;
+    private final List<Link> links = new ArrayList<>();
+    // Matching thread only
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long sentSequence;
+    private volatile Thread waiter;
+
+    private final class Link implements Runnable {
+        final SocketChannel channel;
+        final Thread reader;
+        final Thread sender;
+        final ByteBuffer ack = ByteBuffer.allocate(8);
+        // Single producer (the matching thread), single consumer (the sender); bytes [sent, written)
+        // are waiting to go out, at their position modulo the capacity
+        final ByteBuffer backlog;
+        volatile long written;
+        volatile long sent;
+        volatile long ackedSequence;
+        volatile boolean alive = true;
+
+        Link(InetSocketAddress address, int backlogSize) throws IOException {
+            backlog = ByteBuffer.allocateDirect(backlogSize);
+            channel = SocketChannel.open(address);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            reader = new Thread(this, "replication-acks-" + address.getPort());
+            reader.setDaemon(true);
+            sender = new Thread(this::sendBacklog, "replication-send-" + address.getPort());
+            sender.setDaemon(true);
+        }
+
+        // Acks are the standby's last applied sequence, one long per batch it received
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    ack.clear();
+                    while (ack.hasRemaining()) {
+                        if (channel.read(ack) < 0) {
+                            throw new IOException("Standby closed the connection");
+                        }
+                    }
+                    ackedSequence = ack.getLong(0);
+                    wake();
+                }
+            } catch (IOException e) {
+                drop();
+            }
+        }
+
+        // Matching thread only. Copies the data into the backlog; drops the link rather than wait for room
+        void enqueue(ByteBuffer data) {
+            int length = data.remaining();
+            long end = written;
+            if (backlog.capacity() - (end - sent) < length) {
+                drop();
+                return;
+            }
+            int from = (int) (end % backlog.capacity());
+            int first = Math.min(length, backlog.capacity() - from);
+            backlog.put(from, data, data.position(), first);
+            backlog.put(0, data, data.position() + first, length - first);
+            written = end + length;
+            LockSupport.unpark(sender);
+        }
+
+        void sendBacklog() {
+            ByteBuffer out = backlog.duplicate();
+            try {
+                while (alive) {
+                    long start = sent;
+                    long end = written;
+                    if (start == end) {
+                        LockSupport.park(this);
+                        continue;
+                    }
+                    int from = (int) (start % backlog.capacity());
+                    int length = (int) Math.min(end - start, backlog.capacity() - from);
+                    out.limit(from + length).position(from);
+                    while (out.hasRemaining()) {
+                        channel.write(out);
+                    }
+                    sent = start + length;
+                }
+            } catch (IOException e) {
+                drop();
+            }
+        }
+
+        void drop() {
+            alive = false;
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // already failed
+            }
+            LockSupport.unpark(sender);
+            wake();
+        }
+    }
+
+    public Replicator(ReplicationMode mode, List<InetSocketAddress> standbys) throws IOException {
+        this(mode, standbys, DEFAULT_ACK_TIMEOUT_NANOS, DEFAULT_BACKLOG_SIZE);
+    }
+
+    // backlogSize bounds the bytes sent to a standby but not yet written to its socket
+    public Replicator(ReplicationMode mode, List<InetSocketAddress> standbys, long ackTimeoutNanos, int backlogSize) throws IOException {
+        if (ackTimeoutNanos <= 0) {
+            throw new IllegalArgumentException("Ack timeout must be positive: " + ackTimeoutNanos);
+        }
+        if (backlogSize < BUFFER_SIZE) {
+            throw new IllegalArgumentException("Backlog must hold at least one batch of " + BUFFER_SIZE + " bytes: " + backlogSize);
+        }
+        this.mode = mode;
+        this.ackTimeoutNanos = ackTimeoutNanos;
+        try {
+            for (InetSocketAddress address : standbys) {
+                links.add(new Link(address, backlogSize));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        for (Link link : links) {
+            link.reader.start();
+            link.sender.start();
+        }
+    }
+
+    private void wake() {
+        Thread thread = waiter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    // Throws for a command append would reject, so the Sequencer can fail it before journaling it
+    int checkLength(Command command) {
+        int length = CommandCodec.encodedLength(command);
+        if (length > buffer.capacity()) {
+            throw new IllegalArgumentException("Command of " + length + " bytes exceeds the replication buffer");
+        }
+        return length;
+    }
+
+    // Encodes the command into the outgoing batch, sending what is already there if it does not fit.
+    // A command that cannot be encoded throws before anything is written to the batch.
+    public void append(Command command) {
+        int length = checkLength(command);
+        if (buffer.remaining() < length) {
+            send();
+        }
+        CommandCodec.encode(command, buffer);
+        sentSequence = command.sequence;
+    }
+
+    // Sends the batch; in SYNC mode returns once every live standby has applied it, dropping any that
+    // has not within the ack timeout
+    public void flush() {
+        if (buffer.position() == 0) {
+            return;
+        }
+        send();
+        if (mode == ReplicationMode.SYNC) {
+            awaitAcked(sentSequence);
+        }
+    }
+
+    private void send() {
+        buffer.flip();
+        for (Link link : links) {
+            if (link.alive) {
+                link.enqueue(buffer);
+            }
+        }
+        buffer.clear();
+    }
+
+    private void awaitAcked(long sequence) {
+        waiter = Thread.currentThread();
+        try {
+            long deadline = System.nanoTime() + ackTimeoutNanos;
+            int spins = 0;
+            while (getAckedSequence() < sequence) {
+                if (++spins < IDLE_SPINS) {
+                    Thread.onSpinWait();
+                } else if (System.nanoTime() - deadline < 0) {
+                    LockSupport.parkNanos(50_000);
+                } else {
+                    for (Link link : links) {
+                        if (link.alive && link.ackedSequence < sequence) {
+                            link.drop();
+                        }
+                    }
+                }
+            }
+        } finally {
+            waiter = null;
+        }
+    }
+
+    // Lowest sequence applied by a live standby, Long.MAX_VALUE once none is left
+    public long getAckedSequence() {
+        long acked = Long.MAX_VALUE;
+        for (Link link : links) {
+            if (link.alive) {
+                acked = Math.min(acked, link.ackedSequence);
+            }
+        }
+        return acked;
+    }
+
+    // Last sequence handed to append, sent or still batched
+    public long getSentSequence() {
+        return sentSequence;
+    }
+
+    public int getStandbyCount() {
+        int count = 0;
+        for (Link link : links) {
+            if (link.alive) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public ReplicationMode getMode() {
+        return mode;
+    }
+
+    // Gives each live standby up to the ack timeout to take its backlog, then closes the connections;
+    // standbys keep what they have applied
+    @Override
+    public void close() {
+        long deadline = System.nanoTime() + ackTimeoutNanos;
+        for (Link link : links) {
+            while (link.alive && link.sent < link.written && System.nanoTime() - deadline < 0) {
+                LockSupport.parkNanos(50_000);
+            }
+            link.drop();
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.matching;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Single-writer front end for a TradeMatchingEngine. Any number of gateway threads submit commands
+// into a lock-free MPSC queue; one dedicated matching thread drains them in batches, stamps each
+// with the next global sequence number and applies it. The engine itself is only ever touched by
+// that thread, so it needs no locking.
+//
+// Completions are resolved on the matching thread: callers should chain with the *Async variants
+// so their callbacks never run there.
+public class Sequencer implements AutoCloseable {
+
+    private static final int IDLE_SPINS = 200;
+
+    private final TradeMatchingEngine engine;
+    // Picks the book a command applies to; always the single engine unless this is an Exchange shard
+    private final Function<Command, TradeMatchingEngine> router;
+    private final MpscQueue<Command> queue;
+    private final int batchSize;
+    private final long idleParkNanos;
+    private final Thread matchingThread;
+    private volatile boolean running;
+    // Set by close() once the matching thread has exited; anything queued after that is failed, not applied
+    private volatile boolean closed;
+    private Journal journal;
+    private Replicator replicator;
+    // Matching thread only
+    private long sequence;
+    private final Command[] batch;
+    private int batchCount;
+    private final Consumer<Command> stager = this::stage;
+    private final ConcurrentLinkedQueue<SnapshotRequest> snapshotRequests = new ConcurrentLinkedQueue<>();
+
+    private static final class SnapshotRequest {
+        final Path file;
+        final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        SnapshotRequest(Path file) {
+            this.file = file;
+        }
+    }
+
+    public Sequencer(TradeMatchingEngine engine, int queueCapacity, int batchSize) {
+        this(engine, queueCapacity, batchSize, 50_000);
+    }
+
+    public Sequencer(TradeMatchingEngine engine, int queueCapacity, int batchSize, long idleParkNanos) {
+        this(engine, command -> engine, queueCapacity, batchSize, idleParkNanos, "matching-engine");
+    }
+
+    Sequencer(TradeMatchingEngine engine, Function<Command, TradeMatchingEngine> router, int queueCapacity, int batchSize,
+              long idleParkNanos, String threadName) {
+        this.engine = engine;
+        this.router = router;
+        this.queue = new MpscQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.idleParkNanos = idleParkNanos;
+        this.matchingThread = new Thread(this::run, threadName);
+        this.batch = new Command[batchSize];
+    }
+
+    // Journal every command before it is applied; set before start(). Sequencing resumes after the
+    // journal's last sequence so a restarted node keeps numbering where it left off.
+    public Sequencer withJournal(Journal journal) {
+        this.journal = journal;
+        this.sequence = Math.max(sequence, journal.getLastSequence());
+        return this;
+    }
+
+    // Replicate every command to the replicator's standbys; set before start(). Commands go out after
+    // the journal has taken them, and in SYNC mode a batch is applied once the standbys have applied it.
+    public Sequencer withReplicator(Replicator replicator) {
+        this.replicator = replicator;
+        return this;
+    }
+
+    // Number on from sequence, for a book that already holds every command up to it, e.g. a promoted standby
+    public Sequencer startingAfter(long sequence) {
+        this.sequence = Math.max(this.sequence, sequence);
+        return this;
+    }
+
+    public Sequencer start() {
+        running = true;
+        matchingThread.start();
+        return this;
+    }
+
+    public CompletableFuture<Long> submitAdd(TradeMatchingEngine.Order order) {
+        return submit(Command.add(order));
+    }
+
+    public CompletableFuture<Long> submitCancel(String orderId) {
+        return submit(Command.cancel(orderId));
+    }
+
+    public CompletableFuture<Long> submitCancel(long orderId) {
+        return submit(Command.cancel(orderId));
+    }
+
+    public CompletableFuture<Long> submitAmend(String orderId, long priceTicks, int volume, long timestamp) {
+        return submit(Command.amend(null, orderId, priceTicks, volume, timestamp));
+    }
+
+    public CompletableFuture<Long> submitAmend(long orderId, long priceTicks, int volume, long timestamp) {
+        return submit(Command.amend(null, orderId, priceTicks, volume, timestamp));
+    }
+
+    public CompletableFuture<Long> submitCancelAll(long owner) {
+        return submit(Command.cancelAll(null, owner));
+    }
+
+    public CompletableFuture<Long> submitCancelAll(Side side, long fromTicks, long toTicks) {
+        return submit(Command.cancelAll(null, side, fromTicks, toTicks));
+    }
+
+    public CompletableFuture<Long> submitCancelAll() {
+        return submit(Command.cancelAll(null));
+    }
+
+    public CompletableFuture<Long> submitStartAuction() {
+        return submit(Command.startAuction(null));
+    }
+
+    public CompletableFuture<Long> submitUncross() {
+        return submit(Command.uncross(null));
+    }
+
+    public CompletableFuture<Long> submitAdvanceTime(long time) {
+        return submit(Command.advanceTime(null, time));
+    }
+
+    // Any thread. Spins, then yields, while the queue is full so a burst pushes back on the producers
+    public CompletableFuture<Long> submit(Command command) {
+        if (!running) {
+            command.completion.completeExceptionally(new IllegalStateException("Sequencer is not running"));
+            return command.completion;
+        }
+        int spins = 0;
+        while (!queue.offer(command)) {
+            if (!running) {
+                command.completion.completeExceptionally(new IllegalStateException("Sequencer is not running"));
+                return command.completion;
+            }
+            if (++spins < IDLE_SPINS) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        // Queued while close() was stopping the matching thread: if it has gone, no one else will
+        // complete the command
+        if (closed) {
+            failLeftovers();
+        }
+        return command.completion;
+    }
+
+    /*
+     * Captures the book between two batches on the matching thread (one pass over the resting orders,
+     * no I/O), then encodes and writes it to file on a pool thread while matching carries on.
+     * Completes with the sequence of the last command included in the snapshot.
+     */
+    public CompletableFuture<Long> snapshot(Path file) {
+        if (engine == null) {
+            throw new UnsupportedOperationException("Snapshot each book of an Exchange shard separately");
+        }
+        SnapshotRequest request = new SnapshotRequest(file);
+        if (!running) {
+            request.result.completeExceptionally(new IllegalStateException("Sequencer is not running"));
+            return request.result;
+        }
+        snapshotRequests.add(request);
+        LockSupport.unpark(matchingThread);
+        if (closed) {
+            failLeftovers();
+        }
+        return request.result;
+    }
+
+    private void takeSnapshot(SnapshotRequest request) {
+        BookSnapshot snapshot = BookSnapshot.capture(engine, sequence);
+        CompletableFuture.runAsync(() -> {
+            try {
+                snapshot.write(request.file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((ignored, error) -> {
+            if (error != null) {
+                request.result.completeExceptionally(error);
+            } else {
+                request.result.complete(snapshot.getSequence());
+            }
+        });
+    }
+
+    private void run() {
+        int idle = 0;
+        while (running || queue.size() > 0) {
+            SnapshotRequest snapshotRequest;
+            while ((snapshotRequest = snapshotRequests.poll()) != null) {
+                takeSnapshot(snapshotRequest);
+            }
+            int drained = queue.drain(stager, batchSize);
+            if (drained > 0) {
+                applyBatch();
+                idle = 0;
+            } else if (++idle < IDLE_SPINS) {
+                Thread.onSpinWait();
+            } else {
+                if (journal != null) {
+                    journal.flush();
+                }
+                LockSupport.parkNanos(idleParkNanos);
+            }
+        }
+    }
+
+    // Sequence, journal and replicate a drained command. A command the journal or the replicator would
+    // reject is failed before either has written it, and never applied; once the journal holds it,
+    // replicating it cannot fail.
+    private void stage(Command command) {
+        command.sequence = sequence + 1;
+        try {
+            if (replicator != null) {
+                replicator.checkLength(command);
+            }
+            if (journal != null) {
+                journal.append(command);
+            }
+        } catch (RuntimeException e) {
+            command.completion.completeExceptionally(e);
+            return;
+        }
+        if (replicator != null) {
+            replicator.append(command);
+        }
+        sequence = command.sequence;
+        batch[batchCount++] = command;
+    }
+
+    // One sync and one replication round for the whole batch, then apply and acknowledge
+    private void applyBatch() {
+        if (journal != null) {
+            journal.flush();
+        }
+        if (replicator != null) {
+            replicator.flush();
+        }
+        for (int i = 0; i < batchCount; i++) {
+            Command command = batch[i];
+            batch[i] = null;
+            try {
+                command.applyTo(router.apply(command));
+                command.completion.complete(command.sequence);
+            } catch (RuntimeException e) {
+                command.completion.completeExceptionally(e);
+            }
+        }
+        batchCount = 0;
+    }
+
+    // Last sequence number handed out, read from the matching thread or after close()
+    public long getSequence() {
+        return sequence;
+    }
+
+    // The single engine, or null for an Exchange shard that routes by symbol
+    public TradeMatchingEngine getEngine() {
+        return engine;
+    }
+
+    // Stops accepting work once the queue has been drained, then waits for the matching thread. A
+    // submit racing with close may still get its command in after the last drain; it fails instead.
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(matchingThread);
+        matchingThread.join();
+        closed = true;
+        failLeftovers();
+    }
+
+    // Only once the matching thread has exited, so the queue's single consumer is whoever holds the lock
+    private synchronized void failLeftovers() {
+        queue.drain(command -> command.completion.completeExceptionally(new IllegalStateException("Sequencer is not running")),
+                Integer.MAX_VALUE);
+        SnapshotRequest request;
+        while ((request = snapshotRequests.poll()) != null) {
+            request.result.completeExceptionally(new IllegalStateException("Sequencer is not running"));
+        }
+    }
+}
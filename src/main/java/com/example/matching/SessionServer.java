@@ -0,0 +1,534 @@
+package com.example.matching;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Thread-per-session TCP front end for a Sequencer, speaking the OrderEntryCodec protocol with plain
+// blocking socket I/O. Each session gets a reader thread that logs on, rate-limits and decodes the
+// client's messages and submits them to the Sequencer, and a writer thread that sends its reports.
+// With virtual threads (the default) an idle session is two parked virtual threads and its socket,
+// so tens of thousands of mostly-idle sessions run on a handful of carrier threads; with platform
+// threads it is the classic baseline, two OS threads per session.
+//
+// Logon: the first message must be a LOGON within LOGON_TIMEOUT_MILLIS, checked by the Authenticator
+// and answered with a LOGON_REPLY; a rejected or silent client is disconnected.
+// Order ids: as in OrderGateway the engine id is the session number in the high 32 bits and the client
+// id in the low 32, and the session keeps the set of its client ids still live, so a duplicate new
+// order, or a cancel or amend of an unknown id, is rejected without a trip to the matching thread.
+// Handoff: commands go through the Sequencer's bounded queue; when it is full the reader waits, stops
+// reading its socket and TCP pushes back on that client only.
+// Reports: one platform thread drains the engine's event ring and copies each report into its
+// session's outbox, waking the writer once per drained batch. A session whose outbox fills up is
+// disconnected rather than stalling the others. A re-priced amend is reported AMENDED then NEW, and
+// a cancel that loses the race to a fill gets no reply of its own, the FILL answers it.
+// Session ids: a disconnected session keeps its id until none of its orders is live, so its late
+// reports still retire them, then the id goes back for the next logon to reuse.
+//
+// Errors on its own threads, a failing report or a failed accept, go to its ErrorHandler.
+//
+// Locks are ReentrantLocks, not monitors: a virtual thread blocked inside synchronized pins its carrier.
+public class SessionServer implements AutoCloseable {
+
+    public static final int LOGON_TIMEOUT_MILLIS = 5_000;
+    private static final int OUTBOX_SIZE = 64 * 1024;
+    private static final int MAX_MESSAGE_LENGTH = 64;
+    // Wire values accepted in NewOrder; stops need a stop price the protocol does not carry
+    private static final OrderType[] ORDER_TYPES = {OrderType.LIMIT, OrderType.IOC, OrderType.FOK, OrderType.MARKET};
+
+    // Checks a logon; called on the session's reader thread
+    public interface Authenticator {
+        boolean authenticate(long account, long token);
+    }
+
+    private final Sequencer sequencer;
+    private final ServerSocket server;
+    private final ThreadFactory sessionThreads;
+    private final Thread acceptor;
+    private final EventProcessor reports;
+    private final Thread reportThread;
+    private final AtomicInteger connected = new AtomicInteger();
+    private final ReentrantLock sessionsLock = new ReentrantLock();
+    // By session id; written under sessionsLock, replaced only to grow
+    private volatile AtomicReferenceArray<Session> sessions = new AtomicReferenceArray<>(64);
+    private int sessionCount; // ids handed out, guarded by sessionsLock
+    private final Deque<Integer> freeSessionIds = new ArrayDeque<>(); // oldest first, guarded by sessionsLock
+    private Authenticator authenticator = (account, token) -> true;
+    private int messagesPerSecond; // 0 for no limit
+    private boolean cancelOnDisconnect;
+    private ErrorHandler errorHandler = ErrorHandler.LOG;
+    private volatile boolean running;
+
+    // Report thread only
+    private final List<Session> dirtySessions = new ArrayList<>();
+    private final OrderEntryCodec.ExecutionReport report = new OrderEntryCodec.ExecutionReport();
+
+    private final class Session implements Runnable {
+        final Socket socket;
+        int id = -1; // assigned at logon
+        long account;
+        final Set<Long> liveOrders = ConcurrentHashMap.newKeySet(); // client ids sent and not yet done
+        final ReentrantLock lock = new ReentrantLock();
+        final Condition pending = lock.newCondition();
+        ByteBuffer outbox = ByteBuffer.allocate(OUTBOX_SIZE).order(OrderEntryCodec.BYTE_ORDER);
+        ByteBuffer sending = ByteBuffer.allocate(OUTBOX_SIZE).order(OrderEntryCodec.BYTE_ORDER);
+        boolean closed; // guarded by lock
+        volatile boolean disconnected; // no more orders will be added to liveOrders
+        boolean dirty;  // report thread only
+        // Token bucket, reader thread only
+        double tokens;
+        long refilledNanos = System.nanoTime();
+
+        // Reader thread only
+        final byte[] in = new byte[MAX_MESSAGE_LENGTH];
+        final ByteBuffer message = ByteBuffer.wrap(in).order(OrderEntryCodec.BYTE_ORDER);
+        final OrderEntryCodec.NewOrder newOrder = new OrderEntryCodec.NewOrder();
+        final OrderEntryCodec.Cancel cancel = new OrderEntryCodec.Cancel();
+        final OrderEntryCodec.Amend amend = new OrderEntryCodec.Amend();
+        final OrderEntryCodec.ExecutionReport reject = new OrderEntryCodec.ExecutionReport();
+
+        Session(Socket socket) {
+            this.socket = socket;
+            this.tokens = messagesPerSecond;
+        }
+
+        @Override
+        public void run() {
+            connected.incrementAndGet();
+            try {
+                DataInputStream input = new DataInputStream(socket.getInputStream());
+                if (!logon(input)) {
+                    return;
+                }
+                sessionThreads.newThread(this::write).start();
+                while (running) {
+                    if (!readMessage(input) || !dispatch()) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                // disconnected
+            } finally {
+                disconnect(this);
+                connected.decrementAndGet();
+            }
+        }
+
+        private boolean logon(DataInputStream input) throws IOException {
+            socket.setSoTimeout(LOGON_TIMEOUT_MILLIS);
+            if (!readMessage(input) || OrderEntryCodec.messageType(message, 0) != OrderEntryCodec.LOGON
+                    || (message.getShort(0) & 0xFFFF) != OrderEntryCodec.Logon.LENGTH) {
+                return false;
+            }
+            OrderEntryCodec.Logon logon = new OrderEntryCodec.Logon().wrap(message, 0);
+            account = logon.account();
+            boolean accepted = authenticator.authenticate(account, logon.token());
+            ByteBuffer reply = ByteBuffer.allocate(OrderEntryCodec.LogonReply.LENGTH).order(OrderEntryCodec.BYTE_ORDER);
+            new OrderEntryCodec.LogonReply().encode(reply, 0, account,
+                    accepted ? OrderEntryCodec.LogonReply.ACCEPTED : OrderEntryCodec.LogonReply.REJECTED);
+            if (accepted) {
+                register(this);
+            }
+            socket.getOutputStream().write(reply.array());
+            socket.setSoTimeout(0);
+            return accepted;
+        }
+
+        // Reads one whole message into in; false on end of stream or a length out of range
+        private boolean readMessage(DataInputStream input) throws IOException {
+            try {
+                input.readFully(in, 0, OrderEntryCodec.HEADER_LENGTH);
+            } catch (EOFException e) {
+                return false;
+            }
+            int length = message.getShort(0) & 0xFFFF;
+            if (length < OrderEntryCodec.HEADER_LENGTH || length > MAX_MESSAGE_LENGTH) {
+                return false;
+            }
+            input.readFully(in, OrderEntryCodec.HEADER_LENGTH, length - OrderEntryCodec.HEADER_LENGTH);
+            return true;
+        }
+
+        // Returns false on a malformed message
+        private boolean dispatch() {
+            int length = message.getShort(0) & 0xFFFF;
+            switch (OrderEntryCodec.messageType(message, 0)) {
+                case OrderEntryCodec.NEW_ORDER -> {
+                    if (length != OrderEntryCodec.NewOrder.LENGTH) {
+                        return false;
+                    }
+                    newOrder.wrap(message, 0);
+                    long clientOrderId = newOrder.clientOrderId();
+                    int orderType = newOrder.orderType();
+                    if (!takeToken() || (clientOrderId >>> 32) != 0 || newOrder.volume() <= 0 || newOrder.side() == null
+                            || orderType < 0 || orderType >= ORDER_TYPES.length || !liveOrders.add(clientOrderId)) {
+                        sendReject(clientOrderId, newOrder.priceTicks());
+                        return true;
+                    }
+                    long priceTicks = newOrder.priceTicks();
+                    // An order the engine refuses never produces an event; without this its id would stay live
+                    sequencer.submit(Command.add(TradeMatchingEngine.Order.ofTicks(engineOrderId(clientOrderId), newOrder.side(),
+                            priceTicks, newOrder.volume(), System.nanoTime())
+                            .withType(ORDER_TYPES[orderType]).withOwner(owner(this)))).whenComplete((sequence, error) -> {
+                        if (error != null) {
+                            orderDone(this, clientOrderId);
+                            sendReject(clientOrderId, priceTicks);
+                        }
+                    });
+                }
+                case OrderEntryCodec.CANCEL -> {
+                    if (length != OrderEntryCodec.Cancel.LENGTH) {
+                        return false;
+                    }
+                    cancel.wrap(message, 0);
+                    long clientOrderId = cancel.clientOrderId();
+                    if (!takeToken() || !liveOrders.contains(clientOrderId)) {
+                        sendReject(clientOrderId, 0);
+                        return true;
+                    }
+                    sequencer.submitCancel(engineOrderId(clientOrderId));
+                }
+                case OrderEntryCodec.AMEND -> {
+                    if (length != OrderEntryCodec.Amend.LENGTH) {
+                        return false;
+                    }
+                    amend.wrap(message, 0);
+                    long clientOrderId = amend.clientOrderId();
+                    if (!takeToken() || amend.volume() <= 0 || !liveOrders.contains(clientOrderId)) {
+                        sendReject(clientOrderId, amend.priceTicks());
+                        return true;
+                    }
+                    sequencer.submitAmend(engineOrderId(clientOrderId), amend.priceTicks(), amend.volume(), System.nanoTime());
+                }
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Refills at messagesPerSecond up to one second's worth, then spends one token per message
+        private boolean takeToken() {
+            if (messagesPerSecond == 0) {
+                return true;
+            }
+            long now = System.nanoTime();
+            tokens = Math.min(messagesPerSecond, tokens + (now - refilledNanos) * messagesPerSecond / 1e9);
+            refilledNanos = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        private long engineOrderId(long clientOrderId) {
+            return (long) id << 32 | clientOrderId;
+        }
+
+        private void sendReject(long clientOrderId, long priceTicks) {
+            lock.lock();
+            try {
+                if (enqueue(reject, clientOrderId, OrderEntryCodec.ExecutionReport.REJECTED, priceTicks, 0, 0)) {
+                    pending.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Caller holds lock; false if the session is closed or its outbox is full, which closes it
+        boolean enqueue(OrderEntryCodec.ExecutionReport encoder, long clientOrderId, byte execType, long priceTicks,
+                        int lastQuantity, int leaves) {
+            if (closed) {
+                return false;
+            }
+            if (outbox.remaining() < OrderEntryCodec.ExecutionReport.LENGTH) {
+                closed = true; // slow consumer
+                pending.signal();
+                closeSocket(this);
+                return false;
+            }
+            int offset = outbox.position();
+            encoder.encode(outbox, offset, clientOrderId, execType, priceTicks, lastQuantity, leaves);
+            outbox.position(offset + OrderEntryCodec.ExecutionReport.LENGTH);
+            return true;
+        }
+
+        // Writer thread: swaps the outbox out under the lock and writes it with the lock released
+        private void write() {
+            try {
+                OutputStream output = socket.getOutputStream();
+                while (true) {
+                    lock.lock();
+                    try {
+                        while (outbox.position() == 0 && !closed) {
+                            pending.awaitUninterruptibly();
+                        }
+                        if (closed) {
+                            return;
+                        }
+                        ByteBuffer full = outbox;
+                        outbox = sending;
+                        sending = full;
+                    } finally {
+                        lock.unlock();
+                    }
+                    output.write(sending.array(), 0, sending.position());
+                    sending.clear();
+                }
+            } catch (IOException e) {
+                closeSocket(this);
+            }
+        }
+    }
+
+    public SessionServer(Sequencer sequencer, InetSocketAddress address) throws IOException {
+        this(sequencer, address, true);
+    }
+
+    // Construct before starting the sequencer: this attaches the engine's event ring if it has none
+    public SessionServer(Sequencer sequencer, InetSocketAddress address, boolean virtualThreads) throws IOException {
+        this.sequencer = sequencer;
+        TradeMatchingEngine engine = sequencer.getEngine();
+        if (engine == null) {
+            throw new IllegalArgumentException("SessionServer needs a single-book Sequencer, not an Exchange shard");
+        }
+        if (engine.getEventRingBuffer() == null) {
+            engine.setEventRingBuffer(new EventRingBuffer(1 << 16));
+        }
+        this.reports = new EventProcessor(engine.getEventRingBuffer(), (event, sequence, endOfBatch) -> {
+            onEvent(event);
+            if (endOfBatch) {
+                wakeWriters();
+            }
+        }, WaitStrategy.yielding(), (message, error) -> errorHandler.onError(message, error));
+        this.sessionThreads = virtualThreads
+                ? Thread.ofVirtual().name("session-", 0).factory()
+                : Thread.ofPlatform().name("session-", 0).daemon(true).factory();
+        this.server = new ServerSocket();
+        server.bind(address, 4096);
+        this.acceptor = new Thread(this::accept, "session-acceptor");
+        this.reportThread = new Thread(reports, "session-reports");
+    }
+
+    // Call before start()
+    public SessionServer withAuthenticator(Authenticator authenticator) {
+        this.authenticator = authenticator;
+        return this;
+    }
+
+    // At most messagesPerSecond new, cancel and amend messages per session, in bursts of up to as many;
+    // the rest are rejected. Call before start()
+    public SessionServer withRateLimit(int messagesPerSecond) {
+        if (messagesPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate limit must be positive: " + messagesPerSecond);
+        }
+        this.messagesPerSecond = messagesPerSecond;
+        return this;
+    }
+
+    // Call before start()
+    public SessionServer withCancelOnDisconnect() {
+        this.cancelOnDisconnect = true;
+        return this;
+    }
+
+    // Call before start(); called on the acceptor and report threads
+    public SessionServer withErrorHandler(ErrorHandler errorHandler) {
+        this.errorHandler = errorHandler;
+        return this;
+    }
+
+    public SessionServer start() {
+        running = true;
+        reportThread.start();
+        acceptor.start();
+        return this;
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    // Open connections, logged on or not
+    public int getConnectedSessions() {
+        return connected.get();
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                sessionThreads.newThread(new Session(socket)).start();
+            } catch (SocketException e) {
+                return; // server socket closed
+            } catch (IOException e) {
+                errorHandler.onError("Session accept failed", e);
+            }
+        }
+    }
+
+    private void register(Session session) {
+        sessionsLock.lock();
+        try {
+            int id = freeSessionIds.isEmpty() ? sessionCount++ : freeSessionIds.pollFirst();
+            AtomicReferenceArray<Session> current = sessions;
+            if (id == current.length()) {
+                AtomicReferenceArray<Session> grown = new AtomicReferenceArray<>(current.length() * 2);
+                for (int i = 0; i < current.length(); i++) {
+                    grown.set(i, current.get(i));
+                }
+                sessions = current = grown;
+            }
+            session.id = id;
+            current.set(id, session);
+        } finally {
+            sessionsLock.unlock();
+        }
+    }
+
+    // Frees a disconnected session's id for reuse, once none of its orders can be reported any more
+    private void release(Session session) {
+        sessionsLock.lock();
+        try {
+            if (sessions.get(session.id) == session) {
+                sessions.set(session.id, null);
+                freeSessionIds.addLast(session.id);
+            }
+        } finally {
+            sessionsLock.unlock();
+        }
+    }
+
+    // An order of the session is done, one way or another
+    private void orderDone(Session session, long clientOrderId) {
+        session.liveOrders.remove(clientOrderId);
+        if (session.disconnected && session.liveOrders.isEmpty()) {
+            release(session);
+        }
+    }
+
+    private void disconnect(Session session) {
+        session.lock.lock();
+        try {
+            session.closed = true;
+            session.pending.signal();
+        } finally {
+            session.lock.unlock();
+        }
+        closeSocket(session);
+        if (session.id < 0) {
+            return;
+        }
+        // Its resting orders may still trade; their reports are dropped, but still retire them
+        session.disconnected = true;
+        if (session.liveOrders.isEmpty()) {
+            release(session);
+        } else if (cancelOnDisconnect && running) {
+            sequencer.submitCancelAll(owner(session));
+        }
+    }
+
+    private static void closeSocket(Session session) {
+        try {
+            session.socket.close();
+        } catch (IOException ignored) {
+            // already gone
+        }
+    }
+
+    // Session ids start at 0, which the engine reserves for no owner
+    private static long owner(Session session) {
+        return session.id + 1L;
+    }
+
+    // Report thread
+    private void onEvent(BookEvent event) {
+        switch (event.type) {
+            case ACCEPTED -> report(event.id, OrderEntryCodec.ExecutionReport.NEW, event.priceTicks, 0, (int) event.volume);
+            case AMENDED -> report(event.id, OrderEntryCodec.ExecutionReport.AMENDED, event.priceTicks, 0, (int) event.volume);
+            case FILL -> {
+                report(event.id, OrderEntryCodec.ExecutionReport.FILL, event.priceTicks, (int) event.volume, event.remainingVolume);
+                report(event.counterpartyId, OrderEntryCodec.ExecutionReport.FILL, event.priceTicks, (int) event.volume,
+                        event.counterpartyRemainingVolume);
+            }
+            case CANCELLED -> report(event.id, OrderEntryCodec.ExecutionReport.CANCELLED, event.priceTicks, 0, 0);
+            case EXPIRED -> report(event.id, OrderEntryCodec.ExecutionReport.EXPIRED, event.priceTicks, 0, 0);
+            case TRIGGERED, DEPTH -> {
+            }
+        }
+    }
+
+    private void report(long orderId, byte execType, long priceTicks, int lastQuantity, int leaves) {
+        int sessionId = (int) (orderId >>> 32);
+        AtomicReferenceArray<Session> current = sessions;
+        Session session = sessionId < current.length() ? current.get(sessionId) : null;
+        if (session == null) {
+            return;
+        }
+        long clientOrderId = orderId & 0xFFFFFFFFL;
+        if (execType == OrderEntryCodec.ExecutionReport.CANCELLED || execType == OrderEntryCodec.ExecutionReport.EXPIRED
+                || (execType == OrderEntryCodec.ExecutionReport.FILL && leaves == 0)) {
+            orderDone(session, clientOrderId);
+        }
+        session.lock.lock();
+        try {
+            if (session.enqueue(report, clientOrderId, execType, priceTicks, lastQuantity, leaves) && !session.dirty) {
+                session.dirty = true;
+                dirtySessions.add(session);
+            }
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    private void wakeWriters() {
+        for (Session session : dirtySessions) {
+            session.dirty = false;
+            session.lock.lock();
+            try {
+                session.pending.signal();
+            } finally {
+                session.lock.unlock();
+            }
+        }
+        dirtySessions.clear();
+    }
+
+    // Stops accepting, disconnects every session and stops the report thread; the Sequencer is the caller's
+    @Override
+    public void close() throws IOException, InterruptedException {
+        running = false;
+        server.close();
+        acceptor.join();
+        AtomicReferenceArray<Session> current = sessions;
+        for (int i = 0; i < current.length(); i++) {
+            Session session = current.get(i);
+            if (session != null) {
+                disconnect(session);
+            }
+        }
+        reports.halt();
+        reportThread.join();
+    }
+}
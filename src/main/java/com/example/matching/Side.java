@@ -0,0 +1,32 @@
+package com.example.matching;
+
+// Order side, compared by identity on the matching path instead of String.equals
+public enum Side {
+    BUY("buy"),
+    SELL("sell");
+
+    private final String label;
+
+    Side(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public Side opposite() {
+        return this == BUY ? SELL : BUY;
+    }
+
+    // Accepts the "buy"/"sell" strings the original API used
+    public static Side fromString(String side) {
+        if ("buy".equals(side)) {
+            return BUY;
+        }
+        if ("sell".equals(side)) {
+            return SELL;
+        }
+        throw new IllegalArgumentException("Unknown side: " + side);
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.matching;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+// Hot standby for a replicating primary: accepts the primary's connection, applies its command stream
+// to a local TradeMatchingEngine in sequence order and acks the last applied sequence after every
+// read. Commands are applied exactly as the primary's Sequencer applies them, so the two books stay
+// identical; a command the engine rejects fails on both sides and is skipped on both.
+//
+// The engine is only touched by the replication thread until promote(), which stops replication and
+// puts a Sequencer in front of the engine that numbers on from the last applied command. A gap in the
+// sequence means the stream is not the one this book was built from, and stops replication.
+public class Standby implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final TradeMatchingEngine engine;
+    private final ServerSocketChannel server;
+    private final Thread thread;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer ack = ByteBuffer.allocateDirect(8);
+    private volatile SocketChannel channel;
+    private volatile long appliedSequence;
+    private volatile boolean running;
+    private volatile IOException failure;
+
+    public Standby(TradeMatchingEngine engine, InetSocketAddress address) throws IOException {
+        this.engine = engine;
+        this.server = ServerSocketChannel.open();
+        server.bind(address);
+        this.thread = new Thread(this::run, "standby-" + getPort());
+    }
+
+    // Starts from an engine already holding the state up to afterSequence, e.g. restored from a snapshot
+    public Standby(TradeMatchingEngine engine, InetSocketAddress address, long afterSequence) throws IOException {
+        this(engine, address);
+        this.appliedSequence = afterSequence;
+    }
+
+    public Standby start() {
+        running = true;
+        thread.start();
+        return this;
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    private void run() {
+        try (SocketChannel primary = server.accept()) {
+            primary.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel = primary;
+            while (running) {
+                if (primary.read(buffer) < 0) {
+                    break;
+                }
+                buffer.flip();
+                long before = appliedSequence;
+                applyRecords();
+                buffer.compact();
+                if (appliedSequence != before) {
+                    ack.clear();
+                    ack.putLong(0, appliedSequence);
+                    while (ack.hasRemaining()) {
+                        primary.write(ack);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                failure = e;
+            }
+        }
+    }
+
+    // Applies every complete record in the buffer; a partial one waits for the next read
+    private void applyRecords() throws IOException {
+        while (buffer.remaining() >= 4) {
+            int length = buffer.getInt(buffer.position());
+            if (length <= 0 || length > buffer.capacity()) {
+                throw new IOException("Corrupt replication record of length " + length);
+            }
+            if (buffer.remaining() < length) {
+                return;
+            }
+            Command command = CommandCodec.decode(buffer);
+            if (command == null) {
+                throw new IOException("Corrupt replication record at sequence " + (appliedSequence + 1));
+            }
+            if (command.sequence != appliedSequence + 1) {
+                throw new IOException("Replication gap: expected sequence " + (appliedSequence + 1) + ", got " + command.sequence);
+            }
+            try {
+                command.applyTo(engine);
+            } catch (RuntimeException ignored) {
+                // Rejected on the primary too
+            }
+            appliedSequence = command.sequence;
+        }
+    }
+
+    // Last command applied to the engine, safe to read from any thread
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    // The I/O error that stopped replication, or null
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /*
+     * Failover: stops replication, waits for the replication thread, then starts a Sequencer on the
+     * engine that numbers on from the last applied command. Whatever the primary had sent but this
+     * standby had not yet applied is lost, which in SYNC mode is never an acknowledged command.
+     */
+    public Sequencer promote(int queueCapacity, int batchSize) throws InterruptedException {
+        close();
+        return new Sequencer(engine, queueCapacity, batchSize).startingAfter(appliedSequence).start();
+    }
+
+    // The standby's book; read it only once replication has stopped
+    public TradeMatchingEngine getEngine() {
+        return engine;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        try {
+            server.close();
+            SocketChannel primary = channel;
+            if (primary != null) {
+                primary.close();
+            }
+        } catch (IOException ignored) {
+            // closing anyway
+        }
+        if (thread.isAlive()) {
+            thread.join();
+        }
+    }
+}
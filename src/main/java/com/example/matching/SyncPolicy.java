@@ -0,0 +1,8 @@
+package com.example.matching;
+
+// When the Journal forces its memory-mapped pages to disk
+public enum SyncPolicy {
+    NONE,     // leave it to the OS page cache; survives a process crash but not a power loss
+    BATCH,    // msync at the end of every batch the sequencer drains, before the batch is acknowledged
+    INTERVAL  // msync at most once every syncIntervalMillis, checked as batches complete and while idle
+}
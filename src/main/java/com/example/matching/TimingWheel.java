@@ -0,0 +1,134 @@
+package com.example.matching;
+
+import java.util.Arrays;
+
+// Hierarchical timing wheel of order expiry times, driven by engine time rather than a clock. Level k
+// has 64 slots each spanning 64^k time units; an order sits at the lowest level where its expiry and
+// the current time differ only in that level's digit, in the slot of its expiry's digit. A bitmap per
+// level marks the occupied slots, so advancing skips empty slots and any idle stretch of time in one
+// lookup per level. Orders are linked into their slot through their own fields, like a price level.
+//
+// advance() hands back everything due as one chain. A higher level slot reached on the way is either
+// cascaded down, when only part of its span is due, or, when the whole span is, taken as it is,
+// which is what keeps a mass expiry (every day order at the close) to one touch per order.
+final class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    // Enough levels for any non-negative long time
+    private static final int LEVELS = (Long.SIZE + SLOT_BITS - 1) / SLOT_BITS;
+
+    private final TradeMatchingEngine.Order[] slots = new TradeMatchingEngine.Order[LEVELS * SLOTS];
+    private final long[] occupied = new long[LEVELS];
+    private long time;
+    private int size;
+
+    long getTime() {
+        return time;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // O(1); the expiry must be later than the current time
+    void schedule(TradeMatchingEngine.Order order) {
+        long expiry = order.expiryTime;
+        int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(expiry ^ time)) / SLOT_BITS;
+        int bucket = level * SLOTS + (int) (expiry >>> (level * SLOT_BITS) & (SLOTS - 1));
+        TradeMatchingEngine.Order head = slots[bucket];
+        order.expiryNext = head;
+        if (head != null) {
+            head.expiryPrev = order;
+        }
+        slots[bucket] = order;
+        order.expiryBucket = bucket;
+        occupied[level] |= 1L << (bucket % SLOTS);
+        size++;
+    }
+
+    // O(1)
+    void unschedule(TradeMatchingEngine.Order order) {
+        int bucket = order.expiryBucket;
+        TradeMatchingEngine.Order prev = order.expiryPrev;
+        TradeMatchingEngine.Order next = order.expiryNext;
+        if (prev != null) {
+            prev.expiryNext = next;
+        } else {
+            slots[bucket] = next;
+            if (next == null) {
+                occupied[bucket / SLOTS] &= ~(1L << (bucket % SLOTS));
+            }
+        }
+        if (next != null) {
+            next.expiryPrev = prev;
+        }
+        order.expiryPrev = null;
+        order.expiryNext = null;
+        order.expiryBucket = -1;
+        size--;
+    }
+
+    /*
+     * Moves the current time to newTime and returns the orders whose expiry it reached, linked through
+     * expiryNext and out of the wheel, or null. Earlier slots come first, so apart from a whole slot
+     * taken at once the chain is in expiry order.
+     * Time complexity: O(LEVELS) per occupied slot reached, plus O(1) per order due and per cascade
+     * step; an order cascades at most LEVELS - 1 times in its life, however far off its expiry is
+     */
+    TradeMatchingEngine.Order advance(long newTime) {
+        if (newTime < time) {
+            throw new IllegalArgumentException("Time cannot go backwards: " + newTime + " < " + time);
+        }
+        TradeMatchingEngine.Order due = null;
+        TradeMatchingEngine.Order dueTail = null;
+        while (size > 0) {
+            // Every occupied slot is ahead of the current digit of its level, and the lowest level
+            // holds the earliest slot
+            int level = 0;
+            while (occupied[level] == 0) {
+                level++;
+            }
+            int shift = level * SLOT_BITS;
+            int slot = Long.numberOfTrailingZeros(occupied[level]);
+            long above = shift + SLOT_BITS >= Long.SIZE ? 0 : time >>> (shift + SLOT_BITS) << (shift + SLOT_BITS);
+            long start = above | (long) slot << shift;
+            if (start > newTime) {
+                break;
+            }
+            time = start;
+            int bucket = level * SLOTS + slot;
+            TradeMatchingEngine.Order order = slots[bucket];
+            slots[bucket] = null;
+            occupied[level] &= ~(1L << slot);
+            boolean whole = level == 0 || newTime - start >= (1L << shift) - 1;
+            while (order != null) {
+                TradeMatchingEngine.Order next = order.expiryNext;
+                order.expiryPrev = null;
+                order.expiryNext = null;
+                order.expiryBucket = -1;
+                size--;
+                if (whole || order.expiryTime == time) {
+                    if (dueTail == null) {
+                        due = order;
+                    } else {
+                        dueTail.expiryNext = order;
+                    }
+                    dueTail = order;
+                } else {
+                    schedule(order);
+                }
+                order = next;
+            }
+        }
+        time = newTime;
+        return due;
+    }
+
+    // Forgets every order without touching them, for when the whole book is dropped at once
+    void clear() {
+        Arrays.fill(slots, null);
+        Arrays.fill(occupied, 0);
+        size = 0;
+    }
+}
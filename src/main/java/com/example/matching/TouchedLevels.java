@@ -0,0 +1,45 @@
+package com.example.matching;
+
+import java.util.Arrays;
+
+// Levels of one side changed during a bulk operation (mass cancel, expiry, applyBatch), so each gets a single
+// DEPTH event with its final volume when the operation ends instead of one per change. The price a
+// level had when first touched is kept alongside it: an emptied level goes back to the side's free
+// list and may come back at another price before the end, and the old price still needs its zero.
+final class TouchedLevels {
+
+    private PriceLevel[] levels = new PriceLevel[64];
+    private long[] prices = new long[64];
+    private int size;
+
+    // O(1); a level already queued is not queued again
+    void add(PriceLevel level) {
+        if (level.touched) {
+            return;
+        }
+        level.touched = true;
+        if (size == levels.length) {
+            levels = Arrays.copyOf(levels, size * 2);
+            prices = Arrays.copyOf(prices, size * 2);
+        }
+        levels[size] = level;
+        prices[size++] = level.price;
+    }
+
+    int size() {
+        return size;
+    }
+
+    PriceLevel levelAt(int index) {
+        return levels[index];
+    }
+
+    long priceAt(int index) {
+        return prices[index];
+    }
+
+    void clear() {
+        Arrays.fill(levels, 0, size, null);
+        size = 0;
+    }
+}
@@ -0,0 +1,1299 @@
+package com.example.matching;
+
+import java.util.*;
+
+public class TradeMatchingEngine {
+
+    // Represents an order with all necessary details
+    public static class Order {
+        String symbol; // instrument, only needed when routing through an Exchange
+        String orderId;
+        long id; // key in long-ID mode, used when orderId is null
+        Side side;
+        double price;
+        long priceTicks = NO_TICKS; // fixed-point price, set by the engine from price unless created with ofTicks
+        int volume;
+        long timestamp;
+        OrderType orderType = OrderType.LIMIT; // only LIMIT orders ever rest
+        long stopTicks = NO_TICKS; // trigger price of a STOP or STOP_LIMIT order
+        long owner = NO_OWNER; // account or session, for cancelAll(owner)
+        long expiryTime = NO_EXPIRY; // engine time a GTD or day order expires at, see advanceTime
+
+        // Intrusive links into the price level FIFO, maintained by PriceLevel
+        PriceLevel level;
+        Order prev;
+        Order next;
+        boolean pooled; // owned by the engine's OrderPool and recycled once it leaves the book
+        // Intrusive links through the owner's indexed orders, newest first
+        Order ownerPrev;
+        Order ownerNext;
+        // Intrusive links into the expiry wheel slot, maintained by TimingWheel; -1 when not scheduled
+        Order expiryPrev;
+        Order expiryNext;
+        int expiryBucket = -1;
+
+        // Constructor for the Order
+        public Order(String orderId, String side, double price, int volume, long timestamp) {
+            this(orderId, Side.fromString(side), price, volume, timestamp);
+        }
+
+        public Order(String symbol, String orderId, String side, double price, int volume, long timestamp) {
+            this(orderId, Side.fromString(side), price, volume, timestamp);
+            this.symbol = symbol;
+        }
+
+        public Order(String orderId, Side side, double price, int volume, long timestamp) {
+            this.orderId = orderId;
+            this.side = side;
+            this.price = price;
+            this.volume = volume;
+            this.timestamp = timestamp;
+        }
+
+        // Creates an order priced directly in ticks of the engine's PriceScale, skipping the double conversion
+        public static Order ofTicks(String orderId, String side, long priceTicks, int volume, long timestamp) {
+            Order order = new Order(orderId, side, Double.NaN, volume, timestamp);
+            order.priceTicks = priceTicks;
+            return order;
+        }
+
+        // Long-ID order priced in ticks; it is indexed by id, never by a String
+        public static Order ofTicks(long id, Side side, long priceTicks, int volume, long timestamp) {
+            Order order = new Order(null, side, Double.NaN, volume, timestamp);
+            order.id = id;
+            order.priceTicks = priceTicks;
+            return order;
+        }
+
+        public Order withType(OrderType orderType) {
+            this.orderType = orderType;
+            return this;
+        }
+
+        public Order withOwner(long owner) {
+            this.owner = owner;
+            return this;
+        }
+
+        // Good till date: the order leaves the book once engine time reaches expiryTime
+        public Order withExpiry(long expiryTime) {
+            this.expiryTime = expiryTime;
+            return this;
+        }
+
+        // Makes this a STOP, or a STOP_LIMIT at its price, that triggers at stopTicks
+        public Order withStop(OrderType orderType, long stopTicks) {
+            if (orderType != OrderType.STOP && orderType != OrderType.STOP_LIMIT) {
+                throw new IllegalArgumentException("Not a stop order type: " + orderType);
+            }
+            this.orderType = orderType;
+            this.stopTicks = stopTicks;
+            return this;
+        }
+
+        // Getters for Order properties
+        public String getSymbol() {
+            return symbol;
+        }
+
+        public OrderType getOrderType() {
+            return orderType;
+        }
+
+        public long getStopTicks() {
+            return stopTicks;
+        }
+
+        public long getOwner() {
+            return owner;
+        }
+
+        // NO_EXPIRY for a good till cancelled order
+        public long getExpiryTime() {
+            return expiryTime;
+        }
+
+        // True until the stop triggers; the order then carries MARKET or LIMIT instead
+        public boolean isPendingStop() {
+            return orderType == OrderType.STOP || orderType == OrderType.STOP_LIMIT;
+        }
+
+        public String getOrderId() {
+            return orderId;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public Side getSide() {
+            return side;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public long getPriceTicks() {
+            return priceTicks;
+        }
+
+        public int getVolume() {
+            return volume;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    static final long NO_TICKS = Long.MIN_VALUE;
+    public static final long NO_OWNER = 0;
+    public static final long NO_EXPIRY = Long.MAX_VALUE;
+    // Limits a market order matches with: they cross every price on the other side. The sell bound
+    // stays clear of NO_TICKS.
+    static final long MARKET_BUY_TICKS = Long.MAX_VALUE;
+    static final long MARKET_SELL_TICKS = Long.MIN_VALUE + 1;
+
+    // Data structures for buy and sell orders
+    private OrderBookSide buyOrders;
+    private OrderBookSide sellOrders;
+    private OrderIndex orderMap; 
+    // Orders without a String id (long-ID mode) are indexed here instead
+    private LongOrderIndex longOrderMap;
+    // Stops waiting for their trigger, keyed by stop price rather than limit price. Buy stops trigger
+    // once the last trade is at or above the stop, lowest stop first; sell stops at or below, highest
+    // first. Each trade only looks at the front of each, so untouched stops cost nothing.
+    private OrderBookSide buyStops;
+    private OrderBookSide sellStops;
+    private long lastTradeTicks = NO_TICKS;
+    private boolean triggering;
+    // owner -> its most recently indexed order, the head of that owner's list
+    private LongOrderIndex ownerHeads;
+    // Levels a cancelAll(owner) or applyBatch has changed, each reported once when it is done
+    private final TouchedLevels touchedBuyLevels = new TouchedLevels();
+    private final TouchedLevels touchedSellLevels = new TouchedLevels();
+    // Expiry times of the indexed GTD and day orders; its current time is the engine's
+    private final TimingWheel expiries = new TimingWheel();
+    private boolean batching; // inside applyBatch: depth changes are merged and events published at the end
+    private boolean mergingDepth; // inside applyBatch or uncross: depth changes are merged per level, not published
+    private boolean auction; // call phase: orders rest without matching until uncross()
+    private long clearingVolume; // set by findClearingPrice
+    // Depth is the aggregate volume kept on each price level; these are double-keyed views over it
+    private DepthMapView buyVolumeMap; 
+    private DepthMapView sellVolumeMap; 
+    private final PriceScale priceScale;
+    private final OrderPool orderPool;
+    // Optional output stream of fills, acks, cancels and depth changes
+    private EventRingBuffer events;
+    private long eventSequence;
+    // Optional top-of-book publication for reader threads, refreshed once per command that touched it
+    private DepthPublisher depthPublisher;
+    private boolean bidDepthDirty;
+    private boolean askDepthDirty;
+    // Optional latency histograms, counters and gauges
+    private EngineMetrics metrics;
+
+    public TradeMatchingEngine() {
+        this(PriceScale.DEFAULT_TICK_SIZE);
+    }
+
+    public TradeMatchingEngine(double tickSize) {
+        priceScale = new PriceScale(tickSize);
+
+        // Price levels ordered lowest price first for sells, FIFO by timestamp within a level
+        sellOrders = new OrderBookSide(false);
+        
+        // Price levels ordered highest price first for buys, FIFO by timestamp within a level
+        buyOrders = new OrderBookSide(true);
+
+        buyStops = new OrderBookSide(false);
+        sellStops = new OrderBookSide(true);
+
+        orderMap = new OrderIndex(); 
+        longOrderMap = new LongOrderIndex();
+        ownerHeads = new LongOrderIndex(64);
+        orderPool = new OrderPool(1024);
+        buyVolumeMap = new DepthMapView(buyOrders, priceScale); 
+        sellVolumeMap = new DepthMapView(sellOrders, priceScale); 
+
+    }
+
+
+
+    private void executeTrade(Order newOrder, Order currentOrder, long tradePrice, int tradeVolume){ 
+        newOrder.volume -= tradeVolume;
+        currentOrder.volume -= tradeVolume;
+        lastTradeTicks = tradePrice;
+        BookEvent fill = claimEvent(BookEvent.Type.FILL, newOrder);
+        if (fill != null) {
+            fill.counterpartyOrderId = currentOrder.orderId;
+            fill.counterpartyId = currentOrder.id;
+            fill.priceTicks = tradePrice;
+            fill.volume = tradeVolume;
+            fill.remainingVolume = newOrder.volume;
+            fill.counterpartyRemainingVolume = currentOrder.volume;
+            publishEvent();
+        }
+        // updateMarketDepth(newOrder, -tradeVolume) ;
+        updateMarketDepth(currentOrder, -tradeVolume);
+
+
+        if (currentOrder.volume <= 0) { 
+            removeOrder(currentOrder);
+            // if (currentOrder.getSide().equals("buy")) {
+            //     buyOrders.poll(); 
+            // } else { 
+            //     sellOrders.poll(); 
+            // }
+            // orderMap.remove(currentOrder.orderId); 
+
+        } 
+
+
+    }
+
+    /*
+     * Zero-allocation entry point: the order comes from the engine's OrderPool and goes back to it once
+     * it fills or is cancelled. With a warmed-up pool and reused orderId strings, steady-state
+     * matching and cancelling allocate nothing.
+     */
+    public void addOrder(String orderId, Side side, long priceTicks, int volume, long timestamp) {
+        addOrder(orderId, side, priceTicks, volume, timestamp, OrderType.LIMIT);
+    }
+
+    // Pooled entry point for any order type but the stops, which need a stop price: submit those with
+    // addOrder(Order). priceTicks is ignored for MARKET
+    public void addOrder(String orderId, Side side, long priceTicks, int volume, long timestamp, OrderType orderType) {
+        addOrder(orderId, side, priceTicks, volume, timestamp, orderType, NO_OWNER);
+    }
+
+    public void addOrder(String orderId, Side side, long priceTicks, int volume, long timestamp, OrderType orderType, long owner) {
+        checkNotStop(orderType);
+        Order order = orderPool.acquire();
+        order.owner = owner;
+        order.orderId = orderId;
+        order.side = side;
+        order.priceTicks = priceTicks;
+        order.volume = volume;
+        order.timestamp = timestamp;
+        order.orderType = orderType;
+        addOrder(order);
+    }
+
+    /*
+     * Long-ID mode: same as above, but the order is keyed by a 64-bit id in a primitive index, so no
+     * String is hashed, compared or kept per resting order. Cancel it with deleteOrder(long).
+     */
+    public void addOrder(long orderId, Side side, long priceTicks, int volume, long timestamp) {
+        addOrder(orderId, side, priceTicks, volume, timestamp, OrderType.LIMIT);
+    }
+
+    public void addOrder(long orderId, Side side, long priceTicks, int volume, long timestamp, OrderType orderType) {
+        addOrder(orderId, side, priceTicks, volume, timestamp, orderType, NO_OWNER);
+    }
+
+    public void addOrder(long orderId, Side side, long priceTicks, int volume, long timestamp, OrderType orderType, long owner) {
+        checkNotStop(orderType);
+        Order order = orderPool.acquire();
+        order.owner = owner;
+        order.id = orderId;
+        order.side = side;
+        order.priceTicks = priceTicks;
+        order.volume = volume;
+        order.timestamp = timestamp;
+        order.orderType = orderType;
+        addOrder(order);
+    }
+
+    // Before the pool hands out an order: a stop rejected later would never go back to it
+    private static void checkNotStop(OrderType orderType) {
+        if (orderType == OrderType.STOP || orderType == OrderType.STOP_LIMIT) {
+            throw new IllegalArgumentException("Stop orders need a stop price, submit them with addOrder(Order)");
+        }
+    }
+
+    // Method to add an order to the engine
+    public void addOrder(Order order) {
+        // TODO: Implement logic to add the order to the order book, match trades, and return a Trade if applicable
+
+        /* 
+        Time complexity: 
+        No order filled: O(log L) to find the price level, L being the number of levels, plus an O(d)
+        ladder shift to create it d levels from the touch (O(L) at worst, see OrderBookSide.offer)
+        Order filled: O(1) per fill, including a fill that empties a level, which is always the best one
+        If there are multiple matches, this continues until the order is filled or no more matches are found. In the worst case, this involves O(m + k) where m is the number of matches and k the number of levels emptied
+        A FOK that cannot fill is killed in O(levels it would touch) from the level aggregates, without reaching any order
+         */
+        if (order.expiryTime <= expiries.getTime()) {
+            // Expired before it arrived, it never reaches the book
+            publishOrderEvent(BookEvent.Type.EXPIRED, order);
+            if (order.pooled) {
+                orderPool.release(order);
+            }
+            return;
+        }
+        if (order.isPendingStop()) {
+            addStop(order);
+            return;
+        }
+        long start = startTimer();
+
+        if (order.orderType == OrderType.MARKET) {
+            order.priceTicks = order.side == Side.BUY ? MARKET_BUY_TICKS : MARKET_SELL_TICKS;
+            order.price = Double.NaN;
+        } else {
+            // Normalise onto the tick grid so every comparison below is an exact long compare
+            if (order.priceTicks == NO_TICKS) {
+                order.priceTicks = priceScale.toTicksExact(order.price);
+            }
+            order.price = priceScale.toPrice(order.priceTicks);
+        }
+        if (auction && order.orderType != OrderType.LIMIT) {
+            // Nothing executes before the uncross, so IOC, FOK and market orders have nothing to trade with
+            publishOrderEvent(BookEvent.Type.CANCELLED, order);
+            if (order.pooled) {
+                orderPool.release(order);
+            }
+            if (metrics != null) {
+                metrics.recordAdd(start, EngineMetrics.NOT_SAMPLED, 0, 0, false);
+            }
+            return;
+        }
+        if (order.orderType == OrderType.FOK) {
+            OrderBookSide oppOrders = order.side == Side.BUY ? sellOrders : buyOrders;
+            if (!oppOrders.hasVolume(order.priceTicks, order.volume)) {
+                publishOrderEvent(BookEvent.Type.CANCELLED, order);
+                if (order.pooled) {
+                    orderPool.release(order);
+                }
+                if (metrics != null) {
+                    metrics.recordAdd(start, EngineMetrics.NOT_SAMPLED, 0, 0, false);
+                }
+                return;
+            }
+        }
+        matchAndRest(order, start, false);
+    }
+
+    // Matches an incoming or re-priced order against the opposite side and rests what is left.
+    // indexed is true for an amended order that is already in the order index.
+    private void matchAndRest(Order order, long start, boolean indexed) {
+        boolean buy = order.side == Side.BUY;
+        OrderBookSide oppOrders = buy ? sellOrders : buyOrders; 
+        OrderBookSide orders = buy ? buyOrders : sellOrders; 
+
+        int fills = 0;
+        int levelsSwept = 0;
+        long lastTradePrice = NO_TICKS;
+        while (!auction && !oppOrders.isEmpty() && 
+            ((buy && oppOrders.peek().priceTicks <= order.priceTicks) || 
+                (!buy && oppOrders.peek().priceTicks >= order.priceTicks))) {
+            
+            Order oppOrder = oppOrders.peek(); 
+            long tradePrice = oppOrder.priceTicks; 
+            int tradeVolume = Math.min(order.getVolume(), oppOrder.getVolume()); 
+
+            executeTrade(order, oppOrder, tradePrice, tradeVolume); 
+            fills++;
+            if (tradePrice != lastTradePrice) {
+                levelsSwept++;
+                lastTradePrice = tradePrice;
+            }
+
+            if (order.getVolume() == 0) {
+                break;
+            }
+        }  
+        long matched = fills > 0 && start != EngineMetrics.NOT_SAMPLED ? System.nanoTime() : EngineMetrics.NOT_SAMPLED;
+        boolean rested = order.volume > 0 && order.orderType == OrderType.LIMIT;
+        if (rested) { 
+            if (!indexed) {
+                index(order);
+            }
+            orders.add(order); 
+            publishOrderEvent(BookEvent.Type.ACCEPTED, order);
+            updateMarketDepth(order, order.getVolume());
+        } else {
+            if (order.volume > 0) {
+                // IOC or market remainder, never indexed nor rested
+                publishOrderEvent(BookEvent.Type.CANCELLED, order);
+            }
+            if (indexed) {
+                unindex(order);
+            }
+            if (order.pooled) {
+                orderPool.release(order);
+            }
+        }
+        publishDepth();
+        if (metrics != null) {
+            if (indexed) {
+                metrics.recordAmend(start, fills, levelsSwept, false);
+            } else {
+                metrics.recordAdd(start, matched, fills, levelsSwept, rested);
+            }
+        }
+        if (fills > 0) {
+            triggerStops();
+        }
+    }
+
+    /*
+     * Time complexity:
+     * O(log S) into the stop book, S being the number of distinct stop prices on that side
+     * The stop is indexed under its id like a resting order, so deleteOrder cancels it.
+     * A stop that the last trade price has already reached triggers straight away.
+     */
+    private void addStop(Order order) {
+        if (order.stopTicks == NO_TICKS) {
+            throw new IllegalArgumentException("Stop order without a stop price: " + (order.orderId != null ? order.orderId : order.id));
+        }
+        if (order.orderType == OrderType.STOP_LIMIT && order.priceTicks == NO_TICKS) {
+            order.priceTicks = priceScale.toTicksExact(order.price);
+        }
+        index(order);
+        (order.side == Side.BUY ? buyStops : sellStops).offer(order, order.stopTicks);
+        publishOrderEvent(BookEvent.Type.ACCEPTED, order);
+        triggerStops();
+    }
+
+    /*
+     * Feeds every stop the last trade price has reached back into addOrder, one at a time. A triggered
+     * order that trades moves the price again; the stops that reaches are picked up by this same loop,
+     * never by a nested call, so a cascade of any length runs in constant stack depth.
+     * Deterministic order: buy stops before sell stops, each side by stop price and then time.
+     */
+    private void triggerStops() {
+        if (triggering) {
+            return; // a triggered order is matching right now, the outer loop will look again
+        }
+        triggering = true;
+        try {
+            Order stop;
+            while ((stop = nextTriggeredStop()) != null) {
+                unindex(stop); // addOrder indexes it again if it rests
+                stop.orderType = stop.orderType == OrderType.STOP ? OrderType.MARKET : OrderType.LIMIT;
+                publishOrderEvent(BookEvent.Type.TRIGGERED, stop);
+                addOrder(stop);
+            }
+        } finally {
+            triggering = false;
+        }
+    }
+
+    // O(1) per call: only the front stop of each side can be due
+    private Order nextTriggeredStop() {
+        if (lastTradeTicks == NO_TICKS) {
+            return null;
+        }
+        Order stop = buyStops.peek();
+        if (stop != null && stop.stopTicks <= lastTradeTicks) {
+            buyStops.removeOrder(stop);
+            return stop;
+        }
+        stop = sellStops.peek();
+        if (stop != null && stop.stopTicks >= lastTradeTicks) {
+            sellStops.removeOrder(stop);
+            return stop;
+        }
+        return null;
+    }
+
+    // Method to delete an existing order
+    public void deleteOrder(String orderId) {
+        // TODO: Implement logic to delete a pending order by its ID
+
+        
+        /*
+         * Time complexity: 
+         * Removing from map O(1)
+         * Unlinking from its price level O(1); if the level becomes empty, O(log L) to find it plus
+         * an O(d) shift of the d levels better than it, O(L) at worst (see OrderBookSide.removeOrder)
+         */
+        long start = startTimer();
+        cancelOrder(orderMap.get(orderId), start);
+    }
+
+    // Long-ID mode cancel: O(1) probe over a primitive key array
+    public void deleteOrder(long orderId) {
+        long start = startTimer();
+        cancelOrder(longOrderMap.get(orderId), start);
+    }
+
+    private void cancelOrder(Order order, long start) {
+        if (order != null && order.isPendingStop()) {
+            publishOrderEvent(BookEvent.Type.CANCELLED, order);
+            (order.side == Side.BUY ? buyStops : sellStops).removeOrder(order);
+            unindex(order);
+            if (order.pooled) {
+                orderPool.release(order);
+            }
+        } else if (order != null) {
+            publishOrderEvent(BookEvent.Type.CANCELLED, order);
+            removeOrder(order);
+            publishDepth();
+        }
+        if (metrics != null) {
+            metrics.recordCancel(start, order != null);
+        }
+    }
+
+    /*
+     * Changes a resting order's price and/or volume, returns false if it is not in the book (a pending
+     * stop is not).
+     * Same price and a smaller volume: amended in place, keeps its queue position, O(1).
+     * Anything else is an atomic cancel/replace: the order leaves its level, takes timestamp as its
+     * new time priority and goes through matching again at the new price, so it may trade at once.
+     * Either way one AMENDED event carries the new price and volume; a replace is then followed by
+     * its FILLs and, if anything rests, an ACCEPTED.
+     */
+    public boolean amendOrder(String orderId, long newPriceTicks, int newVolume, long timestamp) {
+        long start = startTimer();
+        return amend(orderMap.get(orderId), newPriceTicks, newVolume, timestamp, start);
+    }
+
+    // Long-ID mode amend
+    public boolean amendOrder(long orderId, long newPriceTicks, int newVolume, long timestamp) {
+        long start = startTimer();
+        return amend(longOrderMap.get(orderId), newPriceTicks, newVolume, timestamp, start);
+    }
+
+    private boolean amend(Order order, long newPriceTicks, int newVolume, long timestamp, long start) {
+        if (newVolume <= 0) {
+            throw new IllegalArgumentException("Amended volume must be positive, cancel the order instead: " + newVolume);
+        }
+        if (order == null || order.isPendingStop()) {
+            // Pending stops are not in the book; cancel and re-add them instead
+            if (metrics != null) {
+                metrics.recordAmendMiss();
+            }
+            return false;
+        }
+        if (newPriceTicks == order.priceTicks && newVolume <= order.volume) {
+            int diff = newVolume - order.volume;
+            order.volume = newVolume;
+            publishOrderEvent(BookEvent.Type.AMENDED, order);
+            updateMarketDepth(order, diff);
+            publishDepth();
+            if (metrics != null) {
+                metrics.recordAmend(start, 0, 0, true);
+            }
+            return true;
+        }
+        // Cancel/replace: unlink from the old level but stay indexed under the same id
+        updateMarketDepth(order, -order.volume);
+        if (order.side == Side.BUY) {
+            buyOrders.removeOrder(order);
+        } else {
+            sellOrders.removeOrder(order);
+        }
+        order.priceTicks = newPriceTicks;
+        order.price = priceScale.toPrice(newPriceTicks);
+        order.volume = newVolume;
+        order.timestamp = timestamp;
+        publishOrderEvent(BookEvent.Type.AMENDED, order);
+        matchAndRest(order, start, true);
+        return true;
+    }
+
+    // Resting order by id, or null if it is not in the book
+    public Order getOrder(String orderId) {
+        return orderMap.get(orderId);
+    }
+
+    public Order getOrder(long orderId) {
+        return longOrderMap.get(orderId);
+    }
+
+    // O(1): whether owner has any order in the book, resting or pending stop
+    public boolean hasOrders(long owner) {
+        return ownerHeads.get(owner) != null;
+    }
+
+    private void removeOrder(Order order) {
+        // Depth lives on the level, so update it before the order is unlinked
+        updateMarketDepth(order, -order.getVolume());
+        if (order.side == Side.BUY) {
+            buyOrders.removeOrder(order);
+        } else {
+            sellOrders.removeOrder(order);
+        }
+        unindex(order);
+        if (order.pooled) {
+            orderPool.release(order);
+        }
+    }
+
+    // O(1): by id, at the head of its owner's list and in its expiry slot
+    private void index(Order order) {
+        if (order.orderId != null) {
+            orderMap.put(order);
+        } else {
+            longOrderMap.put(order);
+        }
+        if (order.owner != NO_OWNER) {
+            Order head = ownerHeads.get(order.owner);
+            order.ownerNext = head;
+            if (head != null) {
+                head.ownerPrev = order;
+            }
+            ownerHeads.put(order.owner, order);
+        }
+        if (order.expiryTime != NO_EXPIRY) {
+            expiries.schedule(order);
+        }
+    }
+
+    private void unindex(Order order) {
+        if (order.orderId != null) {
+            orderMap.remove(order.orderId); 
+        } else {
+            longOrderMap.remove(order.id);
+        }
+        if (order.owner != NO_OWNER) {
+            Order prev = order.ownerPrev;
+            Order next = order.ownerNext;
+            if (prev != null) {
+                prev.ownerNext = next;
+            } else if (next != null) {
+                ownerHeads.put(order.owner, next);
+            } else {
+                ownerHeads.remove(order.owner);
+            }
+            if (next != null) {
+                next.ownerPrev = prev;
+            }
+            order.ownerPrev = null;
+            order.ownerNext = null;
+        }
+        if (order.expiryBucket >= 0) {
+            expiries.unschedule(order);
+        }
+    }
+
+    /*
+     * Cancels every order of owner, resting or pending stop, and returns how many.
+     * Time complexity: O(k) for the owner's k orders by walking its list, plus O(log L + d) per level
+     * emptied d levels from the touch (see OrderBookSide.removeOrder)
+     * Each order gets its CANCELLED event; each level touched gets one DEPTH event at the end rather
+     * than one per order.
+     */
+    public int cancelAll(long owner) {
+        if (owner == NO_OWNER) {
+            throw new IllegalArgumentException("cancelAll needs an owner, use cancelAll() for the whole book");
+        }
+        Order order = ownerHeads.remove(owner);
+        int cancelled = 0;
+        while (order != null) {
+            Order next = order.ownerNext;
+            order.ownerPrev = null;
+            order.ownerNext = null;
+            order.owner = NO_OWNER; // already off the owner list, keep unindex from looking for it
+            publishOrderEvent(BookEvent.Type.CANCELLED, order);
+            if (order.isPendingStop()) {
+                (order.side == Side.BUY ? buyStops : sellStops).removeOrder(order);
+            } else {
+                PriceLevel level = order.level;
+                level.totalVolume -= order.volume;
+                (order.side == Side.BUY ? touchedBuyLevels : touchedSellLevels).add(level);
+                (order.side == Side.BUY ? buyOrders : sellOrders).removeOrder(order);
+            }
+            unindex(order);
+            if (order.pooled) {
+                orderPool.release(order);
+            }
+            cancelled++;
+            order = next;
+        }
+        publishTouchedLevels(Side.BUY, touchedBuyLevels);
+        publishTouchedLevels(Side.SELL, touchedSellLevels);
+        publishDepth();
+        if (metrics != null) {
+            metrics.recordMassCancel(cancelled);
+        }
+        return cancelled;
+    }
+
+    private void publishTouchedLevels(Side side, TouchedLevels levels) {
+        if (levels.size() == 0) {
+            return;
+        }
+        OrderBookSide book = side == Side.BUY ? buyOrders : sellOrders;
+        // Prices that were emptied first: a level may have been emptied, freed and reused at another
+        // price, and a price may have had several levels, so the live volumes must come last
+        for (int i = 0; i < levels.size(); i++) {
+            PriceLevel level = levels.levelAt(i);
+            if (level.price != levels.priceAt(i) || level.orderCount == 0) {
+                publishLevelDepth(side, levels.priceAt(i), 0);
+            }
+        }
+        for (int i = 0; i < levels.size(); i++) {
+            PriceLevel level = levels.levelAt(i);
+            if (level.touched && level.price == levels.priceAt(i) && level.orderCount > 0) {
+                level.touched = false;
+                book.volumeChanged(level);
+                publishLevelDepth(side, level.price, level.totalVolume);
+            }
+        }
+        // Freed levels keep the flag until insertLevel reuses them, which resets it
+        if (depthPublisher != null) {
+            if (side == Side.BUY) {
+                bidDepthDirty = true;
+            } else {
+                askDepthDirty = true;
+            }
+        }
+        levels.clear();
+    }
+
+    /*
+     * Cancels every resting order on side priced within [fromTicks, toTicks] and returns how many.
+     * Time complexity: O(log L + k + d) for k orders, d being the levels better than the range: whole
+     * levels are dropped from the ladder in one O(d) shift, orders are never unlinked one by one. One
+     * CANCELLED per order, one DEPTH per level.
+     */
+    public int cancelAll(Side side, long fromTicks, long toTicks) {
+        OrderBookSide book = side == Side.BUY ? buyOrders : sellOrders;
+        int cancelled = cancelLevels(book, side, book.rangeStart(fromTicks, toTicks), book.rangeEnd(fromTicks, toTicks), true, true);
+        publishDepth();
+        if (metrics != null) {
+            metrics.recordMassCancel(cancelled);
+        }
+        return cancelled;
+    }
+
+    // Empties the book, pending stops included. O(n + index capacity): every index is cleared at the end
+    // instead of each order being looked up and removed from it
+    public int cancelAll() {
+        int cancelled = cancelLevels(buyOrders, Side.BUY, 0, buyOrders.getLevelCount(), true, false)
+                + cancelLevels(sellOrders, Side.SELL, 0, sellOrders.getLevelCount(), true, false)
+                + cancelLevels(buyStops, Side.BUY, 0, buyStops.getLevelCount(), false, false)
+                + cancelLevels(sellStops, Side.SELL, 0, sellStops.getLevelCount(), false, false);
+        orderMap.clear();
+        longOrderMap.clear();
+        ownerHeads.clear();
+        expiries.clear();
+        publishDepth();
+        if (metrics != null) {
+            metrics.recordMassCancel(cancelled);
+        }
+        return cancelled;
+    }
+
+    /*
+     * Applies a burst of adds, cancels and amends in one loop, in batch order, with the same matching,
+     * order events and per-entry results as the equivalent one-at-a-time calls. Depth changes are
+     * merged instead: each level the batch touched gets one DEPTH event with its final volume, and the
+     * top-of-book publisher is refreshed once, when the whole batch is applied. Events become visible
+     * to consumers together at the end, so a batch's events must fit in the ring or the excess is dropped.
+     * Time complexity: the sum of the individual calls, minus one DEPTH event and one publish per
+     * change beyond the first on each level
+     */
+    public void applyBatch(OrderBatch batch) {
+        batching = true;
+        mergingDepth = true;
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                long id = batch.ids[i];
+                switch (batch.types[i]) {
+                    case OrderBatch.ADD -> {
+                        Order order = orderPool.acquire();
+                        order.id = id;
+                        order.side = batch.sides[i];
+                        order.priceTicks = batch.priceTicks[i];
+                        order.volume = batch.volumes[i];
+                        order.timestamp = batch.timestamps[i];
+                        order.orderType = batch.orderTypes[i];
+                        order.owner = batch.owners[i];
+                        addOrder(order);
+                        // Back in the pool, level cleared, if it did not rest
+                        batch.results[i] = order.level != null ? order.volume : 0;
+                    }
+                    case OrderBatch.CANCEL -> {
+                        Order order = longOrderMap.get(id);
+                        cancelOrder(order, startTimer());
+                        batch.results[i] = order != null ? 1 : 0;
+                    }
+                    case OrderBatch.AMEND -> batch.results[i] = amend(longOrderMap.get(id), batch.priceTicks[i], batch.volumes[i],
+                            batch.timestamps[i], startTimer()) ? 1 : 0;
+                    default -> throw new IllegalArgumentException("Unknown batch entry type " + batch.types[i]);
+                }
+            }
+        } finally {
+            publishTouchedLevels(Side.BUY, touchedBuyLevels);
+            publishTouchedLevels(Side.SELL, touchedSellLevels);
+            batching = false;
+            mergingDepth = false;
+            if (events != null) {
+                events.publish();
+            }
+            publishDepth();
+        }
+    }
+
+    /*
+     * Moves engine time on to time and expires every GTD or day order it has reached, resting or pending
+     * stop, and returns how many. Engine time only moves here, through a sequenced command like any
+     * other, so a replay expires the same orders at the same point; an order whose expiry is already
+     * past is expired on arrival. Each order gets its EXPIRED event, and as in cancelAll(owner) each
+     * level touched gets one DEPTH event at the end, so the end of day close of a whole book of day
+     * orders is one pass with one depth update per level.
+     * Time complexity: O(k) for k orders expired plus O(log L + d) per level emptied d levels from the
+     * touch, on top of the wheel's own advance (see TimingWheel.advance)
+     */
+    public int advanceTime(long time) {
+        Order order = expiries.advance(time);
+        int expired = 0;
+        while (order != null) {
+            Order next = order.expiryNext;
+            order.expiryNext = null;
+            publishOrderEvent(BookEvent.Type.EXPIRED, order);
+            if (order.isPendingStop()) {
+                (order.side == Side.BUY ? buyStops : sellStops).removeOrder(order);
+            } else {
+                PriceLevel level = order.level;
+                level.totalVolume -= order.volume;
+                (order.side == Side.BUY ? touchedBuyLevels : touchedSellLevels).add(level);
+                (order.side == Side.BUY ? buyOrders : sellOrders).removeOrder(order);
+            }
+            unindex(order);
+            if (order.pooled) {
+                orderPool.release(order);
+            }
+            expired++;
+            order = next;
+        }
+        if (expired > 0) {
+            publishTouchedLevels(Side.BUY, touchedBuyLevels);
+            publishTouchedLevels(Side.SELL, touchedSellLevels);
+            publishDepth();
+            if (metrics != null) {
+                metrics.recordExpiry(expired);
+            }
+        }
+        return expired;
+    }
+
+    // Engine time, as last set by advanceTime; starts at 0
+    public long getTime() {
+        return expiries.getTime();
+    }
+
+    /*
+     * Starts a call phase: from now on limit orders and amends rest without matching, so the book may
+     * cross, and IOC, FOK and market orders are cancelled unexecuted. Stops wait as usual; nothing trades
+     * to trigger them. Ends with uncross().
+     */
+    public void startAuction() {
+        if (auction) {
+            throw new IllegalStateException("Already in a call phase");
+        }
+        auction = true;
+    }
+
+    public boolean isInAuction() {
+        return auction;
+    }
+
+    // Price uncross() would execute at right now, NO_TICKS if the book does not cross
+    public long getIndicativePrice() {
+        return findClearingPrice();
+    }
+
+    // Volume uncross() would execute right now
+    public long getIndicativeVolume() {
+        findClearingPrice();
+        return clearingVolume;
+    }
+
+    /*
+     * Ends the call phase: executes everything that crosses at the one price that maximises executed
+     * volume, then continuous matching resumes. Buys are filled best price then time first, and so are
+     * sells, pairing them off at the clearing price; each FILL carries the buy as the order and the sell
+     * as the counterparty. FILLs are published as they are produced, so consumers keep pace with an
+     * uncross of any size; only depth changes are merged, one DEPTH per level touched at the end. What
+     * is left does not cross. Returns the volume executed, 0 if nothing crossed.
+     * Time complexity: O(C) for the price, C being the levels inside the crossed range, plus O(1) per
+     * fill and O(log L) per emptied level to execute
+     */
+    public long uncross() {
+        if (!auction) {
+            throw new IllegalStateException("Not in a call phase");
+        }
+        auction = false;
+        long price = findClearingPrice();
+        long volume = clearingVolume;
+        if (price == NO_TICKS) {
+            return 0;
+        }
+        mergingDepth = true;
+        try {
+            long executed = 0;
+            while (executed < volume) {
+                Order buy = buyOrders.peek();
+                Order sell = sellOrders.peek();
+                int tradeVolume = Math.min(buy.volume, sell.volume);
+                executeTrade(buy, sell, price, tradeVolume);
+                updateMarketDepth(buy, -tradeVolume);
+                if (buy.volume == 0) {
+                    removeOrder(buy);
+                }
+                executed += tradeVolume;
+            }
+        } finally {
+            publishTouchedLevels(Side.BUY, touchedBuyLevels);
+            publishTouchedLevels(Side.SELL, touchedSellLevels);
+            mergingDepth = false;
+            publishDepth();
+        }
+        triggerStops();
+        return volume;
+    }
+
+    /*
+     * Clearing price by cumulative sums over the aggregated levels, never looking at an order. Only
+     * level prices between the best ask and the best bid can clear. Walking them upwards, the sell
+     * volume at or below the price only grows and the buy volume at or above it only shrinks, so one
+     * merged pass over both ladders gives both sums at every candidate. Executed volume is the lesser
+     * of the two. Ties go to the smaller imbalance between them, then to the price nearest the last
+     * trade, then to the lowest price. Sets clearingVolume.
+     * Time complexity: O(C), C being the levels of both sides inside the crossed range
+     */
+    private long findClearingPrice() {
+        clearingVolume = 0;
+        PriceLevel bestBid = buyOrders.getBestLevel();
+        PriceLevel bestAsk = sellOrders.getBestLevel();
+        if (bestBid == null || bestAsk == null || bestBid.price < bestAsk.price) {
+            return NO_TICKS;
+        }
+        // All buy volume at or above the best ask: what the lowest candidate sees
+        long buyVolume = 0;
+        int buyRank = 0;
+        while (buyRank < buyOrders.getLevelCount() && buyOrders.getLevelAt(buyRank).price >= bestAsk.price) {
+            buyVolume += buyOrders.getLevelAt(buyRank++).totalVolume;
+        }
+        buyRank--; // lowest buy level in range, walked back towards the best
+        long sellVolume = 0;
+        int sellRank = 0;
+        int sellLevels = sellOrders.getLevelCount();
+
+        long bestPrice = NO_TICKS;
+        long bestVolume = 0;
+        long bestImbalance = Long.MAX_VALUE;
+        while (true) {
+            long buyPrice = buyRank >= 0 ? buyOrders.getLevelAt(buyRank).price : Long.MAX_VALUE;
+            PriceLevel sellLevel = sellRank < sellLevels ? sellOrders.getLevelAt(sellRank) : null;
+            long sellPrice = sellLevel != null && sellLevel.price <= bestBid.price ? sellLevel.price : Long.MAX_VALUE;
+            long price = Math.min(buyPrice, sellPrice);
+            if (price == Long.MAX_VALUE) {
+                break;
+            }
+            if (sellPrice == price) {
+                sellVolume += sellLevel.totalVolume;
+                sellRank++;
+            }
+            long executed = Math.min(buyVolume, sellVolume);
+            long imbalance = Math.abs(buyVolume - sellVolume);
+            if (executed > bestVolume || (executed == bestVolume && (imbalance < bestImbalance
+                    || (imbalance == bestImbalance && lastTradeTicks != NO_TICKS
+                    && Math.abs(price - lastTradeTicks) < Math.abs(bestPrice - lastTradeTicks))))) {
+                bestPrice = price;
+                bestVolume = executed;
+                bestImbalance = imbalance;
+            }
+            // Buys at this price drop out of every higher candidate
+            if (buyPrice == price) {
+                buyVolume -= buyOrders.getLevelAt(buyRank--).totalVolume;
+            }
+        }
+        clearingVolume = bestVolume;
+        return bestVolume > 0 ? bestPrice : NO_TICKS;
+    }
+
+    // Cancels all orders at ladder positions [start, end) of book, best level first, then drops the levels
+    private int cancelLevels(OrderBookSide book, Side side, int start, int end, boolean depth, boolean unindex) {
+        if (start >= end) {
+            return 0;
+        }
+        int cancelled = 0;
+        for (int position = end - 1; position >= start; position--) {
+            PriceLevel level = book.levelAtPosition(position);
+            Order order = level.head;
+            while (order != null) {
+                Order next = order.next;
+                publishOrderEvent(BookEvent.Type.CANCELLED, order);
+                order.level = null;
+                order.prev = null;
+                order.next = null;
+                if (unindex) {
+                    unindex(order);
+                } else {
+                    order.ownerPrev = null;
+                    order.ownerNext = null;
+                    order.expiryPrev = null;
+                    order.expiryNext = null;
+                    order.expiryBucket = -1;
+                }
+                if (order.pooled) {
+                    orderPool.release(order);
+                }
+                cancelled++;
+                order = next;
+            }
+            level.totalVolume = 0;
+            if (depth) {
+                publishLevelDepth(side, level.price, 0);
+            }
+        }
+        if (depth && depthPublisher != null) {
+            if (side == Side.BUY) {
+                bidDepthDirty = true;
+            } else {
+                askDepthDirty = true;
+            }
+        }
+        book.removeLevels(start, end);
+        return cancelled;
+    }
+
+    // O(1), no boxing: the aggregate lives as a primitive long on the order's price level
+    private void updateMarketDepth(Order order, int volumeDiff) {
+        PriceLevel level = order.level;
+        level.totalVolume += volumeDiff; 
+        (order.side == Side.BUY ? buyOrders : sellOrders).volumeChanged(level);
+        if (mergingDepth) {
+            (order.side == Side.BUY ? touchedBuyLevels : touchedSellLevels).add(level);
+            return;
+        }
+        if (depthPublisher != null) {
+            if (order.side == Side.BUY) {
+                bidDepthDirty |= buyOrders.isWithinTop(level.price, depthPublisher.getLevels());
+            } else {
+                askDepthDirty |= sellOrders.isWithinTop(level.price, depthPublisher.getLevels());
+            }
+        }
+        if (volumeDiff != 0) {
+            BookEvent depth = claimEvent(BookEvent.Type.DEPTH, order);
+            if (depth != null) {
+                depth.orderId = null;
+                depth.volume = level.totalVolume;
+                publishEvent();
+            }
+        }
+    }
+
+    private long startTimer() {
+        return metrics != null ? metrics.startTimer() : EngineMetrics.NOT_SAMPLED;
+    }
+
+    // Called at the end of each command, once the ladder is settled, so readers only see whole commands
+    private void publishDepth() {
+        if (bidDepthDirty || askDepthDirty) {
+            depthPublisher.publish(buyOrders, sellOrders, bidDepthDirty, askDepthDirty);
+            bidDepthDirty = false;
+            askDepthDirty = false;
+        }
+    }
+
+    // Claims the next event slot filled with the order's identity, or null when no ring is attached
+    // or the ring is full. Never blocks; a dropped event still consumes an event sequence number.
+    private BookEvent claimEvent(BookEvent.Type type, Order order) {
+        if (events == null) {
+            return null;
+        }
+        long sequence = eventSequence++;
+        BookEvent event = events.tryClaim();
+        if (event != null) {
+            event.type = type;
+            event.sequence = sequence;
+            event.orderId = order.orderId;
+            event.id = order.id;
+            event.side = order.side;
+            event.priceTicks = order.priceTicks;
+            event.timestamp = order.timestamp;
+        }
+        return event;
+    }
+
+    // DEPTH event for a level no single order stands for, after a bulk change
+    private void publishLevelDepth(Side side, long priceTicks, long volume) {
+        if (events == null) {
+            return;
+        }
+        long sequence = eventSequence++;
+        BookEvent event = events.tryClaim();
+        if (event != null) {
+            event.type = BookEvent.Type.DEPTH;
+            event.sequence = sequence;
+            event.orderId = null;
+            event.id = 0;
+            event.side = side;
+            event.priceTicks = priceTicks;
+            event.timestamp = 0;
+            event.volume = volume;
+            publishEvent();
+        }
+    }
+
+    // Inside applyBatch the cursor only moves once, at the end, so consumers get the batch as one unit
+    private void publishEvent() {
+        if (!batching) {
+            events.publish();
+        }
+    }
+
+    private void publishOrderEvent(BookEvent.Type type, Order order) {
+        BookEvent event = claimEvent(type, order);
+        if (event != null) {
+            event.volume = order.volume;
+            publishEvent();
+        }
+    }
+
+
+    // Method to get the market depth/demand
+    // Live view for the matching thread; other threads should read snapshots from a DepthPublisher
+    public Map<Double, Integer> getMarketDepth(String side) {
+        /* 
+         O(n) approach, where n is length of order book 
+         // use tree map if the map needs to be sorted by price 
+        Map<Double, Integer> depthMap = new HashMap<>(); 
+         PriorityQueue<Order> orders = side.equals("buy") ? buyOrders : sellOrders; 
+ 
+         for (Order order : orders) {
+             depthMap.put(order.getPrice(), depthMap.getOrDefault(order.getPrice(),0) + order.getVolume()); 
+         }
+         return depthMap; 
+         */
+        return side.equals("buy") ? buyVolumeMap : sellVolumeMap;
+    }
+
+    public Map<Double, Integer> getMarketDepthFromRange(String side, Double startPrice, Double endPrice) {
+        /*
+         two liner 
+        NavigableMap<Double, Integer> volumeMap = side.equals("buy") ?  (NavigableMap ) buyVolumeMap : (NavigableMap ) sellVolumeMap;
+        return new HashMap<>(volumeMap.subMap(startPrice, true, endPrice, true));
+         */
+        // Live view ordered by ascending price; iteration seeks straight to startPrice in O(log L)
+        OrderBookSide book = side.equals("buy") ? buyOrders : sellOrders;
+        return new DepthMapView(book, priceScale, priceScale.toTicks(startPrice), priceScale.toTicks(endPrice));
+    }
+
+    /*
+     * Time complexity: O(log L + k) for the k levels in range
+     * Copies the levels of one side priced within [fromTicks, toTicks] into range, ascending by price.
+     * Allocation-free once range has grown to fit, for callers polling depth in a loop.
+     */
+    public DepthRange getMarketDepthRange(Side side, long fromTicks, long toTicks, DepthRange range) {
+        return (side == Side.BUY ? buyOrders : sellOrders).copyRange(fromTicks, toTicks, range);
+    }
+
+    // Volume a taker limited at priceTicks could trade against side. O(log L), see OrderBookSide.volumeUpTo
+    public long getVolumeUpTo(Side side, long priceTicks) {
+        return (side == Side.BUY ? buyOrders : sellOrders).volumeUpTo(priceTicks);
+    }
+
+    // Worst price reached by trading volume against side, NO_TICKS if it holds less. O(log L)
+    public long getPriceToFill(Side side, long volume) {
+        return (side == Side.BUY ? buyOrders : sellOrders).priceToFill(volume);
+    }
+
+    public static void main(String[] args) {
+        // Example usage of TradeMatchingEngine
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+            
+        engine.addOrder(new Order("1", "buy", 100.0, 10, System.currentTimeMillis()));
+        engine.addOrder(new Order("2", "buy", 101.0, 15, System.currentTimeMillis()));
+        engine.addOrder(new Order("3", "sell", 102.0, 20, System.currentTimeMillis()));
+        engine.addOrder(new Order("4", "sell", 100.0, 5, System.currentTimeMillis()));
+
+        System.out.println("Market Depth for Buy Orders:");
+        Map<Double, Integer> buyDepth = engine.getMarketDepth("buy");
+        for (Map.Entry<Double, Integer> entry : buyDepth.entrySet()) {
+            System.out.println("Price: " + entry.getKey() + " | Volume: " + entry.getValue());
+        }
+
+        System.out.println("\nMarket Depth for Sell Orders:");
+        Map<Double, Integer> sellDepth = engine.getMarketDepth("sell");
+        for (Map.Entry<Double, Integer> entry : sellDepth.entrySet()) {
+            System.out.println("Price: " + entry.getKey() + " | Volume: " + entry.getValue());
+        }
+
+        System.out.println("\nMarket Depth for Buy Orders in Range 100.0 to 101.0:");
+        Map<Double, Integer> buyDepthRange = engine.getMarketDepthFromRange("buy", 100.0, 101.0);
+        for (Map.Entry<Double, Integer> entry : buyDepthRange.entrySet()) {
+            System.out.println("Price: " + entry.getKey() + " | Volume: " + entry.getValue());
+        }
+    }
+
+    // Attach (or detach with null) the ring buffer the engine publishes its events to
+    public void setEventRingBuffer(EventRingBuffer events) {
+        this.events = events;
+    }
+
+    public EventRingBuffer getEventRingBuffer() {
+        return events;
+    }
+
+    // Attach (or detach with null) a publisher of consistent top-N depth for other threads. Unlike
+    // getMarketDepth, which is a live view for the matching thread only, its snapshots are safe to
+    // read from anywhere. Must be called from the matching thread.
+    public void setDepthPublisher(DepthPublisher depthPublisher) {
+        this.depthPublisher = depthPublisher;
+        if (depthPublisher != null) {
+            depthPublisher.publish(buyOrders, sellOrders);
+        }
+    }
+
+    public DepthPublisher getDepthPublisher() {
+        return depthPublisher;
+    }
+
+    // Attach (or detach with null) metrics recorded on the matching thread
+    public void setMetrics(EngineMetrics metrics) {
+        this.metrics = metrics;
+        if (metrics != null) {
+            metrics.attach(this);
+        }
+    }
+
+    public EngineMetrics getMetrics() {
+        return metrics;
+    }
+
+    public OrderPool getOrderPool() {
+        return orderPool;
+    }
+
+    public PriceScale getPriceScale() {
+        return priceScale;
+    }
+
+    public OrderBookSide getBuyOrders() {
+        return buyOrders;
+    }
+
+    public OrderBookSide getSellOrders() {
+        return sellOrders;
+    }
+
+    // Pending stops, in trigger order; levels here are stop prices
+    public OrderBookSide getBuyStops() {
+        return buyStops;
+    }
+
+    public OrderBookSide getSellStops() {
+        return sellStops;
+    }
+
+    // Price of the most recent trade in ticks, NO_TICKS before the first one
+    public long getLastTradeTicks() {
+        return lastTradeTicks;
+    }
+
+    // Snapshot restore only: stops are judged against the price the captured book last traded at
+    void setLastTradeTicks(long lastTradeTicks) {
+        this.lastTradeTicks = lastTradeTicks;
+    }
+}
\ No newline at end of file
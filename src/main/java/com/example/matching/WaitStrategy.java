@@ -0,0 +1,51 @@
+package com.example.matching;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// How an EventProcessor waits for the producer cursor to move. None of these need the producer to
+// signal anything, so the matching thread never pays for waking consumers up.
+public interface WaitStrategy {
+
+    // Returns the highest published sequence, at least the one asked for unless the processor is halted
+    long waitFor(long sequence, AtomicLong cursor, EventProcessor processor);
+
+    // Lowest latency, burns a core
+    static WaitStrategy busySpin() {
+        return (sequence, cursor, processor) -> {
+            long available;
+            while ((available = cursor.get()) < sequence && processor.isRunning()) {
+                Thread.onSpinWait();
+            }
+            return available;
+        };
+    }
+
+    // Spins briefly then yields the core to other runnable threads
+    static WaitStrategy yielding() {
+        return (sequence, cursor, processor) -> {
+            long available;
+            int spins = 100;
+            while ((available = cursor.get()) < sequence && processor.isRunning()) {
+                if (spins > 0) {
+                    spins--;
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            return available;
+        };
+    }
+
+    // Cheapest on CPU, adds up to parkNanos (plus timer slack) of latency
+    static WaitStrategy parking(long parkNanos) {
+        return (sequence, cursor, processor) -> {
+            long available;
+            while ((available = cursor.get()) < sequence && processor.isRunning()) {
+                LockSupport.parkNanos(parkNanos);
+            }
+            return available;
+        };
+    }
+}
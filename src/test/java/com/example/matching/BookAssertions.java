@@ -0,0 +1,41 @@
+package com.example.matching;
+
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compares two books order by order in full price-time priority, pending stops included
+final class BookAssertions {
+
+    private BookAssertions() {
+    }
+
+    static void assertSameBook(TradeMatchingEngine expected, TradeMatchingEngine actual) {
+        assertSameSide(expected.getBuyOrders(), actual.getBuyOrders());
+        assertSameSide(expected.getSellOrders(), actual.getSellOrders());
+        assertSameSide(expected.getBuyStops(), actual.getBuyStops());
+        assertSameSide(expected.getSellStops(), actual.getSellStops());
+        assertEquals(expected.getLastTradeTicks(), actual.getLastTradeTicks());
+        assertEquals(expected.getMarketDepth("buy"), actual.getMarketDepth("buy"));
+        assertEquals(expected.getMarketDepth("sell"), actual.getMarketDepth("sell"));
+    }
+
+    private static void assertSameSide(OrderBookSide expected, OrderBookSide actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.getLevelCount(), actual.getLevelCount());
+        Iterator<TradeMatchingEngine.Order> actualOrders = actual.iterator();
+        for (TradeMatchingEngine.Order order : expected) {
+            TradeMatchingEngine.Order other = actualOrders.next();
+            assertEquals(order.getOrderId(), other.getOrderId());
+            assertEquals(order.getId(), other.getId());
+            assertEquals(order.getSide(), other.getSide());
+            assertEquals(order.getPriceTicks(), other.getPriceTicks());
+            assertEquals(order.getVolume(), other.getVolume());
+            assertEquals(order.getTimestamp(), other.getTimestamp());
+            assertEquals(order.getOrderType(), other.getOrderType());
+            assertEquals(order.getStopTicks(), other.getStopTicks());
+            assertEquals(order.getOwner(), other.getOwner());
+            assertEquals(order.getExpiryTime(), other.getExpiryTime());
+        }
+    }
+}
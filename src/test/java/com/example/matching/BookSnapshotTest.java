@@ -0,0 +1,146 @@
+package com.example.matching;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private static Command randomCommand(Random random, int i) {
+        if (i > 0 && random.nextInt(4) == 0) {
+            return Command.cancel("O" + random.nextInt(i));
+        }
+        String side = random.nextBoolean() ? "buy" : "sell";
+        TradeMatchingEngine.Order order = new TradeMatchingEngine.Order("O" + i, side, 100 + random.nextInt(40) * 0.01, 1 + random.nextInt(50), i)
+                .withOwner(random.nextInt(3));
+        if (random.nextInt(8) == 0) {
+            // Stops well away from the touch, so some stay pending across the snapshot
+            long stop = 10_000 + (order.getSide() == Side.BUY ? 30 : 10) + random.nextInt(20) - 10;
+            order.withStop(random.nextBoolean() ? OrderType.STOP : OrderType.STOP_LIMIT, stop);
+        }
+        return Command.add(order);
+    }
+
+    @Test
+    void testWriteReadRestoreRoundTrip() throws Exception {
+        TradeMatchingEngine engine = new TradeMatchingEngine(0.01);
+        Random random = new Random(5);
+        for (int i = 0; i < 20_000; i++) {
+            randomCommand(random, i).applyTo(engine);
+        }
+        engine.addOrder(new TradeMatchingEngine.Order("SYM", "with-symbol", "buy", 50.0, 3, 1));
+        engine.addOrder(-5L, Side.BUY, 4_000, 2, 2);
+
+        Path file = directory.resolve("book.snap");
+        BookSnapshot.capture(engine, 20_001).write(file);
+        BookSnapshot loaded = BookSnapshot.read(file);
+
+        assertEquals(20_001, loaded.getSequence());
+        assertEquals(engine.getBuyOrders().size() + engine.getSellOrders().size() + engine.getBuyStops().size()
+                + engine.getSellStops().size(), loaded.getOrderCount());
+        assertTrue(engine.getBuyStops().size() + engine.getSellStops().size() > 0);
+        TradeMatchingEngine restored = loaded.restore();
+        BookAssertions.assertSameBook(engine, restored);
+        assertEquals("SYM", restored.getBuyOrders().getLevel(5_000).head.getSymbol());
+        assertEquals(2, restored.getOrder(-5L).getVolume());
+    }
+
+    @Test
+    void testCallPhaseSnapshotRestoresCrossedBook() throws Exception {
+        TradeMatchingEngine engine = new TradeMatchingEngine(0.01);
+        engine.startAuction();
+        Random random = new Random(13);
+        for (int i = 0; i < 2_000; i++) {
+            engine.addOrder(i, random.nextBoolean() ? Side.BUY : Side.SELL, 10_000 + random.nextInt(40) - 20, 1 + random.nextInt(50), i);
+        }
+        assertTrue(engine.getIndicativeVolume() > 0);
+
+        Path file = directory.resolve("auction.snap");
+        BookSnapshot.capture(engine, 2_000).write(file);
+        BookSnapshot loaded = BookSnapshot.read(file);
+        assertTrue(loaded.isInAuction());
+        TradeMatchingEngine restored = loaded.restore();
+        assertTrue(restored.isInAuction());
+        BookAssertions.assertSameBook(engine, restored);
+
+        assertEquals(engine.uncross(), restored.uncross());
+        BookAssertions.assertSameBook(engine, restored);
+    }
+
+    @Test
+    void testExpiriesSurviveRestore() throws Exception {
+        TradeMatchingEngine engine = new TradeMatchingEngine(0.01);
+        Random random = new Random(29);
+        for (int i = 0; i < 2_000; i++) {
+            Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+            TradeMatchingEngine.Order order = TradeMatchingEngine.Order.ofTicks(i, side, side == Side.BUY ? 9_990 - random.nextInt(20) : 10_010 + random.nextInt(20),
+                    1 + random.nextInt(50), i);
+            engine.addOrder(random.nextInt(3) == 0 ? order : order.withExpiry(500 + random.nextInt(10_000)));
+        }
+        engine.advanceTime(3_000);
+
+        Path file = directory.resolve("expiry.snap");
+        BookSnapshot.capture(engine, 2_001).write(file);
+        BookSnapshot loaded = BookSnapshot.read(file);
+        assertEquals(3_000, loaded.getTime());
+        TradeMatchingEngine restored = loaded.restore();
+        assertEquals(3_000, restored.getTime());
+        BookAssertions.assertSameBook(engine, restored);
+
+        assertEquals(engine.advanceTime(7_000), restored.advanceTime(7_000));
+        BookAssertions.assertSameBook(engine, restored);
+    }
+
+    @Test
+    void testEmptyBook() throws Exception {
+        Path file = directory.resolve("empty.snap");
+        BookSnapshot.capture(new TradeMatchingEngine(0.5), 0).write(file);
+        TradeMatchingEngine restored = BookSnapshot.read(file).restore();
+
+        assertEquals(0, restored.getBuyOrders().size());
+        assertEquals(0.5, restored.getPriceScale().getTickSize());
+    }
+
+    @Test
+    void testRecoverFromSnapshotPlusJournalTail() throws Exception {
+        TradeMatchingEngine live = new TradeMatchingEngine(0.01);
+        Path journalDirectory = directory.resolve("journal");
+        Path snapshotFile = directory.resolve("book.snap");
+        Random random = new Random(9);
+        long snapshotSequence;
+        try (Journal journal = new Journal(journalDirectory, 1 << 20, SyncPolicy.NONE, 0);
+             Sequencer sequencer = new Sequencer(live, 1024, 64).withJournal(journal).start()) {
+            CompletableFuture<Long> first = null;
+            for (int i = 0; i < 5_000; i++) {
+                first = sequencer.submit(randomCommand(random, i));
+            }
+            first.get(5, TimeUnit.SECONDS);
+            // Taken mid-stream while commands keep flowing behind it
+            CompletableFuture<Long> snapshot = sequencer.snapshot(snapshotFile);
+            CompletableFuture<Long> last = null;
+            for (int i = 5_000; i < 10_000; i++) {
+                last = sequencer.submit(randomCommand(random, i));
+                // Rejected by the engine but journaled all the same; recovery has to step over them
+                if (i % 1_000 == 0) {
+                    sequencer.submitUncross();
+                    sequencer.submitAmend("O" + i, 10_000, 0, i);
+                }
+            }
+            snapshotSequence = snapshot.get(5, TimeUnit.SECONDS);
+            assertEquals(10_010, last.get(5, TimeUnit.SECONDS));
+        }
+        assertTrue(snapshotSequence >= 5_000 && snapshotSequence <= 10_010);
+
+        TradeMatchingEngine recovered = BookSnapshot.recover(snapshotFile, journalDirectory);
+        BookAssertions.assertSameBook(live, recovered);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DepthFeedTest {
+
+    // Subscriber side book rebuilt purely from the feed
+    private static final class LocalBook implements DepthFeed.Listener {
+        final Map<Long, Long> bids = new HashMap<>();
+        final Map<Long, Long> asks = new HashMap<>();
+        final List<long[]> updates = new ArrayList<>();
+        int refreshes;
+
+        @Override
+        public void onLevel(Side side, long priceTicks, long volume, long sequence) {
+            updates.add(new long[]{side.ordinal(), priceTicks, volume, sequence});
+            Map<Long, Long> book = side == Side.BUY ? bids : asks;
+            if (volume == 0) {
+                book.remove(priceTicks);
+            } else {
+                book.put(priceTicks, volume);
+            }
+        }
+
+        @Override
+        public void onRefresh(long sequence) {
+            refreshes++;
+            bids.clear();
+            asks.clear();
+        }
+    }
+
+    private static EventProcessor attach(TradeMatchingEngine engine, DepthFeed feed) {
+        EventRingBuffer ring = new EventRingBuffer(1 << 12);
+        engine.setEventRingBuffer(ring);
+        return new EventProcessor(ring, feed, WaitStrategy.yielding());
+    }
+
+    private static Map<Long, Long> engineDepth(OrderBookSide side) {
+        Map<Long, Long> depth = new HashMap<>();
+        for (int i = 0; i < side.getLevelCount(); i++) {
+            PriceLevel level = side.getLevelAtAscending(i);
+            depth.put(level.getPriceTicks(), level.getTotalVolume());
+        }
+        return depth;
+    }
+
+    @Test
+    void testDeltasCarrySideLevelVolumeAndSequence() {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        DepthFeed feed = new DepthFeed();
+        EventProcessor processor = attach(engine, feed);
+        DepthFeed.Subscription subscription = feed.subscribe(64);
+        LocalBook book = new LocalBook();
+        assertEquals(0, subscription.poll(book)); // empty initial refresh
+        assertEquals(1, book.refreshes);
+
+        engine.addOrder("1", Side.BUY, 100, 10, 1);
+        engine.addOrder("2", Side.SELL, 105, 7, 2);
+        processor.processAvailable();
+        assertEquals(2, subscription.poll(book));
+        assertArrayEquals(new long[]{Side.BUY.ordinal(), 100, 10}, Arrays.copyOf(book.updates.get(0), 3));
+        assertArrayEquals(new long[]{Side.SELL.ordinal(), 105, 7}, Arrays.copyOf(book.updates.get(1), 3));
+        assertTrue(book.updates.get(1)[3] > book.updates.get(0)[3]);
+
+        engine.deleteOrder("2");
+        processor.processAvailable();
+        assertEquals(1, subscription.poll(book));
+        assertEquals(0, book.updates.get(2)[2]);
+        assertTrue(book.asks.isEmpty());
+    }
+
+    @Test
+    void testSlowSubscriberGetsOnlyLatestStatePerLevel() {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        DepthFeed feed = new DepthFeed();
+        EventProcessor processor = attach(engine, feed);
+        DepthFeed.Subscription fast = feed.subscribe(64);
+        DepthFeed.Subscription slow = feed.subscribe(64);
+        LocalBook fastBook = new LocalBook();
+        LocalBook slowBook = new LocalBook();
+        fast.poll(fastBook);
+        slow.poll(slowBook);
+
+        int fastDelivered = 0;
+        for (int i = 0; i < 100; i++) {
+            engine.addOrder("B" + i, Side.BUY, 100 + i % 2, 1, i);
+            processor.processAvailable();
+            fastDelivered += fast.poll(fastBook);
+        }
+        assertEquals(100, fastDelivered);
+        assertEquals(2, slow.poll(slowBook));
+        assertEquals(Map.of(100L, 50L, 101L, 50L), slowBook.bids);
+        assertEquals(fastBook.bids, slowBook.bids);
+        assertEquals(100, slow.getUpdateCount());
+    }
+
+    @Test
+    void testLateJoinerAndOverflowGetFullRefresh() {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        DepthFeed feed = new DepthFeed();
+        EventProcessor processor = attach(engine, feed);
+        for (int i = 0; i < 20; i++) {
+            engine.addOrder("B" + i, Side.BUY, 100 - i, 5, i);
+            engine.addOrder("S" + i, Side.SELL, 200 + i, 5, i);
+        }
+        processor.processAvailable();
+
+        LocalBook late = new LocalBook();
+        DepthFeed.Subscription subscription = feed.subscribe(4);
+        assertEquals(40, subscription.poll(late));
+        assertEquals(engineDepth(engine.getBuyOrders()), late.bids);
+        assertEquals(engineDepth(engine.getSellOrders()), late.asks);
+
+        // More distinct levels than the subscription can conflate: falls back to a refresh
+        for (int i = 0; i < 10; i++) {
+            engine.deleteOrder("B" + i);
+        }
+        processor.processAvailable();
+        subscription.poll(late);
+        assertEquals(2, late.refreshes);
+        assertEquals(engineDepth(engine.getBuyOrders()), late.bids);
+    }
+
+    @Test
+    void testRandomFlowKeepsSubscriberBookInSync() {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        DepthFeed feed = new DepthFeed(500);
+        EventProcessor processor = attach(engine, feed);
+        DepthFeed.Subscription subscription = feed.subscribe(16);
+        LocalBook book = new LocalBook();
+        Random random = new Random(11);
+        for (int i = 0; i < 5000; i++) {
+            if (i > 10 && random.nextInt(3) == 0) {
+                engine.deleteOrder(String.valueOf(random.nextInt(i)));
+            } else {
+                Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+                engine.addOrder(String.valueOf(i), side, 1000 + random.nextInt(40) - 20, 1 + random.nextInt(9), i);
+            }
+            processor.processAvailable();
+            if (random.nextInt(7) == 0) {
+                subscription.poll(book);
+            }
+        }
+        subscription.poll(book);
+        assertEquals(engineDepth(engine.getBuyOrders()), book.bids);
+        assertEquals(engineDepth(engine.getSellOrders()), book.asks);
+        assertTrue(book.refreshes > 1);
+        assertEquals(0, feed.getGapCount());
+    }
+}
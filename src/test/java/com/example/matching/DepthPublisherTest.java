@@ -0,0 +1,112 @@
+package com.example.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DepthPublisherTest {
+
+    @Test
+    void testSnapshotHoldsTopLevelsOfBothSides() {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        DepthPublisher publisher = new DepthPublisher(3);
+        engine.setDepthPublisher(publisher);
+        for (int i = 0; i < 5; i++) {
+            engine.addOrder("B" + i, Side.BUY, 100 - i, 10 + i, i);
+            engine.addOrder("S" + i, Side.SELL, 105 + i, 20 + i, i);
+        }
+        engine.addOrder("B5", Side.BUY, 100, 5, 6);
+
+        DepthSnapshot snapshot = publisher.read();
+        assertEquals(3, snapshot.getBidLevels());
+        assertEquals(100, snapshot.getBidPrice(0));
+        assertEquals(15, snapshot.getBidVolume(0));
+        assertEquals(98, snapshot.getBidPrice(2));
+        assertEquals(3, snapshot.getAskLevels());
+        assertEquals(105, snapshot.getAskPrice(0));
+        assertEquals(107, snapshot.getAskPrice(2));
+        assertEquals(22, snapshot.getAskVolume(2));
+
+        // A sweep removes the best ask and the next level moves up
+        engine.addOrder("X", Side.BUY, 105, 20, 7);
+        snapshot = publisher.read(snapshot);
+        assertEquals(106, snapshot.getAskPrice(0));
+        assertEquals(108, snapshot.getAskPrice(2));
+    }
+
+    @Test
+    void testChangesOutsideTopLevelsDoNotRepublish() {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        DepthPublisher publisher = new DepthPublisher(2);
+        engine.setDepthPublisher(publisher);
+        engine.addOrder("B0", Side.BUY, 100, 1, 0);
+        engine.addOrder("B1", Side.BUY, 99, 1, 1);
+        DepthSnapshot snapshot = publisher.read();
+        long version = publisher.getVersion();
+
+        engine.addOrder("B2", Side.BUY, 90, 1, 2);
+        engine.deleteOrder("B2");
+        assertEquals(version, publisher.getVersion());
+        assertSame(snapshot, publisher.read(snapshot));
+
+        engine.addOrder("B3", Side.BUY, 99, 1, 3);
+        assertEquals(version + 1, publisher.getVersion());
+        assertEquals(2, publisher.read(snapshot).getBidVolume(1));
+    }
+
+    @Test
+    void testConcurrentReaderNeverSeesTornBook() throws InterruptedException {
+        OrderBookSide bids = new OrderBookSide(true);
+        OrderBookSide asks = new OrderBookSide(false);
+        for (int rank = 0; rank < 5; rank++) {
+            bids.offer(TradeMatchingEngine.Order.ofTicks("B" + rank, "buy", 100 - rank, 1, rank));
+            asks.offer(TradeMatchingEngine.Order.ofTicks("S" + rank, "sell", 101 + rank, 1, rank));
+        }
+        DepthPublisher publisher = new DepthPublisher(5);
+
+        // Every publication sets level volumes to generation * (rank + 1) on both sides, so any mix of
+        // two publications shows up as a broken ratio
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> torn = new AtomicReference<>();
+        AtomicLong snapshots = new AtomicLong();
+        Thread reader = new Thread(() -> {
+            DepthSnapshot last = null;
+            while (!done.get()) {
+                DepthSnapshot snapshot = publisher.read(last);
+                if (snapshot != last && snapshot.getBidLevels() == 5) {
+                    long generation = snapshot.getBidVolume(0);
+                    for (int rank = 0; rank < 5; rank++) {
+                        if (snapshot.getBidVolume(rank) != generation * (rank + 1)
+                                || snapshot.getAskVolume(rank) != generation * (rank + 1)) {
+                            torn.compareAndSet(null, snapshot.toString());
+                        }
+                    }
+                    snapshots.incrementAndGet();
+                }
+                last = snapshot;
+                Thread.yield();
+            }
+        });
+        reader.start();
+
+        for (long generation = 1; generation <= 200_000; generation++) {
+            for (int rank = 0; rank < 5; rank++) {
+                bids.getLevelAt(rank).totalVolume = generation * (rank + 1);
+                asks.getLevelAt(rank).totalVolume = generation * (rank + 1);
+            }
+            publisher.publish(bids, asks);
+            if ((generation & 1023) == 0) {
+                Thread.yield();
+            }
+        }
+        done.set(true);
+        reader.join();
+        assertNull(torn.get());
+        assertTrue(snapshots.get() > 0);
+        assertEquals(200_000, publisher.getVersion());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.matching;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineMetricsTest {
+
+    @Test
+    void testHistogramPercentilesWithinOnePercent() {
+        Histogram histogram = new Histogram();
+        Random random = new Random(1);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // Long-tailed, like latencies: mostly hundreds of ns, some up to milliseconds
+            values[i] = (long) Math.exp(random.nextDouble() * 14);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long reported = histogram.getValueAtPercentile(percentile);
+            assertTrue(reported >= exact && reported <= exact * 1.01 + 1, percentile + ": " + reported + " vs " + exact);
+        }
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(values.length, histogram.getCount());
+
+        // Bucket boundaries cover the whole range without gaps
+        for (int i = 1; i < Histogram.index(Long.MAX_VALUE); i++) {
+            assertEquals(Histogram.highestValueAt(i - 1) + 1, Histogram.lowestValueAt(i));
+            assertEquals(i, Histogram.index(Histogram.lowestValueAt(i)));
+        }
+    }
+
+    @Test
+    void testHistogramIntervalsByDiffingCopies() {
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 100; i++) {
+            histogram.record(10);
+        }
+        Histogram before = histogram.copy();
+        for (int i = 0; i < 100; i++) {
+            histogram.record(1_000);
+        }
+        Histogram interval = histogram.minus(before);
+        assertEquals(100, interval.getCount());
+        assertEquals(1_000, interval.getValueAtPercentile(50), 10);
+        assertEquals(1_000, interval.getMean(), 0.001);
+    }
+
+    @Test
+    void testCountersAndGauges() {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        EngineMetrics metrics = new EngineMetrics(1);
+        engine.setMetrics(metrics);
+        engine.addOrder("S1", Side.SELL, 100, 5, 1);
+        engine.addOrder("S2", Side.SELL, 100, 5, 2);
+        engine.addOrder("S3", Side.SELL, 101, 5, 3);
+        engine.addOrder("S4", Side.SELL, 102, 5, 4);
+        engine.addOrder("B1", Side.BUY, 101, 12, 5); // three fills over two levels, rests nothing
+        engine.addOrder("B2", Side.BUY, 90, 1, 6);
+        engine.deleteOrder("B2");
+        engine.deleteOrder("missing");
+
+        assertEquals(6, metrics.getOrdersAdded());
+        assertEquals(5, metrics.getOrdersRested());
+        assertEquals(1, metrics.getAggressiveOrders());
+        assertEquals(3, metrics.getFills());
+        assertEquals(2, metrics.getLevelsSwept());
+        assertEquals(1, metrics.getCancels());
+        assertEquals(1, metrics.getCancelMisses());
+        assertEquals(2, metrics.getRestingSellOrders());
+        assertEquals(0, metrics.getRestingBuyOrders());
+        assertEquals(2, metrics.getSellLevels());
+
+        assertEquals(6, metrics.getAddOrderLatency().getCount());
+        assertEquals(1, metrics.getMatchLatency().getCount());
+        assertEquals(1, metrics.getCancelLatency().getCount());
+        assertEquals(2, metrics.getLevelsPerSweep().getMax());
+
+        engine.amendOrder("S3", 101, 2, 7);
+        engine.amendOrder("S4", 101, 5, 8);
+        engine.amendOrder("missing", 101, 5, 9);
+        assertEquals(2, metrics.getAmends());
+        assertEquals(1, metrics.getAmendsInPlace());
+        assertEquals(1, metrics.getAmendMisses());
+        assertEquals(2, metrics.getAmendLatency().getCount());
+        assertEquals(1, metrics.getSellLevels());
+    }
+
+    @Test
+    void testSamplingTimesOneOperationInInterval() {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        EngineMetrics metrics = new EngineMetrics(8);
+        engine.setMetrics(metrics);
+        for (long i = 0; i < 800; i++) {
+            engine.addOrder(i, Side.BUY, 100, 1, i);
+        }
+        assertEquals(800, metrics.getOrdersAdded());
+        assertEquals(100, metrics.getAddOrderLatency().getCount());
+        assertThrows(IllegalArgumentException.class, () -> new EngineMetrics(10));
+    }
+
+    @Test
+    void testJmxAndTextDump() throws Exception {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        EngineMetrics metrics = new EngineMetrics();
+        engine.setMetrics(metrics);
+        engine.addOrder("S1", Side.SELL, 100, 5, 1);
+        engine.addOrder("B1", Side.BUY, 100, 5, 2);
+
+        ObjectName name = metrics.register("test-book");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(2L, server.getAttribute(name, "OrdersAdded"));
+            assertEquals(1L, server.getAttribute(name, "Fills"));
+            CompositeData latency = (CompositeData) server.getAttribute(name, "AddOrderLatency");
+            assertTrue(latency.containsKey("p99"));
+            assertEquals(16, server.getAttribute(name, "TimingSampleInterval"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+
+        String dump = metrics.dump();
+        assertTrue(dump.contains("orders added=2 rested=1 aggressive=1 fills=1"), dump);
+        assertTrue(dump.contains("addOrder ns count=1"), dump);
+    }
+}
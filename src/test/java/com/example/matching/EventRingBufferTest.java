@@ -0,0 +1,137 @@
+package com.example.matching;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventRingBufferTest {
+
+    private TradeMatchingEngine engine;
+    private EventRingBuffer ring;
+    private final List<String> received = new ArrayList<>();
+    private EventProcessor processor;
+    private Thread consumer;
+
+    @BeforeEach
+    void setUp() {
+        engine = new TradeMatchingEngine(0.01);
+        ring = new EventRingBuffer(64);
+        engine.setEventRingBuffer(ring);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (processor != null) {
+            processor.halt();
+            consumer.join();
+        }
+    }
+
+    private CountDownLatch startConsumer(int expectedEvents, WaitStrategy waitStrategy) {
+        CountDownLatch latch = new CountDownLatch(expectedEvents);
+        processor = new EventProcessor(ring, (event, sequence, endOfBatch) -> {
+            synchronized (received) {
+                received.add(event.toString());
+            }
+            latch.countDown();
+        }, waitStrategy);
+        consumer = new Thread(processor, "event-consumer");
+        consumer.start();
+        return latch;
+    }
+
+    @Test
+    void testFillAckCancelAndDepthEvents() throws InterruptedException {
+        CountDownLatch latch = startConsumer(9, WaitStrategy.busySpin());
+
+        engine.addOrder("1", Side.SELL, 10_000, 10, 1);  // ACCEPTED, DEPTH 10
+        engine.addOrder("2", Side.BUY, 10_000, 4, 2);    // FILL 4, DEPTH 6
+        engine.addOrder("3", Side.BUY, 9_999, 5, 3);     // ACCEPTED, DEPTH 5
+        engine.deleteOrder("3");                          // CANCELLED, DEPTH 0
+        engine.addOrder("4", Side.BUY, 10_000, 6, 4);    // FILL 6 (DEPTH 0 on the sell side)
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(
+                "ACCEPTED#0 1 SELL 10@10000",
+                "DEPTH#1 null SELL 10@10000",
+                "FILL#2 2/1 BUY 4@10000",
+                "DEPTH#3 null SELL 6@10000",
+                "ACCEPTED#4 3 BUY 5@9999",
+                "DEPTH#5 null BUY 5@9999",
+                "CANCELLED#6 3 BUY 5@9999",
+                "DEPTH#7 null BUY 0@9999",
+                "FILL#8 4/1 BUY 6@10000"), received.subList(0, 9));
+    }
+
+    @Test
+    void testFailingHandlerGoesToErrorHandlerAndIsSkipped() {
+        List<Throwable> errors = new ArrayList<>();
+        EventProcessor processor = new EventProcessor(ring, (event, sequence, endOfBatch) -> {
+            if (event.getType() == BookEvent.Type.DEPTH) {
+                throw new IllegalStateException("depth");
+            }
+            received.add(event.toString());
+        }, WaitStrategy.busySpin(), (message, error) -> errors.add(error));
+
+        engine.addOrder("1", Side.SELL, 10_000, 10, 1);  // ACCEPTED, DEPTH 10
+        engine.addOrder("2", Side.SELL, 10_001, 10, 2);  // ACCEPTED, DEPTH 10
+
+        assertEquals(4, processor.processAvailable());
+        assertEquals(3, processor.getSequence());
+        assertEquals(List.of("ACCEPTED#0 1 SELL 10@10000", "ACCEPTED#2 2 SELL 10@10001"), received);
+        assertEquals(2, errors.size());
+        assertEquals("depth", errors.get(0).getMessage());
+    }
+
+    @Test
+    void testFullRingDropsInsteadOfBlocking() {
+        ring = new EventRingBuffer(4);
+        engine.setEventRingBuffer(ring);
+        // A registered consumer that never runs, so the ring fills up
+        new EventProcessor(ring, (event, sequence, endOfBatch) -> { }, WaitStrategy.yielding());
+
+        for (int i = 0; i < 10; i++) {
+            engine.addOrder("B" + i, Side.BUY, 9_000 + i, 1, i);
+        }
+
+        assertEquals(10, engine.getBuyOrders().size());
+        assertEquals(16, ring.getDroppedEvents());
+        assertEquals(3, ring.get(3).getSequence());
+    }
+
+    @Test
+    void testConsumerSeesGapAfterDrops() throws InterruptedException {
+        ring = new EventRingBuffer(4);
+        engine.setEventRingBuffer(ring);
+        processor = new EventProcessor(ring, (event, sequence, endOfBatch) -> {
+            synchronized (received) {
+                received.add(Long.toString(event.getSequence()));
+            }
+        }, WaitStrategy.parking(1_000));
+        for (int i = 0; i < 4; i++) {
+            engine.addOrder("B" + i, Side.BUY, 9_000 + i, 1, i);
+        }
+        consumer = new Thread(processor, "event-consumer");
+        consumer.start();
+        while (processor.getSequence() < 3) {
+            Thread.onSpinWait();
+        }
+        engine.addOrder("S", Side.SELL, 9_003, 1, 10);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (processor.getSequence() < 5 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+
+        // Events 4..7 from the first burst were dropped, the consumer resumes at the fill
+        synchronized (received) {
+            assertEquals(List.of("0", "1", "2", "3", "8", "9"), received);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExchangeTest {
+
+    @Test
+    void testSymbolsHaveIndependentBooks() throws Exception {
+        Exchange exchange = new Exchange(2, 0.01).start();
+        exchange.submitAdd(new TradeMatchingEngine.Order("AAA", "1", "sell", 100.0, 10, 1));
+        exchange.submitAdd(new TradeMatchingEngine.Order("BBB", "2", "buy", 100.0, 10, 2));
+        exchange.submitAdd(new TradeMatchingEngine.Order("AAA", "3", "buy", 100.0, 4, 3)).get(5, TimeUnit.SECONDS);
+        exchange.close();
+
+        // Closed, so reading the books from this thread is safe now
+        assertEquals(6, exchange.getBook("AAA").getSellOrders().peek().getVolume());
+        assertEquals(0, exchange.getBook("AAA").getBuyOrders().size());
+        assertEquals(10, exchange.getBook("BBB").getBuyOrders().peek().getVolume());
+        assertEquals(0, exchange.getBook("BBB").getSellOrders().size());
+    }
+
+    @Test
+    void testRoutingIsStableAndCoversAllShards() {
+        Exchange exchange = new Exchange(4, 0.01);
+        boolean[] used = new boolean[4];
+        for (int i = 0; i < 1000; i++) {
+            String symbol = "SYM" + i;
+            assertEquals(exchange.shardFor(symbol), exchange.shardFor(new String(symbol)));
+            used[exchange.shardFor(symbol)] = true;
+        }
+        for (boolean shardUsed : used) {
+            assertTrue(shardUsed);
+        }
+    }
+
+    @Test
+    void testRejectsOrderWithoutSymbol() {
+        Exchange exchange = new Exchange(1, 0.01);
+        assertThrows(IllegalArgumentException.class,
+                () -> exchange.submitAdd(new TradeMatchingEngine.Order("1", "buy", 100.0, 1, 1)));
+    }
+
+    @Test
+    void testCommandsOtherThanAddDoNotCreateBooks() throws Exception {
+        Exchange exchange = new Exchange(2, 0.01).start();
+        List<CompletableFuture<Long>> futures = List.of(
+                exchange.submitCancel("NONE", "1"),
+                exchange.submitAmend("NONE", 1L, 100, 5, 1),
+                exchange.submitCancelAll("NONE"),
+                exchange.submitStartAuction("NONE"));
+        for (CompletableFuture<Long> future : futures) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        }
+        exchange.close();
+        assertNull(exchange.getBook("NONE"));
+    }
+
+    @Test
+    void testListedSymbolTakesAuctionBeforeFirstOrder() throws Exception {
+        Exchange exchange = new Exchange(2, 0.01).withSymbols("AAA").start();
+        exchange.submitStartAuction("AAA").get(5, TimeUnit.SECONDS);
+        exchange.close();
+        assertNotNull(exchange.getBook("AAA"));
+        assertNull(exchange.getBook("BBB"));
+    }
+
+    @Test
+    void testPerSymbolOrderingUnderConcurrentSubmission() throws Exception {
+        int producers = 4;
+        int symbols = 32;
+        int perSymbol = 200;
+        Exchange exchange = new Exchange(4, 0.01, 1024, 64).start();
+        List<List<CompletableFuture<Long>>> futures = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            List<List<CompletableFuture<Long>>> own = new ArrayList<>();
+            for (int s = 0; s < symbols; s++) {
+                own.add(new ArrayList<>());
+            }
+            futures.addAll(own);
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perSymbol; i++) {
+                    for (int s = 0; s < symbols; s++) {
+                        String symbol = "SYM" + s;
+                        String id = producer + "-" + i;
+                        boolean buy = producer % 2 == 0;
+                        own.get(s).add(exchange.submitAdd(new TradeMatchingEngine.Order(symbol, id, buy ? "buy" : "sell", buy ? 99.0 : 101.0, 1, i)));
+                        // A cancel overtaking its add would leave the order resting
+                        if (i % 2 == 0) {
+                            own.get(s).add(exchange.submitCancel(symbol, id));
+                        }
+                    }
+                }
+            }, "producer-" + p);
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        exchange.close();
+
+        for (List<CompletableFuture<Long>> perProducerSymbol : futures) {
+            long previous = 0;
+            for (CompletableFuture<Long> future : perProducerSymbol) {
+                long sequence = future.get(5, TimeUnit.SECONDS);
+                assertTrue(sequence > previous, "commands for one symbol were applied out of order");
+                previous = sequence;
+            }
+        }
+        for (int s = 0; s < symbols; s++) {
+            TradeMatchingEngine book = exchange.getBook("SYM" + s);
+            assertEquals(producers / 2 * perSymbol / 2, book.getBuyOrders().size());
+            assertEquals(producers / 2 * perSymbol / 2, book.getSellOrders().size());
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.example.matching;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTest {
+
+    @TempDir
+    Path directory;
+
+    private static List<Command> randomCommands(int count, long seed) {
+        Random random = new Random(seed);
+        List<Command> commands = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int kind = random.nextInt(8);
+            if (i > 0 && kind < 2) {
+                commands.add(Command.cancel("O" + random.nextInt(i)));
+            } else if (i > 0 && kind == 2) {
+                commands.add(Command.amend(null, "O" + random.nextInt(i), 10_000 + random.nextInt(20), 1 + random.nextInt(50), i));
+            } else if (i > 0 && random.nextInt(200) == 0) {
+                commands.add(random.nextBoolean() ? Command.cancelAll(null, 1 + random.nextInt(4))
+                        : Command.cancelAll(null, Side.BUY, 10_000 + random.nextInt(20), 10_010 + random.nextInt(20)));
+            } else {
+                String side = random.nextBoolean() ? "buy" : "sell";
+                commands.add(Command.add(new TradeMatchingEngine.Order("O" + i, side, 100 + random.nextInt(20) * 0.01, 1 + random.nextInt(50), i)
+                        .withOwner(random.nextInt(5))));
+            }
+        }
+        return commands;
+    }
+
+    @Test
+    void testCodecRoundTrip() {
+        TradeMatchingEngine.Order order = new TradeMatchingEngine.Order("SYM", "id-1", "sell", 101.25, 7, 42);
+        Command add = Command.add(order);
+        add.sequence = 9;
+        ByteBuffer buffer = ByteBuffer.allocate(512);
+        CommandCodec.encode(add, buffer);
+        assertEquals(CommandCodec.encodedLength(add), buffer.position());
+
+        buffer.flip();
+        Command decoded = CommandCodec.decode(buffer);
+        assertEquals(Command.Type.ADD, decoded.getType());
+        assertEquals(9, decoded.getSequence());
+        assertEquals("SYM", decoded.getSymbol());
+        assertEquals("id-1", decoded.getOrderId());
+        assertEquals(Side.SELL, decoded.getOrder().getSide());
+        assertEquals(101.25, decoded.getOrder().getPrice());
+        assertEquals(7, decoded.getOrder().getVolume());
+        assertEquals(42, decoded.getOrder().getTimestamp());
+        assertNull(CommandCodec.decode(buffer));
+
+        // Long-ID mode records carry the id and no String
+        buffer.clear();
+        Command longAdd = Command.add(TradeMatchingEngine.Order.ofTicks(Long.MAX_VALUE, Side.BUY, 500, 3, 1).withType(OrderType.IOC));
+        CommandCodec.encode(longAdd, buffer);
+        CommandCodec.encode(Command.cancel(Long.MAX_VALUE), buffer);
+        buffer.flip();
+        decoded = CommandCodec.decode(buffer);
+        assertNull(decoded.getOrderId());
+        assertEquals(Long.MAX_VALUE, decoded.getOrder().getId());
+        assertEquals(500, decoded.getOrder().getPriceTicks());
+        assertEquals(Side.BUY, decoded.getOrder().getSide());
+        assertEquals(OrderType.IOC, decoded.getOrder().getOrderType());
+        Command cancel = CommandCodec.decode(buffer);
+        assertEquals(Command.Type.CANCEL, cancel.getType());
+        assertEquals(Long.MAX_VALUE, cancel.getId());
+
+        buffer.clear();
+        CommandCodec.encode(Command.amend("SYM", "id-1", 10_130, 4, 43), buffer);
+        CommandCodec.encode(Command.amend(null, 9L, 500, 2, 44), buffer);
+        buffer.flip();
+        Command amend = CommandCodec.decode(buffer);
+        assertEquals(Command.Type.AMEND, amend.getType());
+        assertEquals("id-1", amend.getOrderId());
+        assertNull(amend.getOrder());
+        assertEquals(10_130, amend.getPriceTicks());
+        assertEquals(4, amend.getVolume());
+        assertEquals(43, amend.getTimestamp());
+        assertEquals(9, CommandCodec.decode(buffer).getId());
+
+        // Mass cancels: by owner, by side and range, whole book
+        buffer.clear();
+        CommandCodec.encode(Command.add(TradeMatchingEngine.Order.ofTicks(3L, Side.SELL, 500, 1, 1).withOwner(77)), buffer);
+        CommandCodec.encode(Command.cancelAll("SYM", 77), buffer);
+        CommandCodec.encode(Command.cancelAll("SYM", Side.SELL, 400, Long.MAX_VALUE), buffer);
+        CommandCodec.encode(Command.cancelAll("SYM"), buffer);
+        buffer.flip();
+        assertEquals(77, CommandCodec.decode(buffer).getOrder().getOwner());
+        Command byOwner = CommandCodec.decode(buffer);
+        assertEquals(Command.Type.MASS_CANCEL, byOwner.getType());
+        assertEquals(77, byOwner.getOwner());
+        Command byRange = CommandCodec.decode(buffer);
+        assertEquals(Side.SELL, byRange.getSide());
+        assertEquals(400, byRange.getFromTicks());
+        assertEquals(Long.MAX_VALUE, byRange.getToTicks());
+        Command all = CommandCodec.decode(buffer);
+        assertEquals(Command.Type.MASS_CANCEL, all.getType());
+        assertNull(all.getSide());
+        assertEquals(TradeMatchingEngine.NO_OWNER, all.getOwner());
+
+        buffer.clear();
+        CommandCodec.encode(Command.advanceTime("SYM", 123_456_789L), buffer);
+        buffer.flip();
+        Command advance = CommandCodec.decode(buffer);
+        assertEquals(Command.Type.ADVANCE_TIME, advance.getType());
+        assertEquals(123_456_789L, advance.getTime());
+    }
+
+    // Torn writes a crash can leave behind: a body whose length was never written, and a length
+    // whose body never reached the page
+    @Test
+    void testTornOrCorruptRecordEndsTheLog() throws Exception {
+        List<Command> commands = randomCommands(100, 31);
+        try (Journal journal = new Journal(directory, 64 * 1024, SyncPolicy.BATCH, 0)) {
+            for (int i = 0; i < 100; i++) {
+                commands.get(i).sequence = i + 1;
+                journal.append(commands.get(i));
+            }
+        }
+        Path segment = directory.resolve("journal-00000000.log");
+        int end;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            while (CommandCodec.decode(buffer) != null) {
+                // find the end of the data
+            }
+            end = buffer.position();
+            ByteBuffer torn = ByteBuffer.allocate(CommandCodec.MAX_LENGTH);
+            Command next = Command.cancel("O1");
+            next.sequence = 101;
+            CommandCodec.encode(next, torn);
+            buffer.put(end + 4, torn.array(), 4, torn.position() - 4);
+            assertEquals(100, Journal.replay(directory, command -> { }));
+
+            buffer.putInt(end, torn.position());
+            buffer.put(end + 4, new byte[torn.position() - 4]);
+            assertEquals(100, Journal.replay(directory, command -> { }));
+            buffer.force();
+        }
+
+        // Reopening clears the torn record and appends in its place
+        try (Journal journal = new Journal(directory, 64 * 1024, SyncPolicy.BATCH, 0)) {
+            assertEquals(100, journal.getLastSequence());
+            for (long sequence = 101; sequence <= 103; sequence++) {
+                Command command = Command.cancel(sequence);
+                command.sequence = sequence;
+                journal.append(command);
+            }
+        }
+        List<Long> sequences = new ArrayList<>();
+        assertEquals(103, Journal.replay(directory, command -> sequences.add(command.getSequence())));
+        assertEquals(103, sequences.size());
+
+        // A flipped byte in the middle: replay stops before the damaged record
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            for (int i = 0; i < 49; i++) {
+                CommandCodec.decode(buffer);
+            }
+            int damaged = buffer.position() + 20;
+            buffer.put(damaged, (byte) ~buffer.get(damaged));
+            buffer.force();
+        }
+        assertEquals(49, Journal.replay(directory, command -> { }));
+    }
+
+    // A command the codec rejects must leave nothing behind that would end the log early
+    @Test
+    void testUnencodableCommandLeavesNoRecord() throws Exception {
+        TradeMatchingEngine live = new TradeMatchingEngine(0.01);
+        try (Journal journal = new Journal(directory, 64 * 1024, SyncPolicy.BATCH, 0);
+             Sequencer sequencer = new Sequencer(live, 256, 32).withJournal(journal).start()) {
+            sequencer.submitAdd(new TradeMatchingEngine.Order("a", "buy", 100.0, 5, 1)).get(5, TimeUnit.SECONDS);
+            CompletableFuture<Long> rejected = sequencer.submitAdd(new TradeMatchingEngine.Order("\u4e00", "buy", 100.0, 5, 2));
+            ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalArgumentException.class, e.getCause());
+            assertEquals(2, sequencer.submitAdd(new TradeMatchingEngine.Order("b", "sell", 101.0, 5, 3)).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, live.getBuyOrders().size());
+        assertEquals(1, live.getSellOrders().size());
+
+        TradeMatchingEngine replayed = new TradeMatchingEngine(0.01);
+        assertEquals(2, Journal.replay(directory, replayed));
+        BookAssertions.assertSameBook(live, replayed);
+        try (Journal journal = new Journal(directory, 64 * 1024, SyncPolicy.BATCH, 0)) {
+            assertEquals(2, journal.getLastSequence());
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(512);
+        assertThrows(IllegalArgumentException.class, () -> CommandCodec.encode(Command.cancel("\u4e00"), buffer));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    void testIntervalJournalSyncsWhenIdle() throws Exception {
+        try (Journal journal = new Journal(directory, 64 * 1024, SyncPolicy.INTERVAL, 20);
+             Sequencer sequencer = new Sequencer(new TradeMatchingEngine(0.01), 256, 32, 1_000_000).withJournal(journal).start()) {
+            sequencer.submit(randomCommands(1, 3).get(0)).get(5, TimeUnit.SECONDS);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (journal.isDirty() && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertFalse(journal.isDirty());
+        }
+    }
+
+    @Test
+    void testReplayRebuildsIdenticalBook() throws Exception {
+        TradeMatchingEngine live = new TradeMatchingEngine(0.01);
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        try (Journal journal = new Journal(directory, 64 * 1024, SyncPolicy.BATCH, 0);
+             Sequencer sequencer = new Sequencer(live, 256, 32).withJournal(journal).start()) {
+            for (Command command : randomCommands(5_000, 7)) {
+                futures.add(sequencer.submit(command));
+            }
+            futures.get(futures.size() - 1).get(5, TimeUnit.SECONDS);
+        }
+        // 64KB segments force several rolls
+        assertTrue(Files.list(directory).count() > 1);
+
+        TradeMatchingEngine replayed = new TradeMatchingEngine(0.01);
+        assertEquals(5_000, Journal.replay(directory, replayed));
+        BookAssertions.assertSameBook(live, replayed);
+    }
+
+    @Test
+    void testAuctionCommandsReplay() throws Exception {
+        TradeMatchingEngine live = new TradeMatchingEngine(0.01);
+        List<Command> commands = randomCommands(3_000, 17);
+        CompletableFuture<Long> uncross;
+        try (Journal journal = new Journal(directory);
+             Sequencer sequencer = new Sequencer(live, 256, 32).withJournal(journal).start()) {
+            sequencer.submitStartAuction();
+            for (Command command : commands.subList(0, 1_500)) {
+                sequencer.submit(command);
+            }
+            uncross = sequencer.submitUncross();
+            for (Command command : commands.subList(1_500, 3_000)) {
+                sequencer.submit(command);
+            }
+            assertEquals(1_502, uncross.get(5, TimeUnit.SECONDS));
+        }
+        assertFalse(live.isInAuction());
+
+        TradeMatchingEngine replayed = new TradeMatchingEngine(0.01);
+        assertEquals(3_002, Journal.replay(directory, replayed));
+        BookAssertions.assertSameBook(live, replayed);
+    }
+
+    @Test
+    void testExpiryReplay() throws Exception {
+        TradeMatchingEngine live = new TradeMatchingEngine(0.01);
+        Random random = new Random(19);
+        List<Command> commands = new ArrayList<>();
+        for (Command command : randomCommands(3_000, 23)) {
+            if (command.getType() == Command.Type.ADD && random.nextBoolean()) {
+                command.getOrder().withExpiry(commands.size() + random.nextInt(1_000));
+            }
+            commands.add(command);
+            if (random.nextInt(50) == 0) {
+                commands.add(Command.advanceTime(null, commands.size()));
+            }
+        }
+        CompletableFuture<Long> last = null;
+        try (Journal journal = new Journal(directory);
+             Sequencer sequencer = new Sequencer(live, 256, 32).withJournal(journal).start()) {
+            for (Command command : commands) {
+                last = sequencer.submit(command);
+            }
+            last.get(5, TimeUnit.SECONDS);
+        }
+        assertTrue(live.getTime() > 2_000);
+
+        TradeMatchingEngine replayed = new TradeMatchingEngine(0.01);
+        assertEquals(commands.size(), Journal.replay(directory, replayed));
+        assertEquals(live.getTime(), replayed.getTime());
+        BookAssertions.assertSameBook(live, replayed);
+        assertEquals(live.advanceTime(10_000), replayed.advanceTime(10_000));
+        BookAssertions.assertSameBook(live, replayed);
+    }
+
+    // Commands are journaled before the engine sees them, so the ones it rejected are in the log too
+    @Test
+    void testReplaySkipsCommandsRejectedLive() throws Exception {
+        TradeMatchingEngine live = new TradeMatchingEngine(0.01);
+        List<Command> commands = randomCommands(1_000, 29);
+        List<CompletableFuture<Long>> rejected = new ArrayList<>();
+        CompletableFuture<Long> last = null;
+        try (Journal journal = new Journal(directory);
+             Sequencer sequencer = new Sequencer(live, 256, 32).withJournal(journal).start()) {
+            for (Command command : commands.subList(0, 500)) {
+                sequencer.submit(command);
+            }
+            rejected.add(sequencer.submitAmend("O1", 10_000, 0, 500));
+            rejected.add(sequencer.submitUncross());
+            for (Command command : commands.subList(500, 1_000)) {
+                last = sequencer.submit(command);
+            }
+            assertEquals(1_002, last.get(5, TimeUnit.SECONDS));
+        }
+        for (CompletableFuture<Long> future : rejected) {
+            assertTrue(future.isCompletedExceptionally());
+        }
+
+        TradeMatchingEngine replayed = new TradeMatchingEngine(0.01);
+        assertEquals(1_002, Journal.replay(directory, replayed));
+        BookAssertions.assertSameBook(live, replayed);
+    }
+
+    @Test
+    void testReopenedJournalContinuesSequence() throws Exception {
+        TradeMatchingEngine live = new TradeMatchingEngine(0.01);
+        List<Command> commands = randomCommands(2_000, 11);
+        try (Journal journal = new Journal(directory, 16 * 1024, SyncPolicy.NONE, 0);
+             Sequencer sequencer = new Sequencer(live, 256, 32).withJournal(journal).start()) {
+            for (Command command : commands.subList(0, 1_000)) {
+                sequencer.submit(command);
+            }
+        }
+        try (Journal journal = new Journal(directory, 16 * 1024, SyncPolicy.INTERVAL, 5)) {
+            assertEquals(1_000, journal.getLastSequence());
+            try (Sequencer sequencer = new Sequencer(live, 256, 32).withJournal(journal).start()) {
+                CompletableFuture<Long> last = null;
+                for (Command command : commands.subList(1_000, 2_000)) {
+                    last = sequencer.submit(command);
+                }
+                assertEquals(2_000, last.get(5, TimeUnit.SECONDS));
+            }
+        }
+
+        TradeMatchingEngine replayed = new TradeMatchingEngine(0.01);
+        assertEquals(2_000, Journal.replay(directory, replayed));
+        BookAssertions.assertSameBook(live, replayed);
+    }
+
+    @Test
+    void testReplayTailAfterSequence() throws IOException {
+        try (Journal journal = new Journal(directory, 4096, SyncPolicy.NONE, 0)) {
+            long sequence = 0;
+            for (Command command : randomCommands(200, 3)) {
+                command.sequence = ++sequence;
+                journal.append(command);
+            }
+        }
+        List<Long> tail = new ArrayList<>();
+        assertEquals(200, Journal.replay(directory, 150, command -> tail.add(command.getSequence())));
+        assertEquals(50, tail.size());
+        assertEquals(151, tail.get(0));
+    }
+}
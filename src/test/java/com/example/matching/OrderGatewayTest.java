@@ -0,0 +1,314 @@
+package com.example.matching;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.example.matching.Percentiles.percentile;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderGatewayTest {
+
+    // Blocking test client; one message in flight per call
+    private static final class Client implements AutoCloseable {
+        final SocketChannel channel;
+        final ByteBuffer out = ByteBuffer.allocateDirect(64).order(OrderEntryCodec.BYTE_ORDER);
+        final ByteBuffer in = ByteBuffer.allocateDirect(OrderEntryCodec.ExecutionReport.LENGTH).order(OrderEntryCodec.BYTE_ORDER);
+        final OrderEntryCodec.NewOrder newOrder = new OrderEntryCodec.NewOrder();
+        final OrderEntryCodec.Cancel cancel = new OrderEntryCodec.Cancel();
+        final OrderEntryCodec.Amend amend = new OrderEntryCodec.Amend();
+        final OrderEntryCodec.ExecutionReport report = new OrderEntryCodec.ExecutionReport();
+
+        Client(int port) throws IOException {
+            channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", port));
+            channel.socket().setTcpNoDelay(true);
+        }
+
+        void sendNew(long clientOrderId, Side side, long priceTicks, int volume) throws IOException {
+            newOrder.encode(out.clear(), 0, clientOrderId, side, priceTicks, volume);
+            send(OrderEntryCodec.NewOrder.LENGTH);
+        }
+
+        void sendCancel(long clientOrderId) throws IOException {
+            cancel.encode(out.clear(), 0, clientOrderId);
+            send(OrderEntryCodec.Cancel.LENGTH);
+        }
+
+        void sendAmend(long clientOrderId, long priceTicks, int volume) throws IOException {
+            amend.encode(out.clear(), 0, clientOrderId, priceTicks, volume);
+            send(OrderEntryCodec.Amend.LENGTH);
+        }
+
+        private void send(int length) throws IOException {
+            out.limit(length).position(0);
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+
+        OrderEntryCodec.ExecutionReport receive() throws IOException {
+            in.clear();
+            while (in.hasRemaining()) {
+                if (channel.read(in) < 0) {
+                    throw new IOException("gateway closed the session");
+                }
+            }
+            assertEquals(OrderEntryCodec.EXECUTION_REPORT, OrderEntryCodec.messageType(in, 0));
+            return report.wrap(in, 0);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    @Test
+    void testCodecReadsFieldsInPlace() {
+        ByteBuffer buffer = ByteBuffer.allocate(128).order(OrderEntryCodec.BYTE_ORDER);
+        new OrderEntryCodec.Cancel().encode(buffer, 0, 7L);
+        new OrderEntryCodec.NewOrder().encode(buffer, OrderEntryCodec.Cancel.LENGTH, 42L, Side.SELL, 1_234_567L, 300);
+
+        assertEquals(OrderEntryCodec.Cancel.LENGTH, OrderEntryCodec.messageLength(buffer, 0, 128));
+        assertEquals(OrderEntryCodec.CANCEL, OrderEntryCodec.messageType(buffer, 0));
+        int offset = OrderEntryCodec.Cancel.LENGTH;
+        assertEquals(OrderEntryCodec.NEW_ORDER, OrderEntryCodec.messageType(buffer, offset));
+        OrderEntryCodec.NewOrder order = new OrderEntryCodec.NewOrder().wrap(buffer, offset);
+        assertEquals(42L, order.clientOrderId());
+        assertEquals(Side.SELL, order.side());
+        assertEquals(1_234_567L, order.priceTicks());
+        assertEquals(300, order.volume());
+        assertEquals(OrderType.LIMIT.ordinal(), order.orderType());
+        new OrderEntryCodec.NewOrder().encode(buffer, 64, 43L, Side.BUY, 1L, 1, OrderType.FOK);
+        assertEquals(OrderType.FOK.ordinal(), new OrderEntryCodec.NewOrder().wrap(buffer, 64).orderType());
+        // Partial header
+        assertEquals(0, OrderEntryCodec.messageLength(buffer, 0, 3));
+    }
+
+    @Test
+    void testNewFillCancelAndAmendRoundTrip() throws Exception {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        try (OrderGateway gateway = new OrderGateway(engine, new InetSocketAddress("127.0.0.1", 0)).start();
+             Client maker = new Client(gateway.getPort());
+             Client taker = new Client(gateway.getPort())) {
+            maker.sendNew(1, Side.SELL, 100, 50);
+            OrderEntryCodec.ExecutionReport ack = maker.receive();
+            assertEquals(OrderEntryCodec.ExecutionReport.NEW, ack.execType());
+            assertEquals(1, ack.clientOrderId());
+            assertEquals(50, ack.leavesQuantity());
+
+            // Amend down and away; acknowledged as AMENDED, the internal cancel is not reported
+            maker.sendAmend(1, 101, 30);
+            OrderEntryCodec.ExecutionReport amended = maker.receive();
+            assertEquals(OrderEntryCodec.ExecutionReport.AMENDED, amended.execType());
+            assertEquals(101, amended.priceTicks());
+            assertEquals(30, amended.leavesQuantity());
+
+            // Both sides of a trade get a fill
+            taker.sendNew(1, Side.BUY, 101, 10);
+            OrderEntryCodec.ExecutionReport takerFill = taker.receive();
+            assertEquals(OrderEntryCodec.ExecutionReport.FILL, takerFill.execType());
+            assertEquals(10, takerFill.lastQuantity());
+            assertEquals(0, takerFill.leavesQuantity());
+            OrderEntryCodec.ExecutionReport makerFill = maker.receive();
+            assertEquals(OrderEntryCodec.ExecutionReport.FILL, makerFill.execType());
+            assertEquals(101, makerFill.priceTicks());
+            assertEquals(20, makerFill.leavesQuantity());
+
+            // Client order ids are per session, and a fully filled order is gone
+            taker.sendCancel(1);
+            assertEquals(OrderEntryCodec.ExecutionReport.REJECTED, taker.receive().execType());
+            maker.sendCancel(1);
+            assertEquals(OrderEntryCodec.ExecutionReport.CANCELLED, maker.receive().execType());
+            assertEquals(0, engine.getSellOrders().size());
+        }
+    }
+
+    @Test
+    void testMalformedMessageDisconnectsOnlyThatSession() throws Exception {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        try (OrderGateway gateway = new OrderGateway(engine, new InetSocketAddress("127.0.0.1", 0)).start();
+             Client bad = new Client(gateway.getPort());
+             Client good = new Client(gateway.getPort())) {
+            ByteBuffer garbage = ByteBuffer.allocate(8).order(OrderEntryCodec.BYTE_ORDER);
+            garbage.putShort(0, (short) 8).put(2, (byte) 99);
+            bad.channel.write(garbage);
+            assertThrows(IOException.class, bad::receive);
+
+            good.sendNew(5, Side.BUY, 99, 1);
+            assertEquals(OrderEntryCodec.ExecutionReport.NEW, good.receive().execType());
+        }
+    }
+
+    @Test
+    void testCancelOnDisconnectRemovesOnlyThatSessionsOrders() throws Exception {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        try (OrderGateway gateway = new OrderGateway(engine, new InetSocketAddress("127.0.0.1", 0)).withCancelOnDisconnect().start();
+             Client stays = new Client(gateway.getPort())) {
+            Client leaves = new Client(gateway.getPort());
+            for (int i = 1; i <= 3; i++) {
+                leaves.sendNew(i, Side.SELL, 100 + i, 10);
+                assertEquals(OrderEntryCodec.ExecutionReport.NEW, leaves.receive().execType());
+            }
+            stays.sendNew(1, Side.SELL, 101, 5);
+            assertEquals(OrderEntryCodec.ExecutionReport.NEW, stays.receive().execType());
+            leaves.close();
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (engine.getSellOrders().size() > 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+
+            // The next order only sees the remaining session's liquidity
+            stays.sendNew(2, Side.BUY, 110, 8);
+            OrderEntryCodec.ExecutionReport report = stays.receive();
+            assertEquals(OrderEntryCodec.ExecutionReport.FILL, report.execType());
+            assertEquals(101, report.priceTicks());
+            assertEquals(5, report.lastQuantity());
+        }
+    }
+
+    @Test
+    void testUnknownSideIsRejected() throws Exception {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        try (OrderGateway gateway = new OrderGateway(engine, new InetSocketAddress("127.0.0.1", 0)).start();
+             Client client = new Client(gateway.getPort())) {
+            client.newOrder.encode(client.out.clear(), 0, 1, Side.SELL, 100, 10);
+            client.out.put(24, (byte) 2);
+            client.send(OrderEntryCodec.NewOrder.LENGTH);
+            assertEquals(OrderEntryCodec.ExecutionReport.REJECTED, client.receive().execType());
+            assertEquals(0, engine.getSellOrders().size());
+        }
+    }
+
+    @Test
+    void testSessionIdIsReusedOnlyOnceItsOrdersAreGone() throws Exception {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        try (OrderGateway gateway = new OrderGateway(engine, new InetSocketAddress("127.0.0.1", 0)).withCancelOnDisconnect().start()) {
+            Client first = new Client(gateway.getPort());
+            first.sendNew(1, Side.SELL, 101, 10);
+            assertEquals(OrderEntryCodec.ExecutionReport.NEW, first.receive().execType());
+            try (Client second = new Client(gateway.getPort())) {
+                second.sendNew(1, Side.SELL, 102, 10);
+                assertEquals(OrderEntryCodec.ExecutionReport.NEW, second.receive().execType());
+                assertEquals(2, engine.getOrder(1L << 32 | 1).getOwner());
+
+                // The first session's order is cancelled on disconnect, freeing its id for the next session
+                first.close();
+                long deadline = System.nanoTime() + 5_000_000_000L;
+                while (engine.getOrder(1L) != null && System.nanoTime() < deadline) {
+                    Thread.sleep(1);
+                }
+                try (Client third = new Client(gateway.getPort())) {
+                    third.sendNew(1, Side.SELL, 103, 10);
+                    assertEquals(OrderEntryCodec.ExecutionReport.NEW, third.receive().execType());
+                    assertEquals(1, engine.getOrder(1L).getOwner());
+                    assertEquals(103, engine.getOrder(1L).getPriceTicks());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testLostReportsDisconnectEverySession() throws Exception {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        // A caller's ring too small for one sweep: the gateway only drains it after each engine call
+        engine.setEventRingBuffer(new EventRingBuffer(8));
+        List<String> errors = new CopyOnWriteArrayList<>();
+        try (OrderGateway gateway = new OrderGateway(engine, new InetSocketAddress("127.0.0.1", 0))
+                .withErrorHandler((message, error) -> errors.add(message)).start();
+             Client maker = new Client(gateway.getPort());
+             Client taker = new Client(gateway.getPort())) {
+            for (int i = 1; i <= 10; i++) {
+                maker.sendNew(i, Side.SELL, 100 + i, 1);
+                assertEquals(OrderEntryCodec.ExecutionReport.NEW, maker.receive().execType());
+            }
+            taker.sendNew(1, Side.BUY, 110, 10);
+            for (Client client : List.of(maker, taker)) {
+                assertThrows(IOException.class, () -> {
+                    for (int i = 0; i < 100; i++) {
+                        client.receive();
+                    }
+                });
+            }
+            assertEquals(0, engine.getSellOrders().size());
+            assertEquals(1, errors.size());
+            assertTrue(errors.get(0).startsWith("Order gateway lost "), errors.get(0));
+        }
+    }
+
+    // Loopback load test: many concurrent sessions, each doing new/ack then cancel/ack round trips.
+    // Off by default; run with -Dgateway.loadtest=true, and bigger with
+    // -Dgateway.loadtest.sessions=5000 -Dgateway.loadtest.rounds=50
+    @Test
+    @EnabledIfSystemProperty(named = "gateway.loadtest", matches = "true")
+    void testLoopbackLoadReportsRoundTripPercentiles() throws Exception {
+        int sessions = Integer.getInteger("gateway.loadtest.sessions", 1000);
+        int rounds = Integer.getInteger("gateway.loadtest.rounds", 5);
+        int clientThreads = 4;
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        try (OrderGateway gateway = new OrderGateway(engine, new InetSocketAddress("127.0.0.1", 0)).start()) {
+            List<Client> clients = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                clients.add(new Client(gateway.getPort()));
+            }
+
+            long[] rtts = new long[sessions * rounds * 2];
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < clientThreads; t++) {
+                int first = t;
+                Thread thread = new Thread(() -> {
+                    try {
+                        for (int round = 0; round < rounds; round++) {
+                            for (int s = first; s < sessions; s += clientThreads) {
+                                Client client = clients.get(s);
+                                int at = (s * rounds + round) * 2;
+                                long start = System.nanoTime();
+                                client.sendNew(round, Side.BUY, 1_000 - s % 100, 10);
+                                OrderEntryCodec.ExecutionReport ack = client.receive();
+                                rtts[at] = System.nanoTime() - start;
+                                assertEquals(OrderEntryCodec.ExecutionReport.NEW, ack.execType());
+                                assertEquals(round, ack.clientOrderId());
+
+                                start = System.nanoTime();
+                                client.sendCancel(round);
+                                OrderEntryCodec.ExecutionReport cancelled = client.receive();
+                                rtts[at + 1] = System.nanoTime() - start;
+                                assertEquals(OrderEntryCodec.ExecutionReport.CANCELLED, cancelled.execType());
+                                assertEquals(round, cancelled.clientOrderId());
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            for (Client client : clients) {
+                client.close();
+            }
+            if (failure.get() != null) {
+                fail(failure.get());
+            }
+
+            assertEquals(0, engine.getBuyOrders().size());
+            Arrays.sort(rtts);
+            System.out.printf("Gateway loopback: %d sessions, %d round trips, RTT us p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                    sessions, rtts.length, percentile(rtts, 0.50), percentile(rtts, 0.90), percentile(rtts, 0.99),
+                    percentile(rtts, 0.999), rtts[rtts.length - 1] / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.matching;
+
+// Nearest-rank percentiles of round-trip times, for the loopback load tests' reports
+final class Percentiles {
+
+    private Percentiles() {
+    }
+
+    // p in [0, 1] of nanosecond values sorted ascending, in microseconds
+    static double percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1000.0;
+    }
+}
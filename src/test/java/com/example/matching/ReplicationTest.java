@@ -0,0 +1,220 @@
+package com.example.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicationTest {
+
+    private static final InetSocketAddress LOOPBACK = new InetSocketAddress("127.0.0.1", 0);
+
+    // Both id modes, amends, stops and the odd mass cancel, numbered from first
+    private static List<Command> randomCommands(int first, int count, long seed) {
+        Random random = new Random(seed);
+        List<Command> commands = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            int kind = random.nextInt(10);
+            if (i > 0 && kind < 2) {
+                commands.add(random.nextBoolean() ? Command.cancel("O" + random.nextInt(i)) : Command.cancel((long) random.nextInt(i)));
+            } else if (i > 0 && kind == 2) {
+                commands.add(Command.amend(null, (long) random.nextInt(i), 10_000 + random.nextInt(20), 1 + random.nextInt(50), i));
+            } else if (i > 0 && random.nextInt(300) == 0) {
+                commands.add(Command.cancelAll(null, 1 + random.nextInt(4)));
+            } else if (kind < 6) {
+                String side = random.nextBoolean() ? "buy" : "sell";
+                TradeMatchingEngine.Order order = new TradeMatchingEngine.Order("O" + i, side, 100 + random.nextInt(20) * 0.01, 1 + random.nextInt(50), i);
+                if (random.nextInt(20) == 0) {
+                    order.withStop(OrderType.STOP, 10_000 + random.nextInt(20));
+                }
+                commands.add(Command.add(order.withOwner(random.nextInt(5))));
+            } else {
+                Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+                commands.add(Command.add(TradeMatchingEngine.Order.ofTicks(i, side, 10_000 + random.nextInt(20), 1 + random.nextInt(50), i)));
+            }
+        }
+        return commands;
+    }
+
+    private static List<InetSocketAddress> addresses(Standby... standbys) throws Exception {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (Standby standby : standbys) {
+            addresses.add(new InetSocketAddress("127.0.0.1", standby.getPort()));
+        }
+        return addresses;
+    }
+
+    private static void awaitApplied(Standby standby, long sequence) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (standby.getAppliedSequence() < sequence && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(sequence, standby.getAppliedSequence());
+    }
+
+    @Test
+    void testSyncStandbysHoldEveryAcknowledgedCommandAndTakeOver() throws Exception {
+        TradeMatchingEngine primary = new TradeMatchingEngine(0.01);
+        Standby first = new Standby(new TradeMatchingEngine(0.01), LOOPBACK).start();
+        Standby second = new Standby(new TradeMatchingEngine(0.01), LOOPBACK).start();
+        List<Long> lagging = new ArrayList<>();
+        long last;
+        try (Replicator replicator = new Replicator(ReplicationMode.SYNC, addresses(first, second));
+             Sequencer sequencer = new Sequencer(primary, 256, 32).withReplicator(replicator).start()) {
+            List<CompletableFuture<Long>> futures = new ArrayList<>();
+            for (Command command : randomCommands(0, 5_000, 3)) {
+                // Resolved on the matching thread right after apply, when the standbys must already hold it
+                futures.add(sequencer.submit(command).whenComplete((sequence, error) -> {
+                    if (sequence != null && Math.min(first.getAppliedSequence(), second.getAppliedSequence()) < sequence) {
+                        lagging.add(sequence);
+                    }
+                }));
+            }
+            last = futures.get(futures.size() - 1).get(5, TimeUnit.SECONDS);
+            assertEquals(2, replicator.getStandbyCount());
+            assertEquals(last, replicator.getAckedSequence());
+        }
+        assertEquals(List.of(), lagging);
+        assertEquals(5_000, last);
+
+        // Primary gone: both standbys hold its exact book, and one takes over numbering on from it
+        second.close();
+        BookAssertions.assertSameBook(primary, second.getEngine());
+        try (Sequencer promoted = first.promote(256, 32)) {
+            BookAssertions.assertSameBook(primary, first.getEngine());
+            CompletableFuture<Long> next = null;
+            for (Command command : randomCommands(5_000, 1_000, 4)) {
+                next = promoted.submit(command);
+            }
+            assertEquals(6_000, next.get(5, TimeUnit.SECONDS));
+        }
+        for (Command command : randomCommands(5_000, 1_000, 4)) {
+            try {
+                command.applyTo(primary);
+            } catch (RuntimeException ignored) {
+                // rejected by the promoted book as well
+            }
+        }
+        BookAssertions.assertSameBook(primary, first.getEngine());
+    }
+
+    @Test
+    void testAsyncStandbyCatchesUp() throws Exception {
+        TradeMatchingEngine primary = new TradeMatchingEngine(0.01);
+        try (Standby standby = new Standby(new TradeMatchingEngine(0.01), LOOPBACK).start()) {
+            try (Replicator replicator = new Replicator(ReplicationMode.ASYNC, addresses(standby));
+                 Sequencer sequencer = new Sequencer(primary, 256, 32).withReplicator(replicator).start()) {
+                CompletableFuture<Long> last = null;
+                for (Command command : randomCommands(0, 10_000, 5)) {
+                    last = sequencer.submit(command);
+                }
+                assertEquals(10_000, last.get(5, TimeUnit.SECONDS));
+                awaitApplied(standby, 10_000);
+            }
+            assertNull(standby.getFailure());
+            standby.close();
+            BookAssertions.assertSameBook(primary, standby.getEngine());
+        }
+    }
+
+    @Test
+    void testSyncPrimaryCarriesOnWhenStandbyFails() throws Exception {
+        TradeMatchingEngine primary = new TradeMatchingEngine(0.01);
+        try (Standby survivor = new Standby(new TradeMatchingEngine(0.01), LOOPBACK).start();
+             Standby failing = new Standby(new TradeMatchingEngine(0.01), LOOPBACK).start();
+             Replicator replicator = new Replicator(ReplicationMode.SYNC, addresses(survivor, failing));
+             Sequencer sequencer = new Sequencer(primary, 256, 32).withReplicator(replicator).start()) {
+            List<Command> commands = randomCommands(0, 4_000, 6);
+            CompletableFuture<Long> last = null;
+            for (Command command : commands.subList(0, 2_000)) {
+                last = sequencer.submit(command);
+            }
+            assertEquals(2_000, last.get(5, TimeUnit.SECONDS));
+
+            failing.close();
+            for (Command command : commands.subList(2_000, 4_000)) {
+                last = sequencer.submit(command);
+            }
+            assertEquals(4_000, last.get(5, TimeUnit.SECONDS));
+            assertEquals(1, replicator.getStandbyCount());
+            assertEquals(4_000, survivor.getAppliedSequence());
+        }
+    }
+
+    // A command the codec cannot encode is failed before the standbys see it, and the matching thread
+    // carries on with the next
+    @Test
+    void testUnencodableCommandIsFailedAndNotReplicated() throws Exception {
+        TradeMatchingEngine primary = new TradeMatchingEngine(0.01);
+        try (Standby standby = new Standby(new TradeMatchingEngine(0.01), LOOPBACK).start()) {
+            try (Replicator replicator = new Replicator(ReplicationMode.SYNC, addresses(standby));
+                 Sequencer sequencer = new Sequencer(primary, 256, 32).withReplicator(replicator).start()) {
+                List<Command> commands = randomCommands(0, 2_000, 8);
+                for (Command command : commands.subList(0, 1_000)) {
+                    sequencer.submit(command);
+                }
+                CompletableFuture<Long> rejected = sequencer.submitAdd(new TradeMatchingEngine.Order("\u00e9\u4e00", "buy", 100.0, 5, 1_000));
+                CompletableFuture<Long> last = null;
+                for (Command command : commands.subList(1_000, 2_000)) {
+                    last = sequencer.submit(command);
+                }
+                assertEquals(2_000, last.get(5, TimeUnit.SECONDS));
+                ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalArgumentException.class, e.getCause());
+                awaitApplied(standby, 2_000);
+            }
+            assertNull(standby.getFailure());
+            standby.close();
+            BookAssertions.assertSameBook(primary, standby.getEngine());
+        }
+    }
+
+    // Connects but never reads or acks; the connection completes in the listen backlog
+    private static ServerSocketChannel silentStandby() throws Exception {
+        return ServerSocketChannel.open().bind(LOOPBACK);
+    }
+
+    @Test
+    void testSyncPrimaryDropsStandbyThatStopsAcking() throws Exception {
+        TradeMatchingEngine primary = new TradeMatchingEngine(0.01);
+        try (Standby survivor = new Standby(new TradeMatchingEngine(0.01), LOOPBACK).start();
+             ServerSocketChannel silent = silentStandby();
+             Replicator replicator = new Replicator(ReplicationMode.SYNC,
+                     List.of(addresses(survivor).get(0), (InetSocketAddress) silent.getLocalAddress()),
+                     TimeUnit.MILLISECONDS.toNanos(100), Replicator.DEFAULT_BACKLOG_SIZE);
+             Sequencer sequencer = new Sequencer(primary, 256, 32).withReplicator(replicator).start()) {
+            CompletableFuture<Long> last = null;
+            for (Command command : randomCommands(0, 2_000, 7)) {
+                last = sequencer.submit(command);
+            }
+            assertEquals(2_000, last.get(5, TimeUnit.SECONDS));
+            assertEquals(1, replicator.getStandbyCount());
+            assertEquals(2_000, survivor.getAppliedSequence());
+        }
+    }
+
+    @Test
+    void testAsyncPrimaryDropsStandbyThatFallsBehind() throws Exception {
+        TradeMatchingEngine primary = new TradeMatchingEngine(0.01);
+        try (ServerSocketChannel silent = silentStandby();
+             Replicator replicator = new Replicator(ReplicationMode.ASYNC, List.of((InetSocketAddress) silent.getLocalAddress()),
+                     Replicator.DEFAULT_ACK_TIMEOUT_NANOS, 1024 * 1024);
+             Sequencer sequencer = new Sequencer(primary, 256, 32).withReplicator(replicator).start()) {
+            // Far more than the backlog and the socket buffers together hold
+            CompletableFuture<Long> last = null;
+            for (int i = 1; i <= 300_000; i++) {
+                last = sequencer.submitAdvanceTime(i);
+            }
+            assertEquals(300_000, last.get(30, TimeUnit.SECONDS));
+            assertEquals(0, replicator.getStandbyCount());
+        }
+    }
+}
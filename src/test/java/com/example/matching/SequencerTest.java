@@ -0,0 +1,173 @@
+package com.example.matching;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SequencerTest {
+
+    @Test
+    void testMpscQueueKeepsEachProducersOrder() throws InterruptedException {
+        MpscQueue<long[]> queue = new MpscQueue<>(64);
+        int producers = 4;
+        int perProducer = 50_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!queue.offer(new long[]{producer, i})) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        long[] nextExpected = new long[producers];
+        int received = 0;
+        while (received < producers * perProducer) {
+            int drained = queue.drain(element -> {
+                assertEquals(nextExpected[(int) element[0]], element[1]);
+                nextExpected[(int) element[0]]++;
+            }, 32);
+            if (drained == 0) {
+                Thread.yield();
+            }
+            received += drained;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void testMpscQueueRejectsWhenFull() {
+        MpscQueue<String> queue = new MpscQueue<>(2);
+        assertTrue(queue.offer("a"));
+        assertTrue(queue.offer("b"));
+        assertFalse(queue.offer("c"));
+        assertEquals("a", queue.poll());
+        assertTrue(queue.offer("c"));
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    void testConcurrentSubmissionsGetUniqueSequenceNumbers() throws Exception {
+        TradeMatchingEngine engine = new TradeMatchingEngine(0.01);
+        int producers = 8;
+        int perProducer = 5_000;
+        List<List<CompletableFuture<Long>>> futuresByProducer = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (Sequencer sequencer = new Sequencer(engine, 1024, 64).start()) {
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                List<CompletableFuture<Long>> own = new ArrayList<>();
+                futuresByProducer.add(own);
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perProducer; i++) {
+                        // Buys below sells so nothing crosses; every other order is cancelled again
+                        String id = "P" + producer + "-" + i;
+                        boolean buy = producer % 2 == 0;
+                        own.add(sequencer.submitAdd(new TradeMatchingEngine.Order(id, buy ? "buy" : "sell", buy ? 99.0 : 101.0, 1, i)));
+                        if (i % 2 == 0) {
+                            own.add(sequencer.submitCancel(id));
+                        }
+                    }
+                }, "producer-" + p);
+                threads.add(thread);
+                thread.start();
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        Set<Long> sequences = new HashSet<>();
+        for (List<CompletableFuture<Long>> own : futuresByProducer) {
+            long previous = 0;
+            for (CompletableFuture<Long> future : own) {
+                long sequence = future.get(5, TimeUnit.SECONDS);
+                // A single producer's commands are sequenced in submission order
+                assertTrue(sequence > previous);
+                previous = sequence;
+                assertTrue(sequences.add(sequence));
+            }
+        }
+        int commands = producers * (perProducer + perProducer / 2);
+        assertEquals(commands, sequences.size());
+        assertEquals(commands, sequences.stream().mapToLong(Long::longValue).max().getAsLong());
+        assertEquals(producers / 2 * perProducer / 2, engine.getBuyOrders().size());
+        assertEquals(producers / 2 * perProducer / 2, engine.getSellOrders().size());
+    }
+
+    @Test
+    void testSubmitAfterCloseFails() throws InterruptedException {
+        Sequencer sequencer = new Sequencer(new TradeMatchingEngine(), 16, 4).start();
+        sequencer.close();
+
+        CompletableFuture<Long> future = sequencer.submitCancel("1");
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    @Test
+    void testSubmissionsRacingCloseAllComplete(@TempDir Path dir) throws Exception {
+        for (int round = 0; round < 20; round++) {
+            Sequencer sequencer = new Sequencer(new TradeMatchingEngine(), 64, 8).start();
+            List<CompletableFuture<?>> futures = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch started = new CountDownLatch(2);
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < 2; p++) {
+                int producer = p;
+                int r = round;
+                Thread thread = new Thread(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 2_000; i++) {
+                        futures.add(sequencer.submitCancel(producer * 10_000L + i));
+                        if (i % 100 == 0) {
+                            futures.add(sequencer.snapshot(dir.resolve("snapshot-" + r + "-" + producer + "-" + i)));
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            started.await();
+            sequencer.close();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            // Applied, failed by the snapshot write or rejected by the closed sequencer, but never left hanging
+            for (CompletableFuture<?> future : futures) {
+                try {
+                    future.get(5, TimeUnit.SECONDS);
+                } catch (ExecutionException expected) {
+                    // fine
+                }
+            }
+        }
+    }
+}
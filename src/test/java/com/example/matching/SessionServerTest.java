@@ -0,0 +1,318 @@
+package com.example.matching;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.example.matching.Percentiles.percentile;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionServerTest {
+
+    private static final InetSocketAddress LOOPBACK = new InetSocketAddress("127.0.0.1", 0);
+
+    // Blocking test client; one message in flight per call
+    private static final class Client implements AutoCloseable {
+        final Socket socket;
+        final DataInputStream input;
+        final ByteBuffer out = ByteBuffer.allocate(64).order(OrderEntryCodec.BYTE_ORDER);
+        final ByteBuffer in = ByteBuffer.allocate(OrderEntryCodec.ExecutionReport.LENGTH).order(OrderEntryCodec.BYTE_ORDER);
+        final OrderEntryCodec.ExecutionReport report = new OrderEntryCodec.ExecutionReport();
+
+        Client(int port) throws IOException {
+            socket = new Socket("127.0.0.1", port);
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(5_000);
+            input = new DataInputStream(socket.getInputStream());
+        }
+
+        // Returns the reply status
+        byte logon(long account, long token) throws IOException {
+            new OrderEntryCodec.Logon().encode(out.clear(), 0, account, token);
+            send(OrderEntryCodec.Logon.LENGTH);
+            input.readFully(in.array(), 0, OrderEntryCodec.LogonReply.LENGTH);
+            OrderEntryCodec.LogonReply reply = new OrderEntryCodec.LogonReply().wrap(in, 0);
+            assertEquals(OrderEntryCodec.LOGON_REPLY, OrderEntryCodec.messageType(in, 0));
+            assertEquals(account, reply.account());
+            return reply.status();
+        }
+
+        void sendNew(long clientOrderId, Side side, long priceTicks, int volume) throws IOException {
+            new OrderEntryCodec.NewOrder().encode(out.clear(), 0, clientOrderId, side, priceTicks, volume);
+            send(OrderEntryCodec.NewOrder.LENGTH);
+        }
+
+        void sendCancel(long clientOrderId) throws IOException {
+            new OrderEntryCodec.Cancel().encode(out.clear(), 0, clientOrderId);
+            send(OrderEntryCodec.Cancel.LENGTH);
+        }
+
+        private void send(int length) throws IOException {
+            socket.getOutputStream().write(out.array(), 0, length);
+        }
+
+        OrderEntryCodec.ExecutionReport receive() throws IOException {
+            input.readFully(in.array(), 0, OrderEntryCodec.ExecutionReport.LENGTH);
+            assertEquals(OrderEntryCodec.EXECUTION_REPORT, OrderEntryCodec.messageType(in, 0));
+            return report.wrap(in, 0);
+        }
+
+        // True once the server has closed the connection
+        boolean closedByServer() throws IOException {
+            return input.read() < 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private static void awaitBookSize(TradeMatchingEngine engine, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (engine.getBuyOrders().size() + engine.getSellOrders().size() != size && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(size, engine.getBuyOrders().size() + engine.getSellOrders().size());
+    }
+
+    @Test
+    void testLogonThenOrdersAndFillsReachBothSessions() throws Exception {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        Sequencer sequencer = new Sequencer(engine, 1024, 64);
+        try (SessionServer server = new SessionServer(sequencer, LOOPBACK)
+                .withAuthenticator((account, token) -> token == account * 7).start();
+             Sequencer ignored = sequencer.start();
+             Client seller = new Client(server.getPort());
+             Client buyer = new Client(server.getPort());
+             Client intruder = new Client(server.getPort())) {
+            assertEquals(OrderEntryCodec.LogonReply.REJECTED, intruder.logon(3, 20));
+            assertTrue(intruder.closedByServer());
+            assertEquals(OrderEntryCodec.LogonReply.ACCEPTED, seller.logon(1, 7));
+            assertEquals(OrderEntryCodec.LogonReply.ACCEPTED, buyer.logon(2, 14));
+
+            seller.sendNew(5, Side.SELL, 101, 10);
+            OrderEntryCodec.ExecutionReport report = seller.receive();
+            assertEquals(OrderEntryCodec.ExecutionReport.NEW, report.execType());
+            assertEquals(5, report.clientOrderId());
+
+            // Same client id again while live, and a cancel of an id never sent
+            seller.sendNew(5, Side.SELL, 102, 1);
+            assertEquals(OrderEntryCodec.ExecutionReport.REJECTED, seller.receive().execType());
+            seller.sendCancel(6);
+            report = seller.receive();
+            assertEquals(OrderEntryCodec.ExecutionReport.REJECTED, report.execType());
+            assertEquals(6, report.clientOrderId());
+
+            // The buyer's own client id 5 maps to a different engine order
+            buyer.sendNew(5, Side.BUY, 101, 4);
+            report = buyer.receive();
+            assertEquals(OrderEntryCodec.ExecutionReport.FILL, report.execType());
+            assertEquals(4, report.lastQuantity());
+            assertEquals(0, report.leavesQuantity());
+            report = seller.receive();
+            assertEquals(OrderEntryCodec.ExecutionReport.FILL, report.execType());
+            assertEquals(5, report.clientOrderId());
+            assertEquals(6, report.leavesQuantity());
+
+            // The buyer's id is done and can be used again
+            buyer.sendNew(5, Side.BUY, 101, 6);
+            assertEquals(OrderEntryCodec.ExecutionReport.FILL, buyer.receive().execType());
+            assertEquals(0, seller.receive().leavesQuantity());
+            seller.sendCancel(5);
+            assertEquals(OrderEntryCodec.ExecutionReport.REJECTED, seller.receive().execType());
+        }
+    }
+
+    @Test
+    void testSessionWithoutLogonIsDisconnected() throws Exception {
+        Sequencer sequencer = new Sequencer(new TradeMatchingEngine(), 1024, 64);
+        try (SessionServer server = new SessionServer(sequencer, LOOPBACK).start();
+             Sequencer ignored = sequencer.start();
+             Client client = new Client(server.getPort())) {
+            client.sendNew(1, Side.BUY, 100, 1);
+            assertTrue(client.closedByServer());
+            assertEquals(0, sequencer.getEngine().getBuyOrders().size());
+        }
+    }
+
+    @Test
+    void testRateLimitRejectsBurstOverBudget() throws Exception {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        Sequencer sequencer = new Sequencer(engine, 1024, 64);
+        try (SessionServer server = new SessionServer(sequencer, LOOPBACK).withRateLimit(5).start();
+             Sequencer ignored = sequencer.start();
+             Client client = new Client(server.getPort())) {
+            client.logon(1, 0);
+            for (int i = 0; i < 10; i++) {
+                client.sendNew(i, Side.BUY, 100, 1);
+            }
+            int accepted = 0;
+            int rejected = 0;
+            for (int i = 0; i < 10; i++) {
+                byte execType = client.receive().execType();
+                if (execType == OrderEntryCodec.ExecutionReport.NEW) {
+                    accepted++;
+                } else if (execType == OrderEntryCodec.ExecutionReport.REJECTED) {
+                    rejected++;
+                }
+            }
+            // The bucket refills while the burst is read, so at most a token more than the burst
+            assertTrue(accepted >= 5 && accepted <= 6, "accepted " + accepted);
+            assertEquals(10, accepted + rejected);
+            awaitBookSize(engine, accepted);
+        }
+    }
+
+    @Test
+    void testCancelOnDisconnect() throws Exception {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        Sequencer sequencer = new Sequencer(engine, 1024, 64);
+        try (SessionServer server = new SessionServer(sequencer, LOOPBACK).withCancelOnDisconnect().start();
+             Sequencer ignored = sequencer.start();
+             Client staying = new Client(server.getPort())) {
+            staying.logon(1, 0);
+            staying.sendNew(1, Side.BUY, 99, 1);
+            staying.receive();
+            try (Client leaving = new Client(server.getPort())) {
+                leaving.logon(2, 0);
+                for (int i = 0; i < 3; i++) {
+                    leaving.sendNew(i, Side.SELL, 101 + i, 1);
+                    leaving.receive();
+                }
+            }
+            awaitBookSize(engine, 1);
+        }
+    }
+
+    @Test
+    void testSessionIdIsReusedOnceItsOrdersAreDone() throws Exception {
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        Sequencer sequencer = new Sequencer(engine, 1024, 64);
+        try (SessionServer server = new SessionServer(sequencer, LOOPBACK).start();
+             Sequencer ignored = sequencer.start()) {
+            try (Client first = new Client(server.getPort())) {
+                first.logon(1, 0);
+                first.sendNew(1, Side.SELL, 101, 1);
+                assertEquals(OrderEntryCodec.ExecutionReport.NEW, first.receive().execType());
+            }
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (server.getConnectedSessions() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            try (Client second = new Client(server.getPort())) {
+                // The first session's order still rests, so its id is not handed out again
+                second.logon(2, 0);
+                second.sendNew(1, Side.BUY, 101, 1);
+                assertEquals(OrderEntryCodec.ExecutionReport.FILL, second.receive().execType());
+            }
+            try (Client third = new Client(server.getPort())) {
+                // That fill retired the first session's last order and freed its id
+                third.logon(3, 0);
+                third.sendNew(7, Side.BUY, 99, 1);
+                assertEquals(OrderEntryCodec.ExecutionReport.NEW, third.receive().execType());
+                TradeMatchingEngine.Order order = engine.getOrder(7L);
+                assertNotNull(order);
+                assertEquals(1, order.getOwner());
+            }
+        }
+    }
+
+    // Loopback load test, virtual versus platform threads per session: every session logs on and stays
+    // connected, a slice of them does new/ack then cancel/ack round trips. Off by default, it opens two
+    // thousand platform threads; run with -Dsession.loadtest=true, and bigger with
+    // -Dsession.loadtest.sessions=10000 -Dsession.loadtest.active=500 -Dsession.loadtest.rounds=20
+    @Test
+    @EnabledIfSystemProperty(named = "session.loadtest", matches = "true")
+    void testLoopbackLoadVirtualVersusPlatformThreads() throws Exception {
+        int sessions = Integer.getInteger("session.loadtest.sessions", 1000);
+        int active = Integer.getInteger("session.loadtest.active", 100);
+        int rounds = Integer.getInteger("session.loadtest.rounds", 10);
+        for (boolean virtualThreads : new boolean[]{true, false}) {
+            loadTest(virtualThreads, sessions, Math.min(active, sessions), rounds);
+        }
+    }
+
+    private static void loadTest(boolean virtualThreads, int sessions, int active, int rounds) throws Exception {
+        int clientThreads = 4;
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        TradeMatchingEngine engine = new TradeMatchingEngine();
+        Sequencer sequencer = new Sequencer(engine, 1 << 14, 256);
+        try (SessionServer server = new SessionServer(sequencer, LOOPBACK, virtualThreads).start();
+             Sequencer ignored = sequencer.start()) {
+            long connectStart = System.nanoTime();
+            List<Client> clients = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                Client client = new Client(server.getPort());
+                assertEquals(OrderEntryCodec.LogonReply.ACCEPTED, client.logon(i, 0));
+                clients.add(client);
+            }
+            long connectNanos = System.nanoTime() - connectStart;
+            int platformThreads = ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore;
+            assertEquals(sessions, server.getConnectedSessions());
+            if (virtualThreads) {
+                assertTrue(platformThreads < sessions / 10, platformThreads + " platform threads for " + sessions + " sessions");
+            }
+
+            long[] rtts = new long[active * rounds * 2];
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<Thread> threads = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < clientThreads; t++) {
+                int first = t;
+                Thread thread = new Thread(() -> {
+                    try {
+                        for (int round = 0; round < rounds; round++) {
+                            for (int s = first; s < active; s += clientThreads) {
+                                Client client = clients.get(s * (sessions / active));
+                                int at = (s * rounds + round) * 2;
+                                long sent = System.nanoTime();
+                                client.sendNew(round, Side.BUY, 1_000 - s % 100, 10);
+                                assertEquals(OrderEntryCodec.ExecutionReport.NEW, client.receive().execType());
+                                rtts[at] = System.nanoTime() - sent;
+
+                                sent = System.nanoTime();
+                                client.sendCancel(round);
+                                assertEquals(OrderEntryCodec.ExecutionReport.CANCELLED, client.receive().execType());
+                                rtts[at + 1] = System.nanoTime() - sent;
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long elapsed = System.nanoTime() - start;
+            for (Client client : clients) {
+                client.close();
+            }
+            if (failure.get() != null) {
+                fail(failure.get());
+            }
+
+            assertEquals(0, engine.getBuyOrders().size());
+            Arrays.sort(rtts);
+            System.out.printf("Sessions on %s threads: %d connected in %d ms (+%d platform threads), %d active, "
+                            + "%.0f round trips/s, RTT us p50=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                    virtualThreads ? "virtual" : "platform", sessions, TimeUnit.NANOSECONDS.toMillis(connectNanos),
+                    platformThreads, active, rtts.length * 1e9 / elapsed, percentile(rtts, 0.50), percentile(rtts, 0.99),
+                    percentile(rtts, 0.999), rtts[rtts.length - 1] / 1000.0);
+        }
+    }
+}
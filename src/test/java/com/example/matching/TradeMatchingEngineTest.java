@@ -0,0 +1,1398 @@
+package com.example.matching;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;  // Add this import
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradeMatchingEngineTest {
+
+    private TradeMatchingEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new TradeMatchingEngine();
+    }
+
+    @Test
+    void testAddBuyOrder() {
+        TradeMatchingEngine.Order buyOrder = new TradeMatchingEngine.Order("1", "buy", 100.0, 10, System.currentTimeMillis());
+        engine.addOrder(buyOrder);
+        assertEquals(1, engine.getBuyOrders().size());
+        assertEquals(buyOrder, engine.getBuyOrders().peek());
+    }
+
+    @Test
+    void testAddSellOrder() {
+        TradeMatchingEngine.Order sellOrder = new TradeMatchingEngine.Order("1", "sell", 100.0, 10, System.currentTimeMillis());
+        engine.addOrder(sellOrder);
+        assertEquals(1, engine.getSellOrders().size());
+        assertEquals(sellOrder, engine.getSellOrders().peek());
+    }
+
+    @Test
+    void testMatchingBuyOrder() {
+        engine.addOrder(new TradeMatchingEngine.Order("1", "sell", 100.0, 10, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "buy", 100.0, 5, System.currentTimeMillis()));
+        
+        assertEquals(1, engine.getSellOrders().size());
+        assertEquals(5, engine.getSellOrders().peek().getVolume());
+        assertEquals(0, engine.getBuyOrders().size());
+    }
+
+    @Test
+    void testMatchingSellOrder() {
+        engine.addOrder(new TradeMatchingEngine.Order("1", "buy", 100.0, 10, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "sell", 100.0, 5, System.currentTimeMillis()));
+        
+        assertEquals(1, engine.getBuyOrders().size());
+        assertEquals(5, engine.getBuyOrders().peek().getVolume());
+        assertEquals(0, engine.getSellOrders().size());
+    }
+
+    @Test
+    void testMultipleLevelMatching() {
+        engine.addOrder(new TradeMatchingEngine.Order("1", "sell", 100.0, 5, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "sell", 101.0, 5, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("3", "buy", 101.0, 7, System.currentTimeMillis()));
+        
+        assertEquals(1, engine.getSellOrders().size());
+        assertEquals(3, engine.getSellOrders().peek().getVolume());
+        assertEquals(0, engine.getBuyOrders().size());
+    }
+
+    @Test
+    void testPriceTimePriority() {
+        long time = System.currentTimeMillis();
+        engine.addOrder(new TradeMatchingEngine.Order("1", "sell", 100.0, 5, time));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "sell", 100.0, 5, time + 1));
+        engine.addOrder(new TradeMatchingEngine.Order("3", "buy", 100.0, 7, time + 2));
+        
+        assertEquals(1, engine.getSellOrders().size());
+        assertEquals("2", engine.getSellOrders().peek().getOrderId());
+        assertEquals(3, engine.getSellOrders().peek().getVolume());
+        assertEquals(0, engine.getBuyOrders().size());
+    }
+
+    @Test
+    void testPriceTimePriorityWithOutOfOrderTimestamps() {
+        long time = System.currentTimeMillis();
+        engine.addOrder(new TradeMatchingEngine.Order("1", "sell", 100.0, 5, time + 2));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "sell", 100.0, 5, time));
+        engine.addOrder(new TradeMatchingEngine.Order("3", "sell", 100.0, 5, time + 1));
+
+        assertEquals("2", engine.getSellOrders().poll().getOrderId());
+        assertEquals("3", engine.getSellOrders().poll().getOrderId());
+        assertEquals("1", engine.getSellOrders().poll().getOrderId());
+    }
+
+    @Test
+    void testDeleteFromMiddleOfPriceLevel() {
+        long time = System.currentTimeMillis();
+        engine.addOrder(new TradeMatchingEngine.Order("1", "buy", 100.0, 5, time));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "buy", 100.0, 6, time + 1));
+        engine.addOrder(new TradeMatchingEngine.Order("3", "buy", 100.0, 7, time + 2));
+        engine.deleteOrder("2");
+        engine.addOrder(new TradeMatchingEngine.Order("4", "sell", 100.0, 8, time + 3));
+
+        assertEquals(1, engine.getBuyOrders().size());
+        assertEquals("3", engine.getBuyOrders().peek().getOrderId());
+        assertEquals(4, engine.getBuyOrders().peek().getVolume());
+        assertEquals(1, engine.getBuyOrders().getLevelCount());
+    }
+
+    @Test
+    void testBestLevelAfterLevelEmpties() {
+        engine.addOrder(new TradeMatchingEngine.Order("1", "sell", 101.0, 5, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "sell", 100.0, 5, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("3", "sell", 102.0, 5, System.currentTimeMillis()));
+        engine.deleteOrder("2");
+
+        assertEquals(engine.getPriceScale().toTicks(101.0), engine.getSellOrders().getBestLevel().getPriceTicks());
+        assertEquals("1", engine.getSellOrders().peek().getOrderId());
+    }
+
+    @Test
+    void testFixedPointPricesCompareExactly() {
+        engine.addOrder(new TradeMatchingEngine.Order("1", "sell", 0.1 + 0.2, 5, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "buy", 0.3, 5, System.currentTimeMillis()));
+
+        assertEquals(0, engine.getSellOrders().size());
+        assertEquals(0, engine.getBuyOrders().size());
+    }
+
+    @Test
+    void testTickSizeNormalisesPrices() {
+        engine = new TradeMatchingEngine(0.05);
+        engine.addOrder(new TradeMatchingEngine.Order("1", "buy", 100.05, 5, System.currentTimeMillis()));
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks("2", "buy", 2001, 7, System.currentTimeMillis()));
+
+        assertEquals(2001, engine.getBuyOrders().peek().getPriceTicks());
+        assertEquals(100.05, engine.getBuyOrders().peek().getPrice());
+        assertEquals(12, engine.getMarketDepth("buy").get(100.05));
+        assertEquals(1, engine.getMarketDepth("buy").size());
+    }
+
+    @Test
+    void testOffTickPricesAreRejected() {
+        engine = new TradeMatchingEngine(0.05);
+        // Rounded to the nearest tick this buy would rest above its limit
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.addOrder(new TradeMatchingEngine.Order("1", "buy", 100.04, 5, 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.addOrder(new TradeMatchingEngine.Order("2", "sell", 100.06, 5, 2).withStop(OrderType.STOP_LIMIT, 2000)));
+        assertNull(engine.getOrder("1"));
+        assertNull(engine.getOrder("2"));
+        assertEquals(0, engine.getBuyOrders().size());
+
+        engine.addOrder(new TradeMatchingEngine.Order("3", "sell", 0.1 + 0.2, 5, 3)); // 6 ticks, off only by double error
+        assertEquals(6, engine.getOrder("3").getPriceTicks());
+    }
+
+    @Test
+    void testLongIdOrdersMatchAndCancelAlongsideStringIds() {
+        engine.addOrder(1L << 40, Side.SELL, 100, 10, 1);
+        engine.addOrder(7L, Side.SELL, 101, 5, 2);
+        engine.addOrder(new TradeMatchingEngine.Order("7", "sell", 0.000101, 3, 3));
+        assertEquals(3, engine.getSellOrders().size());
+        assertEquals(100, engine.getOrder(1L << 40).getPriceTicks());
+        assertNull(engine.getOrder(8L));
+
+        // The String "7" and the long 7 are different orders
+        engine.deleteOrder(7L);
+        assertNull(engine.getOrder(7L));
+        assertNotNull(engine.getOrder("7"));
+
+        engine.addOrder(new TradeMatchingEngine.Order("B", "buy", 0.000101, 12, 4));
+        assertNull(engine.getOrder(1L << 40));
+        assertEquals(1, engine.getSellOrders().size());
+        assertEquals(1, engine.getSellOrders().peek().getVolume());
+    }
+
+    @Test
+    void testLongOrderIndexSurvivesChurn() {
+        LongOrderIndex index = new LongOrderIndex(16);
+        Map<Long, TradeMatchingEngine.Order> expected = new HashMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 200_000; i++) {
+            long id = random.nextInt(5_000) * 1_000_003L;
+            if (random.nextBoolean()) {
+                TradeMatchingEngine.Order order = TradeMatchingEngine.Order.ofTicks(id, Side.BUY, 1, 1, i);
+                index.put(order);
+                expected.put(id, order);
+            } else {
+                assertSame(expected.remove(id), index.remove(id));
+            }
+        }
+        assertEquals(expected.size(), index.size());
+        for (Map.Entry<Long, TradeMatchingEngine.Order> entry : expected.entrySet()) {
+            assertSame(entry.getValue(), index.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    void testAmendDownInPlaceKeepsPriority() {
+        engine = new TradeMatchingEngine(0.01);
+        engine.addOrder("1", Side.SELL, 10_000, 10, 1);
+        engine.addOrder("2", Side.SELL, 10_000, 10, 2);
+        assertTrue(engine.amendOrder("1", 10_000, 4, 3));
+        assertEquals(14, engine.getMarketDepth("sell").get(100.0));
+        assertEquals(1, engine.getOrder("1").getTimestamp());
+
+        // Still ahead of "2": a buy for 4 fills it completely
+        engine.addOrder("B", Side.BUY, 10_000, 4, 4);
+        assertNull(engine.getOrder("1"));
+        assertEquals(10, engine.getOrder("2").getVolume());
+        assertEquals(10, engine.getMarketDepth("sell").get(100.0));
+    }
+
+    @Test
+    void testAmendUpOrRepricedLosesPriority() {
+        engine = new TradeMatchingEngine(0.01);
+        engine.addOrder("1", Side.SELL, 10_000, 10, 1);
+        engine.addOrder("2", Side.SELL, 10_000, 10, 2);
+        assertTrue(engine.amendOrder("1", 10_000, 12, 3));
+        assertEquals(22, engine.getMarketDepth("sell").get(100.0));
+        assertEquals("2", engine.getSellOrders().peek().getOrderId());
+
+        engine.amendOrder("2", 10_005, 10, 4);
+        assertEquals(12, engine.getMarketDepth("sell").get(100.0));
+        assertEquals(10, engine.getMarketDepth("sell").get(100.05));
+        assertEquals("1", engine.getSellOrders().peek().getOrderId());
+    }
+
+    @Test
+    void testAmendAcrossTheSpreadMatches() {
+        engine = new TradeMatchingEngine(0.01);
+        engine.addOrder(1L, Side.SELL, 10_000, 10, 1);
+        engine.addOrder(2L, Side.BUY, 9_990, 15, 2);
+
+        // Re-priced through the ask: trades 10 and rests 5 at the new price under the same id
+        assertTrue(engine.amendOrder(2L, 10_000, 15, 3));
+        assertNull(engine.getOrder(1L));
+        assertEquals(5, engine.getOrder(2L).getVolume());
+        assertEquals(10_000, engine.getOrder(2L).getPriceTicks());
+        assertEquals(Map.of(100.0, 5), engine.getMarketDepth("buy"));
+        assertTrue(engine.getMarketDepth("sell").isEmpty());
+
+        // Fully filled on amend: leaves the index too
+        engine.addOrder(3L, Side.SELL, 10_010, 5, 4);
+        assertTrue(engine.amendOrder(3L, 10_000, 5, 5));
+        assertNull(engine.getOrder(2L));
+        assertNull(engine.getOrder(3L));
+        assertEquals(0, engine.getBuyOrders().size() + engine.getSellOrders().size());
+    }
+
+    @Test
+    void testAmendUnknownOrInvalid() {
+        assertFalse(engine.amendOrder("missing", 100, 1, 1));
+        assertFalse(engine.amendOrder(5L, 100, 1, 1));
+        engine.addOrder("1", Side.BUY, 100, 10, 1);
+        assertThrows(IllegalArgumentException.class, () -> engine.amendOrder("1", 100, 0, 2));
+        assertEquals(10, engine.getOrder("1").getVolume());
+    }
+
+    @Test
+    void testImmediateOrCancelNeverRests() {
+        engine.addOrder(1L, Side.SELL, 100, 5, 1);
+        engine.addOrder(2L, Side.SELL, 102, 5, 2);
+        engine.addOrder(3L, Side.BUY, 101, 8, 3, OrderType.IOC);
+        assertEquals(0, engine.getBuyOrders().size());
+        assertNull(engine.getOrder(3L));
+        assertEquals(1, engine.getSellOrders().size());
+
+        // Nothing to trade against: cancelled outright
+        engine.addOrder("4", Side.BUY, 90, 8, 4, OrderType.IOC);
+        assertEquals(0, engine.getBuyOrders().size());
+        assertNull(engine.getOrder("4"));
+    }
+
+    @Test
+    void testFillOrKillIsAllOrNothing() {
+        engine.addOrder(1L, Side.SELL, 100, 5, 1);
+        engine.addOrder(2L, Side.SELL, 101, 5, 2);
+        engine.addOrder(3L, Side.SELL, 103, 5, 3);
+
+        // 10 available up to 101, not 11: killed without touching the book
+        engine.addOrder(4L, Side.BUY, 101, 11, 4, OrderType.FOK);
+        assertEquals(3, engine.getSellOrders().size());
+        assertEquals(5, engine.getOrder(1L).getVolume());
+        assertEquals(0, engine.getBuyOrders().size());
+
+        engine.addOrder(5L, Side.BUY, 101, 10, 5, OrderType.FOK);
+        assertEquals(1, engine.getSellOrders().size());
+        assertNotNull(engine.getOrder(3L));
+        assertEquals(0, engine.getBuyOrders().size());
+    }
+
+    @Test
+    void testMarketOrderSweepsAnyPriceAndCancelsTheRest() {
+        engine.addOrder(1L, Side.BUY, 100, 5, 1);
+        engine.addOrder(2L, Side.BUY, 50, 5, 2);
+        engine.addOrder(new TradeMatchingEngine.Order("M", Side.SELL, Double.NaN, 12, 3).withType(OrderType.MARKET));
+        assertEquals(0, engine.getBuyOrders().size());
+        assertEquals(0, engine.getSellOrders().size());
+        assertNull(engine.getOrder("M"));
+        assertTrue(engine.getMarketDepth("buy").isEmpty());
+    }
+
+    @Test
+    void testUnfilledRemaindersAreReportedCancelled() {
+        EventRingBuffer ring = new EventRingBuffer(64);
+        engine.setEventRingBuffer(ring);
+        List<String> events = new ArrayList<>();
+        EventProcessor processor = new EventProcessor(ring, (event, sequence, endOfBatch) -> {
+            if (event.getType() != BookEvent.Type.DEPTH) {
+                events.add(event.getType() + " " + event.getId() + " " + event.getVolume());
+            }
+        }, WaitStrategy.yielding());
+        engine.addOrder(1L, Side.SELL, 100, 5, 1);
+        engine.addOrder(2L, Side.BUY, 100, 8, 2, OrderType.IOC);
+        engine.addOrder(3L, Side.BUY, 100, 8, 3, OrderType.FOK);
+
+        processor.processAvailable();
+        assertEquals(List.of("ACCEPTED 1 5", "FILL 2 5", "CANCELLED 2 3", "CANCELLED 3 8"), events);
+    }
+
+    @Test
+    void testStopTriggersWhenLastTradeReachesIt() {
+        engine.addOrder(1L, Side.SELL, 100, 5, 1);
+        engine.addOrder(2L, Side.SELL, 105, 5, 2);
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks(3L, Side.BUY, 0, 4, 3).withStop(OrderType.STOP, 101));
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks(4L, Side.BUY, 104, 4, 4).withStop(OrderType.STOP_LIMIT, 100));
+        assertEquals(2, engine.getBuyStops().size());
+        assertEquals(0, engine.getBuyOrders().size());
+        assertTrue(engine.getOrder(3L).isPendingStop());
+
+        // Trades at 100: only the stop-limit at 100 triggers, takes the 1 left there and rests 3 at 104
+        engine.addOrder(5L, Side.BUY, 100, 4, 5);
+        assertEquals(100, engine.getLastTradeTicks());
+        assertEquals(1, engine.getBuyStops().size());
+        assertEquals(OrderType.LIMIT, engine.getOrder(4L).getOrderType());
+        assertEquals(3, engine.getOrder(4L).getVolume());
+        assertEquals(104, engine.getBuyOrders().peek().getPriceTicks());
+
+        // A pending stop cancels like any order and cannot be amended
+        assertFalse(engine.amendOrder(3L, 0, 1, 6));
+        engine.deleteOrder(3L);
+        assertNull(engine.getOrder(3L));
+        assertEquals(0, engine.getBuyStops().size());
+    }
+
+    @Test
+    void testStopAlreadyReachedTriggersOnEntry() {
+        engine.addOrder(1L, Side.BUY, 100, 5, 1);
+        engine.addOrder(2L, Side.SELL, 100, 1, 2);
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks(3L, Side.SELL, 0, 2, 3).withStop(OrderType.STOP, 101));
+        assertEquals(0, engine.getSellStops().size());
+        assertEquals(2, engine.getOrder(1L).getVolume());
+        assertNull(engine.getOrder(3L));
+    }
+
+    @Test
+    void testStopCascadeRunsWithoutRecursion() {
+        // Each level's bid is hit by the stop triggered at the level above, all the way down
+        int depth = 20_000;
+        for (int i = 0; i < depth; i++) {
+            engine.addOrder(i, Side.BUY, 1_000_000 - i, 1, i);
+            engine.addOrder(TradeMatchingEngine.Order.ofTicks(depth + i, Side.SELL, 0, 1, depth + i)
+                    .withStop(OrderType.STOP, 1_000_000 - i));
+        }
+        engine.addOrder(-1L, Side.SELL, 1_000_000, 1, 2L * depth);
+        assertEquals(0, engine.getBuyOrders().size());
+        assertEquals(0, engine.getSellStops().size());
+        assertEquals(1_000_000 - depth + 1, engine.getLastTradeTicks());
+    }
+
+    @Test
+    void testTriggerOrderIsDeterministic() {
+        EventRingBuffer ring = new EventRingBuffer(64);
+        engine.setEventRingBuffer(ring);
+        List<Long> triggered = new ArrayList<>();
+        EventProcessor processor = new EventProcessor(ring, (event, sequence, endOfBatch) -> {
+            if (event.getType() == BookEvent.Type.TRIGGERED) {
+                triggered.add(event.getId());
+            }
+        }, WaitStrategy.yielding());
+        engine.addOrder(1L, Side.SELL, 100, 100, 1);
+        // Same stop price: time order. Lower stop price first.
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks(10L, Side.BUY, 90, 1, 12).withStop(OrderType.STOP_LIMIT, 100));
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks(11L, Side.BUY, 90, 1, 11).withStop(OrderType.STOP_LIMIT, 100));
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks(12L, Side.BUY, 90, 1, 13).withStop(OrderType.STOP_LIMIT, 99));
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks(13L, Side.SELL, 110, 1, 14).withStop(OrderType.STOP_LIMIT, 100));
+        engine.addOrder(2L, Side.BUY, 100, 1, 2);
+
+        processor.processAvailable();
+        assertEquals(List.of(12L, 11L, 10L, 13L), triggered);
+    }
+
+    @Test
+    void testDeleteBuyOrder() {
+        TradeMatchingEngine.Order buyOrder = new TradeMatchingEngine.Order("1", "buy", 100.0, 10, System.currentTimeMillis());
+        engine.addOrder(buyOrder);
+        engine.deleteOrder("1");
+        assertEquals(0, engine.getBuyOrders().size());
+        assertNull(engine.getBuyOrders().peek());
+    }
+
+    @Test
+    void testDeleteSellOrder() {
+        TradeMatchingEngine.Order sellOrder = new TradeMatchingEngine.Order("1", "sell", 100.0, 10, System.currentTimeMillis());
+        engine.addOrder(sellOrder);
+        engine.deleteOrder("1");
+        assertEquals(0, engine.getSellOrders().size());
+        assertNull(engine.getSellOrders().peek());
+    }
+
+    @Test
+    void testDeleteNonExistingOrder() {
+        engine.deleteOrder("1");
+        assertEquals(0, engine.getBuyOrders().size());
+        assertEquals(0, engine.getSellOrders().size());
+    }
+
+    @Test
+    void testDeleteAfterPartialMatch() {
+        engine.addOrder(new TradeMatchingEngine.Order("1", "buy", 100.0, 10, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "sell", 100.0, 5, System.currentTimeMillis()));
+        engine.deleteOrder("1");
+        assertEquals(0, engine.getBuyOrders().size());
+        assertEquals(0, engine.getSellOrders().size());
+    }
+
+    @Test
+    void testComplexMatchingScenario() {
+        engine.addOrder(new TradeMatchingEngine.Order("1", "buy", 101.0, 5, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "buy", 102.0, 10, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("3", "sell", 100.0, 8, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("4", "sell", 101.0, 4, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("5", "sell", 102.0, 6, System.currentTimeMillis()));
+
+
+        
+        assertEquals(1, engine.getBuyOrders().size());
+        assertEquals(3, engine.getBuyOrders().peek().getVolume());
+        assertEquals(1, engine.getSellOrders().size());
+        assertEquals(6, engine.getSellOrders().peek().getVolume());
+    }
+
+    @Test
+    void testMultipleOrderDeletions() {
+        TradeMatchingEngine.Order buyOrder1 = new TradeMatchingEngine.Order("1", "buy", 100.0, 10, System.currentTimeMillis());
+        TradeMatchingEngine.Order buyOrder2 = new TradeMatchingEngine.Order("2", "buy", 101.0, 15, System.currentTimeMillis());
+        TradeMatchingEngine.Order sellOrder1 = new TradeMatchingEngine.Order("3", "sell", 102.0, 20, System.currentTimeMillis());
+        engine.addOrder(buyOrder1);
+        engine.addOrder(buyOrder2);
+        engine.addOrder(sellOrder1);
+        
+        engine.deleteOrder("1");
+        engine.deleteOrder("3");
+        
+        assertEquals(1, engine.getBuyOrders().size());
+        assertEquals(buyOrder2, engine.getBuyOrders().peek());
+        assertEquals(0, engine.getSellOrders().size());
+    }
+
+    @Test
+    void testAddAndDeleteWithMatching() {
+        engine.addOrder(new TradeMatchingEngine.Order("1", "sell", 100.0, 5, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "sell", 101.0, 10, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("3", "buy", 102.0, 8, System.currentTimeMillis()));
+        engine.deleteOrder("2");
+        
+        assertEquals(0, engine.getSellOrders().size());
+        assertEquals(0, engine.getBuyOrders().size());
+    }
+
+    @Test
+    void testComplexMatchingWithPartialDeletion() {
+        engine.addOrder(new TradeMatchingEngine.Order("1", "sell", 100.0, 10, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "sell", 101.0, 15, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("3", "buy", 101.0, 20, System.currentTimeMillis()));
+        engine.deleteOrder("2");
+        
+        assertEquals(0, engine.getSellOrders().size());
+        assertEquals(0, engine.getBuyOrders().size());
+        assertEquals(0, engine.getBuyOrders().size());
+    }
+    @Test
+void testBulkOrderAddition() {
+    // Add 1000 buy orders with increasing prices
+    for (int i = 0; i < 1000; i++) {
+        engine.addOrder(new TradeMatchingEngine.Order(
+            "B" + i,
+            "buy",
+            100.0 + i * 0.1,
+            10,
+            System.currentTimeMillis() + i
+        ));
+    }
+
+    // Add 1000 sell orders with decreasing prices
+    for (int i = 0; i < 1000; i++) {
+        engine.addOrder(new TradeMatchingEngine.Order(
+            "S" + i,
+            "sell",
+            200.0 - i * 0.1,
+            10,
+            System.currentTimeMillis() + 1000 + i
+        ));
+    }
+
+    // Since buy orders start from 100 and increase, and sell orders start from 200 and decrease,
+    // they should match when prices cross. Let's verify the number of unmatched orders.
+    int expectedUnmatchedOrders = 0;
+    if (engine.getBuyOrders().size() > 0) {
+        expectedUnmatchedOrders += engine.getBuyOrders().size();
+    }
+    if (engine.getSellOrders().size() > 0) {
+        expectedUnmatchedOrders += engine.getSellOrders().size();
+    }
+
+    // Depending on how many orders matched, we can assert the expected unmatched orders.
+    assertTrue(expectedUnmatchedOrders >= 0);
+}
+
+@Test
+void testHighVolumeMatching() {
+    // Add 5000 buy orders at price 150
+    for (int i = 0; i < 5000; i++) {
+        engine.addOrder(new TradeMatchingEngine.Order(
+            "B" + i,
+            "buy",
+            150.0,
+            5,
+            System.currentTimeMillis() + i
+        ));
+    }
+
+    // Add 5000 sell orders at price 150
+    for (int i = 0; i < 5000; i++) {
+        engine.addOrder(new TradeMatchingEngine.Order(
+            "S" + i,
+            "sell",
+            150.0,
+            5,
+            System.currentTimeMillis() + 5000 + i
+        ));
+    }
+
+    // All orders should be matched, so both queues should be empty
+    assertEquals(0, engine.getBuyOrders().size());
+    assertEquals(0, engine.getSellOrders().size());
+}
+
+@Test
+void testRandomOrderMatching() {
+    Random rand = new Random();
+    int numberOfOrders = 1000;
+
+    // Add random buy and sell orders
+    for (int i = 0; i < numberOfOrders; i++) {
+        double price = 100 + rand.nextInt(5_000) * 0.01;
+        int volume = rand.nextInt(10) + 1;
+        String side = rand.nextBoolean() ? "buy" : "sell";
+        engine.addOrder(new TradeMatchingEngine.Order(
+            side.substring(0, 1).toUpperCase() + i,
+            side,
+            price,
+            volume,
+            System.currentTimeMillis() + i
+        ));
+    }
+
+    // Since orders are random, we can't predict the state, but we can check for consistency
+    // For example, ensure no negative volumes
+    engine.getBuyOrders().forEach(order -> assertTrue(order.getVolume() > 0));
+    engine.getSellOrders().forEach(order -> assertTrue(order.getVolume() > 0));
+}
+
+
+
+@Test
+void testBulkDeletion() {
+    // Add orders to the engine
+    for (int i = 0; i < 1000; i++) {
+        engine.addOrder(new TradeMatchingEngine.Order(
+            "B" + i,
+            "buy",
+            150.0,
+            10,
+            System.currentTimeMillis() + i
+        ));
+        engine.addOrder(new TradeMatchingEngine.Order(
+            "S" + i,
+            "sell",
+            155.0,
+            10,
+            System.currentTimeMillis() + 1000 + i
+        ));
+    }
+
+    // Delete all buy orders
+    for (int i = 0; i < 1000; i++) {
+        engine.deleteOrder("B" + i);
+    }
+
+    // Verify that buy orders are deleted
+    assertEquals(0, engine.getBuyOrders().size());
+
+    // Sell orders should remain
+    assertEquals(1000, engine.getSellOrders().size());
+}
+    @Test
+    void testGetMarketDepthForBuyOrders() {
+        engine.addOrder(new TradeMatchingEngine.Order("1", "buy", 100.0, 10, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "buy", 101.0, 15, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("3", "buy", 100.0, 5, System.currentTimeMillis()));
+
+        Map<Double, Integer> buyDepth = engine.getMarketDepth("buy");
+
+        assertEquals(2, buyDepth.size());
+        assertEquals(15, buyDepth.get(101.0));
+        assertEquals(15, buyDepth.get(100.0));
+    }
+
+    @Test
+    void testGetMarketDepthForSellOrders() {
+        engine.addOrder(new TradeMatchingEngine.Order("1", "sell", 100.0, 10, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "sell", 101.0, 15, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("3", "sell", 100.0, 5, System.currentTimeMillis()));
+
+        Map<Double, Integer> sellDepth = engine.getMarketDepth("sell");
+
+        assertEquals(2, sellDepth.size());
+        assertEquals(15, sellDepth.get(101.0));
+        assertEquals(15, sellDepth.get(100.0));
+    }
+
+    @Test
+    void testGetMarketDepthAfterMatching() {
+        engine.addOrder(new TradeMatchingEngine.Order("1", "buy", 100.0, 10, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "buy", 101.0, 15, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("3", "sell", 99.0, 5, System.currentTimeMillis()));
+
+        Map<Double, Integer> buyDepth = engine.getMarketDepth("buy");
+        Map<Double, Integer> sellDepth = engine.getMarketDepth("sell");
+
+
+        assertEquals(2, buyDepth.size());
+        assertEquals(10, buyDepth.get(101.0));
+        assertEquals(10, buyDepth.get(100.0));
+        assertEquals(0, sellDepth.size());
+    }
+    @Test
+    void testGetMarketDepthAfterMatching2() {
+        engine.addOrder(new TradeMatchingEngine.Order("1", "buy", 100.0, 10, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "buy", 101.0, 15, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("3", "sell", 99.0, 5, System.currentTimeMillis()));
+
+        Map<Double, Integer> buyDepth = engine.getMarketDepth("buy");
+        Map<Double, Integer> sellDepth = engine.getMarketDepth("sell");
+
+
+        assertEquals(2, buyDepth.size());
+        assertEquals(10, buyDepth.get(101.0));
+        assertEquals(10, buyDepth.get(100.0));
+        assertEquals(0, sellDepth.size());
+    }
+
+    @Test
+    void testGetMarketDepthAfterDeletion() {
+        engine.addOrder(new TradeMatchingEngine.Order("1", "sell", 100.0, 5, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "sell", 102.0, 5, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("3", "buy", 105.0, 12, System.currentTimeMillis()));
+
+        engine.deleteOrder("1");
+
+        Map<Double, Integer> buyDepth = engine.getMarketDepth("buy");
+        Map<Double, Integer> sellDepth = engine.getMarketDepth("sell");
+
+        assertEquals(0, sellDepth.size());
+        // assertEquals(0, sellDepth.get(100.0));
+        // assertEquals(0, sellDepth.get(102.0));
+        assertEquals(1, buyDepth.size());
+
+        assertEquals(2, buyDepth.get(105.0));
+    }
+
+    @Test
+    void testGetMarketDepthEmptyOrderBook() {
+        Map<Double, Integer> buyDepth = engine.getMarketDepth("buy");
+        Map<Double, Integer> sellDepth = engine.getMarketDepth("sell");
+
+        assertEquals(0, buyDepth.size());
+        assertEquals(0, sellDepth.size());
+    }
+
+    @Test
+    void testGetMarketDepthFromRange_ValidRange() {
+        engine.addOrder(new TradeMatchingEngine.Order("1", "buy", 100.0, 10, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "buy", 101.0, 15, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("3", "buy", 102.0, 20, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("4", "sell", 103.0, 25, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("5", "sell", 104.0, 30, System.currentTimeMillis()));
+
+        Map<Double, Integer> buyDepthRange = engine.getMarketDepthFromRange("buy", 100.0, 101.0);
+        assertEquals(2, buyDepthRange.size());
+        assertEquals(10, buyDepthRange.get(100.0));
+        assertEquals(15, buyDepthRange.get(101.0));
+
+        Map<Double, Integer> sellDepthRange = engine.getMarketDepthFromRange("sell", 103.0, 104.0);
+        assertEquals(2, sellDepthRange.size());
+        assertEquals(25, sellDepthRange.get(103.0));
+        assertEquals(30, sellDepthRange.get(104.0));
+    }
+
+    @Test
+    void testGetMarketDepthFromRange_PartialRange() {
+        engine.addOrder(new TradeMatchingEngine.Order("1", "buy", 100.0, 10, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "buy", 101.0, 15, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("3", "buy", 102.0, 20, System.currentTimeMillis()));
+
+        Map<Double, Integer> buyDepthRange = engine.getMarketDepthFromRange("buy", 100.0, 101.0);
+        assertEquals(2, buyDepthRange.size());
+        assertEquals(10, buyDepthRange.get(100.0));
+        assertEquals(15, buyDepthRange.get(101.0));
+    }
+
+    @Test
+    void testGetMarketDepthFromRange_NoOrdersInRange() {
+        engine.addOrder(new TradeMatchingEngine.Order("1", "buy", 100.0, 10, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "buy", 101.0, 15, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("3", "sell", 104.0, 20, System.currentTimeMillis()));
+
+        Map<Double, Integer> buyDepthRange = engine.getMarketDepthFromRange("buy", 102.0, 103.0);
+        assertTrue(buyDepthRange.isEmpty());
+
+        Map<Double, Integer> sellDepthRange = engine.getMarketDepthFromRange("sell", 100.0, 103.0);
+        assertTrue(sellDepthRange.isEmpty());
+    }
+
+    @Test
+    void testGetMarketDepthFromRange_ExactMatch() {
+        engine.addOrder(new TradeMatchingEngine.Order("1", "buy", 100.0, 10, System.currentTimeMillis()));
+        engine.addOrder(new TradeMatchingEngine.Order("2", "sell", 101.0, 15, System.currentTimeMillis()));
+
+        Map<Double, Integer> buyDepthRange = engine.getMarketDepthFromRange("buy", 100.0, 100.0);
+        assertEquals(1, buyDepthRange.size());
+        assertEquals(10, buyDepthRange.get(100.0));
+
+        Map<Double, Integer> sellDepthRange = engine.getMarketDepthFromRange("sell", 101.0, 101.0);
+        assertEquals(1, sellDepthRange.size());
+        assertEquals(15, sellDepthRange.get(101.0));
+    }
+
+    @Test
+    void testDepthRangeIsOrderedAndReusable() {
+        engine.addOrder(1L, Side.SELL, 105, 1, 1);
+        engine.addOrder(2L, Side.SELL, 101, 2, 2);
+        engine.addOrder(3L, Side.SELL, 103, 3, 3);
+        engine.addOrder(4L, Side.SELL, 103, 4, 4);
+        engine.addOrder(5L, Side.BUY, 99, 5, 5);
+        engine.addOrder(6L, Side.BUY, 97, 6, 6);
+
+        DepthRange range = new DepthRange(1);
+        engine.getMarketDepthRange(Side.SELL, 102, 105, range);
+        assertEquals(2, range.size());
+        assertEquals(103, range.priceAt(0));
+        assertEquals(7, range.volumeAt(0));
+        assertEquals(105, range.priceAt(1));
+
+        assertSame(range, engine.getMarketDepthRange(Side.BUY, 0, 98, range));
+        assertEquals(1, range.size());
+        assertEquals(97, range.priceAt(0));
+        assertEquals(0, engine.getMarketDepthRange(Side.BUY, 100, 200, range).size());
+
+        // The Map form keeps ascending order too
+        PriceScale scale = engine.getPriceScale();
+        assertEquals(List.of(scale.toPrice(103), scale.toPrice(105)),
+                List.copyOf(engine.getMarketDepthFromRange("sell", scale.toPrice(102), scale.toPrice(200)).keySet()));
+    }
+
+    // Sell keys are negated prices, and negating Long.MIN_VALUE overflows
+    @Test
+    void testOpenEndedRangesCoverWholeSide() {
+        engine.addOrder(1L, Side.SELL, 105, 1, 1);
+        engine.addOrder(2L, Side.SELL, 101, 2, 2);
+        engine.addOrder(3L, Side.BUY, 99, 3, 3);
+        engine.addOrder(4L, Side.BUY, 97, 4, 4);
+
+        DepthRange range = new DepthRange(1);
+        for (long from : new long[] {Long.MIN_VALUE, Long.MIN_VALUE + 1}) {
+            engine.getMarketDepthRange(Side.SELL, from, 103, range);
+            assertEquals(1, range.size());
+            assertEquals(101, range.priceAt(0));
+            assertEquals(2, engine.getMarketDepthRange(Side.SELL, from, Long.MAX_VALUE, range).size());
+            assertEquals(2, engine.getMarketDepthRange(Side.BUY, from, Long.MAX_VALUE, range).size());
+            assertEquals(0, engine.getSellOrders().ascendingIndexOf(from));
+        }
+        assertEquals(0, engine.getMarketDepthRange(Side.SELL, Long.MIN_VALUE, Long.MIN_VALUE, range).size());
+        assertEquals(0, engine.getVolumeUpTo(Side.SELL, Long.MIN_VALUE));
+        assertEquals(3, engine.getVolumeUpTo(Side.SELL, Long.MAX_VALUE));
+        assertEquals(7, engine.getVolumeUpTo(Side.BUY, Long.MIN_VALUE));
+
+        assertEquals(0, engine.cancelAll(Side.SELL, Long.MIN_VALUE, Long.MIN_VALUE));
+        assertEquals(1, engine.cancelAll(Side.SELL, Long.MIN_VALUE, 103));
+        assertEquals(1, engine.cancelAll(Side.SELL, Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals(0, engine.getSellOrders().size());
+        assertEquals(2, engine.getBuyOrders().size());
+    }
+
+    @Test
+    void testCumulativeQueriesMatchALinearScan() {
+        Random random = new Random(11);
+        long id = 0;
+        List<Long> live = new ArrayList<>();
+        for (int round = 0; round < 20_000; round++) {
+            if (live.isEmpty() || random.nextInt(3) > 0) {
+                Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+                long price = side == Side.BUY ? 900 + random.nextInt(100) : 1_001 + random.nextInt(100);
+                engine.addOrder(id, side, price, 1 + random.nextInt(20), round);
+                live.add(id++);
+            } else if (random.nextBoolean()) {
+                engine.deleteOrder(live.remove(random.nextInt(live.size())));
+            } else {
+                // A volume change anywhere in the book without adding or removing a level
+                TradeMatchingEngine.Order order = engine.getOrder(live.get(random.nextInt(live.size())));
+                if (order.getVolume() > 1) {
+                    engine.amendOrder(order.getId(), order.getPriceTicks(), order.getVolume() - 1, round);
+                }
+            }
+            if (round % 7 == 0) {
+                for (Side side : Side.values()) {
+                    OrderBookSide book = side == Side.BUY ? engine.getBuyOrders() : engine.getSellOrders();
+                    long price = side == Side.BUY ? 900 + random.nextInt(100) : 1_001 + random.nextInt(100);
+                    long expectedUpTo = 0;
+                    long total = 0;
+                    for (int rank = 0; rank < book.getLevelCount(); rank++) {
+                        PriceLevel level = book.getLevelAt(rank);
+                        total += level.totalVolume;
+                        if (side == Side.BUY ? level.price >= price : level.price <= price) {
+                            expectedUpTo += level.totalVolume;
+                        }
+                    }
+                    assertEquals(expectedUpTo, engine.getVolumeUpTo(side, price));
+                    assertEquals(total, book.totalVolume());
+
+                    long volume = 1 + random.nextInt(300);
+                    long expectedPrice = TradeMatchingEngine.NO_TICKS;
+                    long seen = 0;
+                    for (int rank = 0; rank < book.getLevelCount() && seen < volume; rank++) {
+                        seen += book.getLevelAt(rank).totalVolume;
+                        expectedPrice = seen >= volume ? book.getLevelAt(rank).price : TradeMatchingEngine.NO_TICKS;
+                    }
+                    assertEquals(expectedPrice, engine.getPriceToFill(side, volume), "fill " + volume);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCancelAllByOwner() {
+        EventRingBuffer ring = new EventRingBuffer(64);
+        engine.setEventRingBuffer(ring);
+        List<Long> cancelled = new ArrayList<>();
+        List<Long> depth = new ArrayList<>();
+        EventProcessor processor = new EventProcessor(ring, (event, sequence, endOfBatch) -> {
+            if (event.getType() == BookEvent.Type.CANCELLED) {
+                cancelled.add(event.getId());
+            } else if (event.getType() == BookEvent.Type.DEPTH) {
+                depth.add(event.getPriceTicks() * 1_000 + event.getVolume());
+            }
+        }, WaitStrategy.yielding());
+        engine.addOrder(1L, Side.SELL, 101, 5, 1, OrderType.LIMIT, 7);
+        engine.addOrder(2L, Side.SELL, 101, 3, 2, OrderType.LIMIT, 8);
+        engine.addOrder(3L, Side.SELL, 101, 4, 3, OrderType.LIMIT, 7);
+        engine.addOrder(4L, Side.SELL, 102, 6, 4, OrderType.LIMIT, 7);
+        engine.addOrder(5L, Side.BUY, 99, 2, 5, OrderType.LIMIT, 7);
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks(6L, Side.BUY, 110, 1, 6).withStop(OrderType.STOP_LIMIT, 105).withOwner(7));
+        engine.addOrder(9L, Side.BUY, 101, 2, 7); // partially fills order 1
+        processor.processAvailable();
+        cancelled.clear();
+        depth.clear();
+
+        assertEquals(5, engine.cancelAll(7));
+        processor.processAvailable();
+        assertEquals(List.of(6L, 5L, 4L, 3L, 1L), cancelled);
+        // One DEPTH per level touched, with the level's final volume
+        assertEquals(List.of(99_000L, 102_000L, 101_003L), depth);
+        assertEquals(3, engine.getSellOrders().getLevel(101).totalVolume);
+        assertNull(engine.getSellOrders().getLevel(102));
+        assertNull(engine.getBuyOrders().getLevel(99));
+        assertEquals(1, engine.getSellOrders().size());
+        assertEquals(0, engine.getBuyStops().size());
+        assertEquals(3, engine.getSellOrders().totalVolume());
+        assertNull(engine.getOrder(1L));
+        assertNull(engine.getOrder(6L));
+        assertNotNull(engine.getOrder(2L));
+        assertEquals(0, engine.cancelAll(7));
+        assertEquals(1, engine.cancelAll(8));
+        assertThrows(IllegalArgumentException.class, () -> engine.cancelAll(TradeMatchingEngine.NO_OWNER));
+    }
+
+    @Test
+    void testCancelAllInPriceRange() {
+        for (long price = 100; price < 110; price++) {
+            engine.addOrder(price, Side.SELL, price, 10, price, OrderType.LIMIT, price % 2 + 1);
+            engine.addOrder(1_000 + price, Side.SELL, price, 5, price, OrderType.LIMIT, 3);
+            engine.addOrder(2_000 + price, Side.BUY, price - 20, 1, price);
+        }
+        assertEquals(8, engine.cancelAll(Side.SELL, 102, 105));
+        assertEquals(6, engine.getSellOrders().getLevelCount());
+        assertNull(engine.getSellOrders().getLevel(103));
+        assertEquals(15, engine.getSellOrders().getLevel(106).totalVolume);
+        assertEquals(12, engine.getSellOrders().size());
+        assertEquals(6 * 15, engine.getSellOrders().totalVolume());
+        assertEquals(100, engine.getSellOrders().getBestLevel().price);
+        assertNull(engine.getOrder(104L));
+        assertNull(engine.getOrder(1_104L));
+        assertEquals(10, engine.getBuyOrders().getLevelCount());
+
+        // Owner lists no longer hold the orders the range took
+        assertEquals(6, engine.cancelAll(3));
+        assertEquals(0, engine.cancelAll(Side.SELL, 0, 99));
+        assertEquals(2, engine.cancelAll(Side.SELL, 108, Long.MAX_VALUE));
+        assertEquals(4, engine.cancelAll(Side.BUY, Long.MIN_VALUE, 83));
+        assertEquals(89, engine.getBuyOrders().getBestLevel().price);
+
+        // The ladder still works after levels were dropped in the middle
+        engine.addOrder(5_000L, Side.BUY, 101, 25, 50);
+        assertEquals(106, engine.getSellOrders().getBestLevel().price);
+        assertEquals(101, engine.getBuyOrders().getBestLevel().price);
+        assertEquals(5, engine.getOrder(5_000L).getVolume());
+    }
+
+    @Test
+    void testCancelAllEmptiesTheBook() {
+        Random random = new Random(19);
+        for (long id = 0; id < 2_000; id++) {
+            Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+            long price = side == Side.BUY ? 900 + random.nextInt(100) : 1_001 + random.nextInt(100);
+            engine.addOrder(id, side, price, 1 + random.nextInt(20), id, OrderType.LIMIT, 1 + random.nextInt(3));
+        }
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks(5_000L, Side.SELL, 800, 1, 1).withStop(OrderType.STOP, 500));
+        int resting = engine.getBuyOrders().size() + engine.getSellOrders().size();
+        assertEquals(resting + 1, engine.cancelAll());
+        assertEquals(0, engine.getBuyOrders().size() + engine.getSellOrders().size() + engine.getSellStops().size());
+        assertEquals(0, engine.getBuyOrders().getLevelCount());
+        assertEquals(0, engine.getSellOrders().totalVolume());
+        assertEquals(0, engine.cancelAll(1));
+        assertNull(engine.getOrder(5_000L));
+
+        engine.addOrder(1L, Side.SELL, 1_000, 4, 1);
+        engine.addOrder(2L, Side.BUY, 1_000, 3, 2);
+        assertEquals(1, engine.getOrder(1L).getVolume());
+    }
+
+    @Test
+    void testOwnerListsFollowFillsAndCancels() {
+        Random random = new Random(23);
+        List<Long> live = new ArrayList<>();
+        for (long id = 0; id < 20_000; id++) {
+            int action = random.nextInt(10);
+            if (action == 0 && !live.isEmpty()) {
+                engine.deleteOrder(live.remove(random.nextInt(live.size())).longValue());
+            } else if (action == 1) {
+                engine.cancelAll(1 + random.nextInt(4));
+            } else {
+                Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+                engine.addOrder(id, side, 1_000 + random.nextInt(20) - 10, 1 + random.nextInt(20), id, OrderType.LIMIT, 1 + random.nextInt(4));
+                live.add(id);
+            }
+        }
+        int[] expected = new int[5];
+        for (TradeMatchingEngine.Order order : engine.getBuyOrders()) {
+            expected[(int) order.getOwner()]++;
+        }
+        for (TradeMatchingEngine.Order order : engine.getSellOrders()) {
+            expected[(int) order.getOwner()]++;
+        }
+        for (int owner = 1; owner <= 4; owner++) {
+            assertEquals(expected[owner], engine.cancelAll(owner));
+        }
+        assertEquals(0, engine.getBuyOrders().size() + engine.getSellOrders().size());
+    }
+
+    @Test
+    void testApplyBatchMatchesOneAtATimeWithMergedDepth() {
+        TradeMatchingEngine single = new TradeMatchingEngine();
+        single.setEventRingBuffer(new EventRingBuffer(1 << 12));
+        engine.setEventRingBuffer(new EventRingBuffer(1 << 12));
+        List<String> singleEvents = new ArrayList<>();
+        List<String> batchEvents = new ArrayList<>();
+        Map<Long, Long> singleDepth = new HashMap<>();
+        Map<Long, Long> batchDepth = new HashMap<>();
+        int[] depthEvents = new int[2];
+        EventProcessor singleProcessor = new EventProcessor(single.getEventRingBuffer(),
+                (event, sequence, endOfBatch) -> record(event, singleEvents, singleDepth, depthEvents, 0), WaitStrategy.yielding());
+        EventProcessor batchProcessor = new EventProcessor(engine.getEventRingBuffer(),
+                (event, sequence, endOfBatch) -> record(event, batchEvents, batchDepth, depthEvents, 1), WaitStrategy.yielding());
+
+        Random random = new Random(29);
+        OrderBatch batch = new OrderBatch(4);
+        OrderType[] types = {OrderType.LIMIT, OrderType.LIMIT, OrderType.LIMIT, OrderType.IOC, OrderType.FOK, OrderType.MARKET};
+        long nextId = 0;
+        for (int round = 0; round < 300; round++) {
+            batch.clear();
+            int size = 1 + random.nextInt(64);
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                int kind = random.nextInt(6);
+                if (kind == 0 && nextId > 0) {
+                    long id = random.nextInt((int) nextId);
+                    expected.add(single.getOrder(id) != null ? 1 : 0);
+                    single.deleteOrder(id);
+                    batch.cancel(id);
+                } else if (kind == 1 && nextId > 0) {
+                    long id = random.nextInt((int) nextId);
+                    long price = 1_000 + random.nextInt(20) - 10;
+                    int volume = 1 + random.nextInt(30);
+                    expected.add(single.amendOrder(id, price, volume, round) ? 1 : 0);
+                    batch.amend(id, price, volume, round);
+                } else {
+                    long id = nextId++;
+                    Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+                    long price = 1_000 + random.nextInt(20) - 10;
+                    int volume = 1 + random.nextInt(30);
+                    OrderType type = types[random.nextInt(types.length)];
+                    long owner = 1 + random.nextInt(3);
+                    single.addOrder(id, side, price, volume, round, type, owner);
+                    expected.add(single.getOrder(id) != null ? single.getOrder(id).getVolume() : 0);
+                    batch.add(id, side, price, volume, round, type, owner);
+                }
+            }
+            engine.applyBatch(batch);
+            for (int i = 0; i < size; i++) {
+                assertEquals(expected.get(i).intValue(), batch.resultAt(i), "round " + round + " entry " + i);
+            }
+            singleProcessor.processAvailable();
+            batchProcessor.processAvailable();
+            assertEquals(singleEvents, batchEvents);
+            assertEquals(singleDepth, batchDepth, "round " + round);
+        }
+        assertTrue(depthEvents[1] < depthEvents[0], depthEvents[1] + " merged vs " + depthEvents[0]);
+        assertEquals(0, engine.getEventRingBuffer().getDroppedEvents());
+        BookAssertions.assertSameBook(single, engine);
+    }
+
+    @Test
+    void testUncrossAtVolumeMaximisingPrice() {
+        engine.setEventRingBuffer(new EventRingBuffer(1 << 10));
+        List<String> fills = new ArrayList<>();
+        Map<Long, Long> depth = new HashMap<>();
+        EventProcessor processor = new EventProcessor(engine.getEventRingBuffer(), (event, sequence, endOfBatch) -> {
+            if (event.getType() == BookEvent.Type.FILL) {
+                fills.add(event.getId() + "x" + event.getCounterpartyId() + "@" + event.getPriceTicks() + ":" + event.getVolume());
+            } else if (event.getType() == BookEvent.Type.DEPTH) {
+                depth.put(event.getSide() == Side.BUY ? event.getPriceTicks() : -event.getPriceTicks(), event.getVolume());
+            }
+        }, WaitStrategy.yielding());
+
+        engine.startAuction();
+        engine.addOrder(1, Side.BUY, 102, 10, 1);
+        engine.addOrder(2, Side.BUY, 101, 20, 2);
+        engine.addOrder(3, Side.BUY, 100, 30, 3);
+        engine.addOrder(4, Side.SELL, 99, 15, 4);
+        engine.addOrder(5, Side.SELL, 100, 25, 5);
+        engine.addOrder(6, Side.SELL, 101, 10, 6);
+        engine.addOrder(7, Side.BUY, 105, 5, 7, OrderType.IOC);
+        assertNull(engine.getOrder(7L));
+        // Crossed, and nothing has traded
+        assertEquals(102, engine.getBuyOrders().getBestLevel().getPriceTicks());
+        assertEquals(99, engine.getSellOrders().getBestLevel().getPriceTicks());
+        // 99: 15, 100: 40, 101: 30, 102: 10
+        assertEquals(100, engine.getIndicativePrice());
+        assertEquals(40, engine.getIndicativeVolume());
+        processor.processAvailable();
+        assertTrue(fills.isEmpty());
+        depth.clear();
+
+        assertEquals(40, engine.uncross());
+        assertFalse(engine.isInAuction());
+        assertEquals(100, engine.getLastTradeTicks());
+        processor.processAvailable();
+        assertEquals(List.of("1x4@100:10", "2x4@100:5", "2x5@100:15", "3x5@100:10"), fills);
+        // One merged DEPTH per level that changed
+        assertEquals(Map.of(102L, 0L, 101L, 0L, 100L, 20L, -99L, 0L, -100L, 0L), depth);
+        assertEquals(100, engine.getBuyOrders().getBestLevel().getPriceTicks());
+        assertEquals(20, engine.getOrder(3L).getVolume());
+        assertEquals(101, engine.getSellOrders().getBestLevel().getPriceTicks());
+
+        // Continuous matching is back
+        engine.addOrder(8, Side.BUY, 101, 4, 8);
+        assertEquals(6, engine.getOrder(6L).getVolume());
+        assertThrows(IllegalStateException.class, engine::uncross);
+    }
+
+    @Test
+    void testUncrossMatchesBruteForceOverRandomCallPhases() {
+        Random random = new Random(41);
+        for (int round = 0; round < 200; round++) {
+            TradeMatchingEngine auction = new TradeMatchingEngine();
+            if (random.nextBoolean()) {
+                auction.setLastTradeTicks(990 + random.nextInt(20));
+            }
+            auction.startAuction();
+            List<long[]> orders = new ArrayList<>(); // side (0 buy), price, volume
+            int count = 1 + random.nextInt(200);
+            for (int i = 0; i < count; i++) {
+                Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+                long price = 990 + random.nextInt(20);
+                int volume = 1 + random.nextInt(50);
+                auction.addOrder(i, side, price, volume, i);
+                orders.add(new long[]{side == Side.BUY ? 0 : 1, price, volume});
+            }
+
+            // Every price, every order: the volume each would execute
+            long bestPrice = TradeMatchingEngine.NO_TICKS;
+            long bestVolume = 0;
+            long bestImbalance = Long.MAX_VALUE;
+            long reference = auction.getLastTradeTicks();
+            for (long price = 990; price < 1_010; price++) {
+                long buys = 0;
+                long sells = 0;
+                boolean level = false;
+                for (long[] order : orders) {
+                    if (order[0] == 0 && order[1] >= price) {
+                        buys += order[2];
+                    } else if (order[0] == 1 && order[1] <= price) {
+                        sells += order[2];
+                    }
+                    level |= order[1] == price;
+                }
+                long executed = Math.min(buys, sells);
+                long imbalance = Math.abs(buys - sells);
+                if (!level || executed == 0) {
+                    continue;
+                }
+                if (executed > bestVolume || (executed == bestVolume && (imbalance < bestImbalance
+                        || (imbalance == bestImbalance && reference != TradeMatchingEngine.NO_TICKS
+                        && Math.abs(price - reference) < Math.abs(bestPrice - reference))))) {
+                    bestPrice = price;
+                    bestVolume = executed;
+                    bestImbalance = imbalance;
+                }
+            }
+            assertEquals(bestPrice, auction.getIndicativePrice(), "round " + round);
+            assertEquals(bestVolume, auction.uncross(), "round " + round);
+
+            long left = 0;
+            for (long[] order : orders) {
+                left += order[2];
+            }
+            long resting = auction.getBuyOrders().totalVolume() + auction.getSellOrders().totalVolume();
+            assertEquals(left - 2 * bestVolume, resting, "round " + round);
+            PriceLevel bid = auction.getBuyOrders().getBestLevel();
+            PriceLevel ask = auction.getSellOrders().getBestLevel();
+            assertTrue(bid == null || ask == null || bid.getPriceTicks() < ask.getPriceTicks(), "still crossed in round " + round);
+        }
+    }
+
+    @Test
+    void testUncrossPublishesFillsBeyondRingCapacity() {
+        for (int i = 0; i < 1_000; i++) {
+            engine.addOrder(i, Side.SELL, 99 + i % 2, 1, i);
+        }
+        engine.startAuction();
+        for (int i = 1_000; i < 2_000; i++) {
+            engine.addOrder(i, Side.BUY, 100 + i % 2, 1, i);
+        }
+        // A consumer that drains on every publish, like a gateway on the matching thread: it only
+        // keeps up if the uncross moves the cursor as it goes
+        EventProcessor[] processor = new EventProcessor[1];
+        EventRingBuffer ring = new EventRingBuffer(64) {
+            @Override
+            public void publish() {
+                super.publish();
+                processor[0].processAvailable();
+            }
+        };
+        engine.setEventRingBuffer(ring);
+        int[] fills = new int[1];
+        List<Long> depth = new ArrayList<>();
+        processor[0] = new EventProcessor(ring, (event, sequence, endOfBatch) -> {
+            if (event.getType() == BookEvent.Type.FILL) {
+                fills[0]++;
+            } else if (event.getType() == BookEvent.Type.DEPTH) {
+                depth.add(event.getPriceTicks());
+            }
+        }, WaitStrategy.yielding());
+
+        assertEquals(1_000, engine.uncross());
+        assertEquals(1_000, fills[0]);
+        assertEquals(0, ring.getDroppedEvents());
+        // Merged: one DEPTH for each of the four emptied levels
+        assertEquals(4, depth.size());
+    }
+
+    @Test
+    void testCallPhaseAmendRestsWithoutMatching() {
+        engine.startAuction();
+        engine.addOrder(1, Side.SELL, 101, 10, 1);
+        engine.addOrder(2, Side.BUY, 99, 10, 2);
+        assertTrue(engine.amendOrder(2, 102, 10, 3));
+        engine.addOrder(3, Side.SELL, 100, 5, 4, OrderType.MARKET);
+        assertEquals(2, engine.getBuyOrders().size() + engine.getSellOrders().size());
+        assertEquals(TradeMatchingEngine.NO_TICKS, engine.getLastTradeTicks());
+        assertThrows(IllegalStateException.class, engine::startAuction);
+        assertEquals(10, engine.uncross());
+        assertEquals(101, engine.getLastTradeTicks());
+        assertEquals(0, engine.getBuyOrders().size() + engine.getSellOrders().size());
+    }
+
+    // Order events as text, DEPTH folded into a (side, price) -> volume map
+    private static void record(BookEvent event, List<String> events, Map<Long, Long> depth, int[] depthEvents, int counter) {
+        if (event.getType() == BookEvent.Type.DEPTH) {
+            depthEvents[counter]++;
+            long key = event.getSide() == Side.BUY ? event.getPriceTicks() : -event.getPriceTicks();
+            if (event.getVolume() == 0) {
+                depth.remove(key);
+            } else {
+                depth.put(key, event.getVolume());
+            }
+        } else {
+            events.add(event.getType() + " " + event.getId() + " " + event.getPriceTicks() + " " + event.getVolume()
+                    + " " + event.getCounterpartyId());
+        }
+    }
+
+    @Test
+    void testGoodTillDateExpiry() {
+        EventRingBuffer ring = new EventRingBuffer(64);
+        engine.setEventRingBuffer(ring);
+        List<Long> expired = new ArrayList<>();
+        EventProcessor processor = new EventProcessor(ring, (event, sequence, endOfBatch) -> {
+            if (event.getType() == BookEvent.Type.EXPIRED) {
+                expired.add(event.getId() * 1_000 + event.getVolume());
+            }
+        }, WaitStrategy.yielding());
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks(1L, Side.SELL, 101, 5, 1).withExpiry(100));
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks(2L, Side.SELL, 101, 3, 2).withExpiry(50));
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks(3L, Side.SELL, 102, 4, 3));
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks(4L, Side.BUY, 99, 2, 4).withExpiry(70));
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks(5L, Side.BUY, 110, 1, 5).withStop(OrderType.STOP_LIMIT, 105).withExpiry(60));
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks(6L, Side.BUY, 99, 1, 6).withExpiry(80));
+        engine.addOrder(7L, Side.BUY, 101, 2, 7); // partially fills order 1
+        engine.deleteOrder(6L);
+
+        assertEquals(0, engine.advanceTime(49));
+        assertEquals(2, engine.advanceTime(60));
+        assertEquals(49 + 11, engine.getTime());
+        assertNull(engine.getOrder(2L));
+        assertNull(engine.getOrder(5L));
+        assertEquals(0, engine.getBuyStops().size());
+        assertEquals(3, engine.getSellOrders().getLevel(101).totalVolume);
+
+        // Expiring exactly at the time reached; the cancelled order is gone from the wheel too
+        assertEquals(2, engine.advanceTime(100));
+        assertNull(engine.getOrder(1L));
+        assertNull(engine.getOrder(4L));
+        assertNull(engine.getSellOrders().getLevel(101));
+        assertNull(engine.getBuyOrders().getLevel(99));
+        assertNotNull(engine.getOrder(3L));
+        assertEquals(0, engine.advanceTime(Long.MAX_VALUE - 1));
+
+        // Already past its expiry on arrival
+        engine.addOrder(TradeMatchingEngine.Order.ofTicks(8L, Side.BUY, 100, 9, 8).withExpiry(90));
+        assertNull(engine.getOrder(8L));
+        processor.processAvailable();
+        assertEquals(List.of(2_003L, 5_001L, 4_002L, 1_003L, 8_009L), expired);
+        assertThrows(IllegalArgumentException.class, () -> engine.advanceTime(99));
+    }
+
+    @Test
+    void testExpiryMatchesBruteForceOverRandomTimes() {
+        Random random = new Random(43);
+        Map<Long, Long> live = new HashMap<>(); // id -> expiry
+        long time = 0;
+        long nextId = 0;
+        for (int step = 0; step < 20_000; step++) {
+            int kind = random.nextInt(10);
+            if (kind < 6) {
+                // Expiries from the next tick to far beyond anything reached, so every wheel level is used
+                long horizon = 1L << random.nextInt(40);
+                long expiry = random.nextInt(20) == 0 ? TradeMatchingEngine.NO_EXPIRY : time + 1 + (random.nextLong() & Long.MAX_VALUE) % horizon;
+                Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+                long id = nextId++;
+                engine.addOrder(TradeMatchingEngine.Order.ofTicks(id, side, side == Side.BUY ? 900 + random.nextInt(50) : 1_000 + random.nextInt(50),
+                        1 + random.nextInt(10), step).withExpiry(expiry));
+                live.put(id, expiry);
+            } else if (kind < 8 && nextId > 0) {
+                long id = random.nextLong(nextId);
+                engine.deleteOrder(id);
+                live.remove(id);
+            } else {
+                time += random.nextInt(4) == 0 ? random.nextLong(1L << 30) : random.nextInt(1_000);
+                long now = time;
+                long due = live.values().stream().filter(expiry -> expiry <= now).count();
+                assertEquals(due, engine.advanceTime(time), "step " + step);
+                live.values().removeIf(expiry -> expiry <= now);
+                assertEquals(live.size(), engine.getBuyOrders().size() + engine.getSellOrders().size(), "step " + step);
+            }
+        }
+        for (long id : live.keySet()) {
+            assertNotNull(engine.getOrder(id));
+        }
+    }
+
+    @Test
+    void testEndOfDayExpiresDayOrdersWithOneDepthPerLevel() {
+        EventRingBuffer ring = new EventRingBuffer(1 << 16);
+        engine.setEventRingBuffer(ring);
+        int[] expired = new int[1];
+        List<long[]> depth = new ArrayList<>(); // price, volume
+        EventProcessor processor = new EventProcessor(ring, (event, sequence, endOfBatch) -> {
+            if (event.getType() == BookEvent.Type.EXPIRED) {
+                expired[0]++;
+            } else if (event.getType() == BookEvent.Type.DEPTH) {
+                depth.add(new long[]{event.getPriceTicks(), event.getVolume()});
+            }
+        }, WaitStrategy.yielding());
+        long close = 8 * 3_600_000_000_000L;
+        for (int i = 0; i < 20_000; i++) {
+            Side side = i / 50 % 2 == 0 ? Side.BUY : Side.SELL;
+            engine.addOrder(TradeMatchingEngine.Order.ofTicks(i, side, side == Side.BUY ? 900 + i % 50 : 1_000 + i % 50, 1, i)
+                    .withExpiry(i % 7 == 0 ? TradeMatchingEngine.NO_EXPIRY : close));
+        }
+        engine.advanceTime(close - 1);
+        processor.processAvailable();
+        depth.clear();
+
+        assertEquals(17_142, engine.advanceTime(close));
+        processor.processAvailable();
+        assertEquals(17_142, expired[0]);
+        // Every level loses its day orders and keeps its good till cancelled ones: one DEPTH each
+        assertEquals(100, depth.size());
+        assertEquals(100, depth.stream().mapToLong(level -> level[0]).distinct().count());
+        assertEquals(50, engine.getBuyOrders().getLevelCount());
+        for (long[] update : depth) {
+            OrderBookSide side = update[0] < 1_000 ? engine.getBuyOrders() : engine.getSellOrders();
+            PriceLevel level = side.getLevel(update[0]);
+            assertEquals(level == null ? 0 : level.totalVolume, update[1]);
+        }
+        assertEquals(2_858, engine.getBuyOrders().totalVolume() + engine.getSellOrders().totalVolume());
+    }
+
+    @Test
+    void testGetMarketDepthFromRange_EmptyOrderBook() {
+        Map<Double, Integer> buyDepthRange = engine.getMarketDepthFromRange("buy", 100.0, 101.0);
+        assertTrue(buyDepthRange.isEmpty());
+
+        Map<Double, Integer> sellDepthRange = engine.getMarketDepthFromRange("sell", 100.0, 101.0);
+        assertTrue(sellDepthRange.isEmpty());
+    }
+
+
+
+
+    // @Test
+    // void testPerformanceUnderHighLoad() {
+    //     // Measure time taken to add and match a large number of orders
+    //     long startTime = System.currentTimeMillis();
+
+    //     for (int i = 0; i < 2; i++) {
+    //         engine.addOrder(new TradeMatchingEngine.Order(
+    //             "B" + i,
+    //             "buy",
+    //             100.0 + (i % 100) * 0.01,
+    //             1,
+    //             System.currentTimeMillis() + i
+    //         ));
+    //     }
+
+    //     for (int i = 0; i < 2; i++) {
+    //         engine.addOrder(new TradeMatchingEngine.Order(
+    //             "S" + i,
+    //             "sell",
+    //             100.0 + (i % 100) * 0.01,
+    //             1,
+    //             System.currentTimeMillis() + 10000 + i
+    //         ));
+    //     }
+
+    //     engine.addOrder(new TradeMatchingEngine.Order(
+    //         "B" + 1,
+    //         "buy",
+    //         100.0 + (i % 100) * 0.01,
+    //         1,
+    //         System.currentTimeMillis() + i
+    //     ));
+
+    //     long endTime = System.currentTimeMillis();
+    //     long duration = endTime - startTime;
+
+    //     // Verify that all orders are matched
+    //     assertEquals(0, engine.getBuyOrders().size());
+    //     assertEquals(0, engine.getSellOrders().size());
+
+    //     // Check that operation completed within acceptable time frame (e.g., less than 5 seconds)
+    //     assertTrue(duration < 5000, "Engine took too long under high load: " + duration + "ms");
+    // }
+
+}
@@ -0,0 +1,183 @@
+package com.example.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZeroAllocationTest {
+
+    private static final int IDS = 4096;
+    private static final int WARMUP_ROUNDS = 20_000;
+    private static final int MEASURED_ROUNDS = 20_000;
+    // Total bytes over all measured operations, not per operation: 16 bytes a round would already be 320 KB
+    private static final long ALLOCATION_BUDGET = 1024;
+
+    private final String[] askIds = new String[IDS];
+    private final String[] bidIds = new String[IDS];
+    private long timestamp;
+
+    // One round: rest four asks over two levels, sweep three of them, rest and cancel a bid, cancel the last ask
+    private void round(TradeMatchingEngine engine, int round) {
+        int base = (round * 4) & (IDS - 1);
+        engine.addOrder(askIds[base], Side.SELL, 10_001, 10, timestamp++);
+        engine.addOrder(askIds[base + 1], Side.SELL, 10_001, 10, timestamp++);
+        engine.addOrder(askIds[base + 2], Side.SELL, 10_002, 10, timestamp++);
+        engine.addOrder(askIds[base + 3], Side.SELL, 10_002, 10, timestamp++);
+        engine.addOrder(bidIds[base], Side.BUY, 10_002, 30, timestamp++);
+        engine.addOrder(bidIds[base + 1], Side.BUY, 9_990, 10, timestamp++);
+        engine.deleteOrder(bidIds[base + 1]);
+        engine.deleteOrder(askIds[base + 3]);
+    }
+
+    @Test
+    void testSteadyStateMatchAndCancelAllocateNothing() {
+        assertSteadyStateAllocatesNothing(new TradeMatchingEngine(0.01));
+    }
+
+    @Test
+    void testLongIdModeAllocatesNothing() {
+        TradeMatchingEngine engine = new TradeMatchingEngine(0.01);
+        assertSteadyStateAllocatesNothing(engine, (e, round) -> {
+            long base = ((long) round * 4) & (IDS - 1);
+            e.addOrder(base, Side.SELL, 10_001, 10, timestamp++);
+            e.addOrder(base + 1, Side.SELL, 10_001, 10, timestamp++);
+            e.addOrder(base + 2, Side.SELL, 10_002, 10, timestamp++);
+            e.addOrder(base + 3, Side.SELL, 10_002, 10, timestamp++);
+            e.addOrder(IDS + base, Side.BUY, 10_002, 30, timestamp++);
+            e.addOrder(IDS + base + 1, Side.BUY, 9_990, 10, timestamp++);
+            e.deleteOrder(IDS + base + 1);
+            e.deleteOrder(base + 3);
+        });
+    }
+
+    @Test
+    void testAmendsAllocateNothing() {
+        TradeMatchingEngine engine = new TradeMatchingEngine(0.01);
+        assertSteadyStateAllocatesNothing(engine, (e, round) -> {
+            int base = (round * 2) & (IDS - 1);
+            e.addOrder(askIds[base], Side.SELL, 10_001, 10, timestamp++);
+            e.addOrder(askIds[base + 1], Side.SELL, 10_001, 10, timestamp++);
+            e.amendOrder(askIds[base], 10_001, 5, timestamp++);
+            e.amendOrder(askIds[base + 1], 10_002, 10, timestamp++);
+            e.addOrder(bidIds[base], Side.BUY, 9_990, 15, timestamp++);
+            e.amendOrder(bidIds[base], 10_002, 15, timestamp++);
+            e.addOrder(bidIds[base + 1], Side.BUY, 9_990, 10, timestamp++);
+            e.deleteOrder(bidIds[base + 1]);
+        });
+    }
+
+    @Test
+    void testBatchesAllocateNothing() {
+        TradeMatchingEngine engine = new TradeMatchingEngine(0.01);
+        OrderBatch batch = new OrderBatch(8);
+        assertSteadyStateAllocatesNothing(engine, (e, round) -> {
+            long base = ((long) round * 4) & (IDS - 1);
+            batch.clear();
+            batch.add(base, Side.SELL, 10_001, 10, timestamp++)
+                    .add(base + 1, Side.SELL, 10_001, 10, timestamp++)
+                    .add(base + 2, Side.SELL, 10_002, 10, timestamp++)
+                    .amend(base + 2, 10_002, 5, timestamp++)
+                    .add(IDS + base, Side.BUY, 10_002, 25, timestamp++)
+                    .add(IDS + base + 1, Side.BUY, 9_990, 10, timestamp++)
+                    .cancel(IDS + base + 1);
+            e.applyBatch(batch);
+        });
+    }
+
+    @Test
+    void testPublishingEventsAllocatesNothing() throws InterruptedException {
+        TradeMatchingEngine engine = new TradeMatchingEngine(0.01);
+        EventRingBuffer ring = new EventRingBuffer(1 << 14);
+        engine.setEventRingBuffer(ring);
+        EventProcessor processor = new EventProcessor(ring, (event, sequence, endOfBatch) -> { }, WaitStrategy.busySpin());
+        Thread consumer = new Thread(processor, "event-consumer");
+        consumer.start();
+        try {
+            assertSteadyStateAllocatesNothing(engine);
+        } finally {
+            processor.halt();
+            consumer.join();
+        }
+    }
+
+    private void assertSteadyStateAllocatesNothing(TradeMatchingEngine engine) {
+        assertSteadyStateAllocatesNothing(engine, this::round);
+    }
+
+    private interface Round {
+        void run(TradeMatchingEngine engine, int round);
+    }
+
+    private void assertSteadyStateAllocatesNothing(TradeMatchingEngine engine, Round round) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().threadId();
+
+        for (int i = 0; i < IDS; i++) {
+            askIds[i] = "S" + i;
+            bidIds[i] = "B" + i;
+        }
+        // Warm up so the pool, index and ladder have reached their working size and the JIT has compiled the path
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round.run(engine, i);
+        }
+        long createdBefore = engine.getOrderPool().created();
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            round.run(engine, i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // The rounds must allocate nothing; the budget only leaves room for one-offs outside the engine's
+        // control, such as a deoptimisation re-materialising objects escape analysis had removed
+        assertTrue(allocated <= ALLOCATION_BUDGET, "bytes allocated over " + MEASURED_ROUNDS * 8L + " operations: " + allocated);
+        assertEquals(createdBefore, engine.getOrderPool().created());
+        assertEquals(0, engine.getBuyOrders().size());
+        assertEquals(0, engine.getSellOrders().size());
+    }
+
+    @Test
+    void testFilledAndCancelledOrdersReturnToPool() {
+        TradeMatchingEngine engine = new TradeMatchingEngine(0.01);
+        int available = engine.getOrderPool().available();
+
+        engine.addOrder("1", Side.SELL, 10_000, 10, 1);
+        engine.addOrder("2", Side.SELL, 10_000, 10, 2);
+        assertEquals(available - 2, engine.getOrderPool().available());
+
+        engine.addOrder("3", Side.BUY, 10_000, 10, 3);
+        engine.deleteOrder("2");
+
+        assertEquals(available, engine.getOrderPool().available());
+        assertEquals(0, engine.getSellOrders().size());
+    }
+
+    // A pooled order has no stop price, so stop types are turned away before one is taken
+    @Test
+    void testPooledStopOrdersAreRejectedWithoutTakingFromPool() {
+        TradeMatchingEngine engine = new TradeMatchingEngine(0.01);
+        int available = engine.getOrderPool().available();
+
+        assertThrows(IllegalArgumentException.class, () -> engine.addOrder("1", Side.BUY, 10_000, 10, 1, OrderType.STOP));
+        assertThrows(IllegalArgumentException.class, () -> engine.addOrder(2L, Side.SELL, 10_000, 10, 2, OrderType.STOP_LIMIT));
+
+        assertEquals(available, engine.getOrderPool().available());
+        assertEquals(0, engine.getBuyOrders().size() + engine.getSellOrders().size());
+    }
+
+    @Test
+    void testCallerBuiltOrdersAreNotRecycled() {
+        TradeMatchingEngine engine = new TradeMatchingEngine(0.01);
+        TradeMatchingEngine.Order order = new TradeMatchingEngine.Order("1", "buy", 100.0, 10, 1);
+        engine.addOrder(order);
+        engine.deleteOrder("1");
+
+        assertEquals("1", order.getOrderId());
+        assertEquals(Side.BUY, order.getSide());
+        assertEquals(1024, engine.getOrderPool().available());
+    }
+}